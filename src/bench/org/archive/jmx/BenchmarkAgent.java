@@ -0,0 +1,119 @@
+/*
+ * BenchmarkAgent
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+
+/**
+ * In-process JMX agent to run the client against: an MBeanServer of its
+ * own exported over RMI on a free local port.  Client connects to
+ * {@link #getHostPort()} as it would to a remote agent.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class BenchmarkAgent {
+    public static final String DOMAIN = "org.archive.jmx.bench";
+    
+    private final MBeanServer mbs;
+    private final int port;
+    private final Registry registry;
+    private final JMXConnectorServer server;
+    
+    public BenchmarkAgent() throws IOException {
+        this(getFreePort());
+    }
+    
+    public BenchmarkAgent(final int port) throws IOException {
+        super();
+        this.port = port;
+        this.mbs = MBeanServerFactory.newMBeanServer();
+        this.registry = LocateRegistry.createRegistry(port);
+        JMXServiceURL url = new JMXServiceURL(
+            "service:jmx:rmi:///jndi/rmi://localhost:" + port + "/jmxrmi");
+        this.server =
+            JMXConnectorServerFactory.newJMXConnectorServer(url, null,
+                this.mbs);
+        this.server.start();
+    }
+    
+    protected static int getFreePort() throws IOException {
+        ServerSocket s = new ServerSocket(0);
+        try {
+            return s.getLocalPort();
+        } finally {
+            s.close();
+        }
+    }
+    
+    public MBeanServer getMBeanServer() {
+        return this.mbs;
+    }
+    
+    /**
+     * @return 'host:port' to pass the client.
+     */
+    public String getHostPort() {
+        return "localhost:" + this.port;
+    }
+    
+    /**
+     * Register <code>bean</code> as
+     * 'org.archive.jmx.bench:type=TYPE,name=NAME'.
+     * @param type Value of type key.
+     * @param name Value of name key.
+     * @param bean Bean to register.
+     * @return Name registered under.
+     * @throws Exception
+     */
+    public ObjectName register(final String type, final String name,
+            final Object bean)
+    throws Exception {
+        ObjectName on = new ObjectName(DOMAIN + ":type=" + type + ",name=" +
+            name);
+        this.mbs.registerMBean(bean, on);
+        return on;
+    }
+    
+    public void stop() throws IOException {
+        try {
+            this.server.stop();
+        } finally {
+            UnicastRemoteObject.unexportObject(this.registry, true);
+        }
+    }
+}
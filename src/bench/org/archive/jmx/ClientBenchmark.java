@@ -0,0 +1,151 @@
+/*
+ * ClientBenchmark
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanFeatureInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks of command parse, feature lookup -- by scan with
+ * getFeatureInfo and hashed with FeatureIndex -- and doSubCommand end to end
+ * over RMI against a {@link BenchmarkAgent}.
+ * <p>Run with 'maven bench'.  <code>features</code> is the count of
+ * attributes and of operations on the bean; lookups are of the last one
+ * so a linear scan pays for every feature.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClientBenchmark {
+    @Param({"10", "500"})
+    public int features;
+    
+    private BenchmarkAgent agent;
+    private JMXConnector jmxc;
+    private MBeanServerConnection mbsc;
+    private ObjectInstance instance;
+    private Client client;
+    private MBeanAttributeInfo [] attributeInfo;
+    private MBeanOperationInfo [] operationInfo;
+    private FeatureIndex index;
+    private String lastAttribute;
+    private String lastOperation;
+    private String lastOperationName;
+    private final String [] args = new String [] {"1"};
+    
+    @Setup
+    public void setup() throws Exception {
+        this.agent = new BenchmarkAgent();
+        ObjectName name = this.agent.register("Synthetic", "bench",
+            new SyntheticMBean(this.features, this.features, 10, 10, 0));
+        this.client = new Client();
+        this.jmxc = this.client.getJMXConnector(this.agent.getHostPort(),
+            null, null);
+        this.mbsc = this.jmxc.getMBeanServerConnection();
+        this.instance = this.mbsc.getObjectInstance(name);
+        MBeanInfo info = this.mbsc.getMBeanInfo(name);
+        this.attributeInfo = info.getAttributes();
+        this.operationInfo = info.getOperations();
+        this.index = new FeatureIndex(info);
+        this.lastAttribute = "Attribute" + (this.features - 1);
+        this.lastOperationName = "operation" + (this.features - 1);
+        this.lastOperation = this.lastOperationName + "=1";
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        this.client.close(this.jmxc);
+        this.agent.stop();
+    }
+    
+    @Benchmark
+    public Object commandParse() throws ParseException {
+        return this.client.new CommandParse("operation1=a,b,c");
+    }
+    
+    @Benchmark
+    public MBeanFeatureInfo getFeatureInfoAttribute() {
+        return this.client.getFeatureInfo(this.attributeInfo,
+            this.lastAttribute);
+    }
+    
+    @Benchmark
+    public MBeanFeatureInfo getFeatureInfoOperation() {
+        return this.client.getFeatureInfo(this.operationInfo,
+            this.lastOperation);
+    }
+    
+    @Benchmark
+    public Object featureIndexAttribute() {
+        return this.index.getAttribute(this.lastAttribute);
+    }
+    
+    @Benchmark
+    public Object featureIndexOperation() {
+        return this.index.getOperation(this.lastOperationName, this.args,
+            null);
+    }
+    
+    @Benchmark
+    public Object doSubCommandAttribute() throws Exception {
+        return this.client.doSubCommand(this.mbsc, this.instance,
+            this.lastAttribute);
+    }
+    
+    @Benchmark
+    public Object doSubCommandComposite() throws Exception {
+        return this.client.doSubCommand(this.mbsc, this.instance,
+            "Composite");
+    }
+    
+    @Benchmark
+    public Object doSubCommandOperation() throws Exception {
+        return this.client.doSubCommand(this.mbsc, this.instance,
+            this.lastOperation);
+    }
+}
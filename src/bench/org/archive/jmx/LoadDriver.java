@@ -0,0 +1,464 @@
+/*
+ * LoadDriver
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServerConnection;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import javax.management.remote.JMXConnector;
+
+/**
+ * Scale harness: registers a population of {@link SyntheticMBean}s of
+ * configurable count, size and latency on a {@link BenchmarkAgent}, has
+ * them emit notifications at a set rate, then runs the client's code
+ * paths -- doBeans, doSubCommand and listOptions -- from many threads over
+ * RMI and reports throughput and tail latency per operation.
+ * <p>Agent and driver share this JVM and talk over loopback so runs need
+ * no network.  Run with 'maven load', passing options in load.args, e.g.
+ * 'maven -Dload.args="--beans=10000 --rows=1000 --threads=16" load'.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class LoadDriver {
+    private static final String USAGE = "Usage: LoadDriver [OPTIONS]\n" +
+        "Population:\n" +
+        " --beans=N          Beans to register (Default 1000).\n" +
+        " --attributes=N     Long attributes per bean (Default 20).\n" +
+        " --operations=N     Operations per bean (Default 10).\n" +
+        " --fields=N         Fields of 'Composite' and of each row of" +
+        " 'Table'\n" +
+        "                    (Default 10).\n" +
+        " --rows=N           Rows of 'Table' (Default 100).\n" +
+        " --latency=MS       Milliseconds slow beans sleep per call" +
+        " (Default 0).\n" +
+        " --slow-fraction=F  Fraction of beans that are slow (Default 1.0).\n" +
+        " --notify-rate=N    Notifications a second across the population" +
+        " (Default 0).\n" +
+        "Load:\n" +
+        " --ops=OP[,OP...]   Operations to mix, of get, composite, table," +
+        " invoke,\n" +
+        "                    options and list (Default" +
+        " get,composite,invoke,options).\n" +
+        " --threads=N        Worker threads (Default 8).\n" +
+        " --connections=N    Connections the workers share (Default 1).\n" +
+        " --warmup=SECONDS   Run this long before measuring (Default 5).\n" +
+        " --duration=SECONDS Measure this long (Default 30).\n" +
+        " --subscribe        Listen to every bean's notifications and count" +
+        " them.\n" +
+        " --port=PORT        Port for the agent (Default a free port).\n" +
+        " --help             Print this message.";
+    
+    private static final String [] OPS = {"get", "composite", "table",
+        "invoke", "options", "list"};
+    
+    private static final String TYPE = "Synthetic";
+    
+    private final Map options;
+    private final int [] ops;
+    private final Client client = new Client();
+    private final List beans = new ArrayList();
+    private final List instances = new ArrayList();
+    private final AtomicLong notified = new AtomicLong(0);
+    private final AtomicLong [] errors = new AtomicLong[OPS.length];
+    private volatile boolean measuring = false;
+    private volatile boolean stopping = false;
+    
+    public LoadDriver(final Map options) {
+        super();
+        this.options = options;
+        String [] names =
+            getOption("ops", "get,composite,invoke,options").split(",");
+        this.ops = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            this.ops[i] = Arrays.asList(OPS).indexOf(names[i].trim());
+            if (this.ops[i] < 0) {
+                throw new IllegalArgumentException("Unknown op " + names[i] +
+                    "; pick from " + Arrays.asList(OPS));
+            }
+        }
+        for (int i = 0; i < this.errors.length; i++) {
+            this.errors[i] = new AtomicLong(0);
+        }
+    }
+    
+    public static void main(String [] args) throws Exception {
+        Map options = new HashMap();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                System.err.println(USAGE);
+                System.exit(1);
+            }
+            int index = args[i].indexOf('=');
+            if (index > 0) {
+                options.put(args[i].substring(2, index),
+                    args[i].substring(index + 1));
+            } else {
+                options.put(args[i].substring(2), "");
+            }
+        }
+        if (options.containsKey("help")) {
+            System.out.println(USAGE);
+            return;
+        }
+        // Keep RMI on loopback whatever this box's name resolves to.
+        if (System.getProperty("java.rmi.server.hostname") == null) {
+            System.setProperty("java.rmi.server.hostname", "localhost");
+        }
+        new LoadDriver(options).run();
+    }
+    
+    protected String getOption(final String name, final String value) {
+        String v = (String)this.options.get(name);
+        return (v == null || v.length() == 0)? value: v;
+    }
+    
+    protected int getIntOption(final String name, final int value) {
+        return Integer.parseInt(getOption(name, Integer.toString(value)));
+    }
+    
+    protected double getDoubleOption(final String name,
+            final double value) {
+        return Double.parseDouble(getOption(name, Double.toString(value)));
+    }
+    
+    public void run() throws Exception {
+        BenchmarkAgent agent = this.options.containsKey("port")?
+            new BenchmarkAgent(getIntOption("port", 0)):
+            new BenchmarkAgent();
+        ScheduledExecutorService notifier =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "notifier");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        JMXConnector [] connectors =
+            new JMXConnector[Math.max(1, getIntOption("connections", 1))];
+        try {
+            List names = populate(agent);
+            for (int i = 0; i < connectors.length; i++) {
+                connectors[i] = this.client.getJMXConnector(
+                    agent.getHostPort(), null, null);
+            }
+            MBeanServerConnection mbsc =
+                connectors[0].getMBeanServerConnection();
+            for (int i = 0; i < names.size(); i++) {
+                this.instances.add(
+                    mbsc.getObjectInstance((ObjectName)names.get(i)));
+            }
+            if (this.options.containsKey("subscribe")) {
+                subscribe(mbsc, names);
+            }
+            startNotifications(notifier);
+            drive(connectors);
+        } finally {
+            notifier.shutdownNow();
+            for (int i = 0; i < connectors.length; i++) {
+                if (connectors[i] != null) {
+                    this.client.close(connectors[i]);
+                }
+            }
+            agent.stop();
+        }
+    }
+    
+    /**
+     * Register the population.
+     * @param agent Agent to register on.
+     * @return List of ObjectNames of the beans registered.
+     * @throws Exception
+     */
+    protected List populate(final BenchmarkAgent agent) throws Exception {
+        int count = getIntOption("beans", 1000);
+        int attributes = getIntOption("attributes", 20);
+        int operations = getIntOption("operations", 10);
+        int fields = getIntOption("fields", 10);
+        long latency = getIntOption("latency", 0);
+        int slow = (int)Math.round(count *
+            getDoubleOption("slow-fraction", 1.0d));
+        // All share the one composite and table so large populations fit.
+        CompositeData composite =
+            SyntheticMBean.makeComposite("Composite", fields, 0);
+        TabularData table =
+            SyntheticMBean.makeTable(getIntOption("rows", 100), fields);
+        long start = System.nanoTime();
+        List names = new ArrayList(count);
+        for (int i = 0; i < count; i++) {
+            SyntheticMBean bean = new SyntheticMBean(attributes, operations,
+                composite, table, (i < slow)? latency: 0);
+            names.add(agent.register(TYPE, "bean" + i, bean));
+            this.beans.add(bean);
+        }
+        System.out.println("Registered " + count + " beans, " +
+            ((latency > 0)? slow: 0) + " slow, in " +
+            Client.formatMillis(System.nanoTime() - start));
+        return names;
+    }
+    
+    protected void subscribe(final MBeanServerConnection mbsc,
+            final List names)
+    throws Exception {
+        NotificationListener listener = new NotificationListener() {
+            public void handleNotification(Notification n, Object handback) {
+                if (measuring) {
+                    notified.incrementAndGet();
+                }
+            }
+        };
+        long start = System.nanoTime();
+        for (int i = 0; i < names.size(); i++) {
+            mbsc.addNotificationListener((ObjectName)names.get(i), listener,
+                null, null);
+        }
+        System.out.println("Subscribed to " + names.size() + " beans in " +
+            Client.formatMillis(System.nanoTime() - start));
+    }
+    
+    /**
+     * Have random beans emit notifications at the 'notify-rate'.
+     * @param notifier Where to schedule emission.
+     */
+    protected void startNotifications(
+            final ScheduledExecutorService notifier) {
+        double rate = getDoubleOption("notify-rate", 0);
+        if (rate <= 0) {
+            return;
+        }
+        // Emit in batches so high rates need no sub-millisecond timer.
+        final int batch = (int)Math.max(1, Math.round(rate / 100));
+        long period = Math.round(batch * 1000000000.0d / rate);
+        final Random random = new Random();
+        notifier.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                for (int i = 0; i < batch; i++) {
+                    ((SyntheticMBean)beans.get(
+                        random.nextInt(beans.size()))).tick();
+                }
+            }
+        }, period, period, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Run the workers through warmup and measurement, then report.
+     * @param connectors Connections to spread the workers over.
+     * @throws Exception
+     */
+    protected void drive(final JMXConnector [] connectors)
+    throws Exception {
+        int threads = getIntOption("threads", 8);
+        final Latencies [][] latencies = new Latencies[threads][OPS.length];
+        Thread [] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            for (int j = 0; j < OPS.length; j++) {
+                latencies[i][j] = new Latencies();
+            }
+            final Latencies [] mine = latencies[i];
+            final MBeanServerConnection mbsc =
+                connectors[i % connectors.length].getMBeanServerConnection();
+            final long seed = i;
+            workers[i] = new Thread("worker-" + i) {
+                public void run() {
+                    work(mbsc, mine, new Random(seed));
+                }
+            };
+            workers[i].setDaemon(true);
+        }
+        System.out.println("Driving " + threads + " threads over " +
+            connectors.length + " connections: " + getOption("ops",
+                "get,composite,invoke,options"));
+        for (int i = 0; i < threads; i++) {
+            workers[i].start();
+        }
+        Thread.sleep(getIntOption("warmup", 5) * 1000L);
+        this.measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep(getIntOption("duration", 30) * 1000L);
+        this.measuring = false;
+        long elapsed = System.nanoTime() - start;
+        this.stopping = true;
+        for (int i = 0; i < threads; i++) {
+            workers[i].join();
+        }
+        report(latencies, elapsed);
+    }
+    
+    protected void work(final MBeanServerConnection mbsc,
+            final Latencies [] latencies, final Random random) {
+        ObjectName pattern = null;
+        try {
+            pattern = new ObjectName(BenchmarkAgent.DOMAIN + ":type=" +
+                TYPE + ",*");
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        for (int n = 0; !this.stopping; n++) {
+            int op = this.ops[n % this.ops.length];
+            ObjectInstance instance = (ObjectInstance)this.instances.get(
+                random.nextInt(this.instances.size()));
+            long start = System.nanoTime();
+            try {
+                switch (op) {
+                    case 0:
+                        this.client.doBeans(mbsc, instance.getObjectName(),
+                            new String [] {"Attribute0", "Counter"}, true);
+                        break;
+                    case 1:
+                        this.client.doSubCommand(mbsc, instance,
+                            "Composite");
+                        break;
+                    case 2:
+                        this.client.doSubCommand(mbsc, instance, "Table");
+                        break;
+                    case 3:
+                        this.client.doSubCommand(mbsc, instance, "echo=x");
+                        break;
+                    case 4:
+                        this.client.listOptions(mbsc, instance);
+                        break;
+                    default:
+                        this.client.doBeans(mbsc, pattern, null, false);
+                }
+                if (this.measuring) {
+                    latencies[op].add(System.nanoTime() - start);
+                }
+            } catch (Exception e) {
+                if (this.measuring) {
+                    this.errors[op].incrementAndGet();
+                }
+            }
+        }
+    }
+    
+    protected void report(final Latencies [][] latencies,
+            final long elapsed) {
+        double seconds = elapsed / 1000000000.0d;
+        System.out.println("Measured " + Client.formatMillis(elapsed) +
+            ((this.options.containsKey("subscribe"))?
+                ", " + this.notified.get() + " notifications received": ""));
+        System.out.println(pad("op", 10) + pad("count", 10) +
+            pad("ops/s", 10) + pad("mean", 10) + pad("p50", 10) +
+            pad("p90", 10) + pad("p99", 10) + pad("p99.9", 10) +
+            pad("max", 10) + "errors");
+        for (int op = 0; op < OPS.length; op++) {
+            Latencies all = new Latencies();
+            for (int i = 0; i < latencies.length; i++) {
+                all.addAll(latencies[i][op]);
+            }
+            if (all.size() == 0 && this.errors[op].get() == 0) {
+                continue;
+            }
+            long [] sorted = all.sort();
+            long total = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                total += sorted[i];
+            }
+            System.out.println(pad(OPS[op], 10) +
+                pad(Integer.toString(sorted.length), 10) +
+                pad(Long.toString(Math.round(sorted.length / seconds)), 10) +
+                pad(micros((sorted.length == 0)? 0: total / sorted.length),
+                    10) +
+                pad(micros(percentile(sorted, 0.5d)), 10) +
+                pad(micros(percentile(sorted, 0.9d)), 10) +
+                pad(micros(percentile(sorted, 0.99d)), 10) +
+                pad(micros(percentile(sorted, 0.999d)), 10) +
+                pad(micros((sorted.length == 0)? 0:
+                    sorted[sorted.length - 1]), 10) +
+                this.errors[op].get());
+        }
+        System.out.println("Latencies in microseconds.");
+    }
+    
+    protected static long percentile(final long [] sorted,
+            final double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int)Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+    
+    protected static String micros(final long nanos) {
+        return Long.toString(nanos / 1000);
+    }
+    
+    protected static String pad(final String s, final int width) {
+        StringBuffer buffer = new StringBuffer(s);
+        while (buffer.length() < width) {
+            buffer.append(' ');
+        }
+        return buffer.append(' ').toString();
+    }
+    
+    /**
+     * Growable array of latencies in nanoseconds.  Each worker has its own
+     * so recording needs no synchronization.
+     */
+    static class Latencies {
+        private long [] values = new long[1024];
+        private int size = 0;
+        
+        void add(final long value) {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.size * 2);
+            }
+            this.values[this.size++] = value;
+        }
+        
+        void addAll(final Latencies other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+        
+        int size() {
+            return this.size;
+        }
+        
+        long [] sort() {
+            long [] sorted = Arrays.copyOf(this.values, this.size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * RenderBenchmark
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of rendering results: recurseCompositeData and
+ * recurseTabularData on large synthetic OpenMBean values, and formatting
+ * of a log record by OneLineSimpleLogger.
+ * <p>Run with 'maven bench'.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RenderBenchmark {
+    /**
+     * Fields per composite.
+     */
+    @Param({"10", "100"})
+    public int fields;
+    
+    /**
+     * Rows in table.  Each row holds a composite of <code>fields</code>.
+     */
+    @Param({"100", "10000"})
+    public int rows;
+    
+    private Client client;
+    private CompositeData composite;
+    private TabularData table;
+    private Client.OneLineSimpleLogger formatter;
+    private LogRecord record;
+    
+    @Setup
+    public void setup() throws Exception {
+        this.client = new Client();
+        this.composite = SyntheticMBean.makeComposite("Composite",
+            this.fields, 0);
+        this.table = SyntheticMBean.makeTable(this.rows, this.fields);
+        this.formatter = new Client.OneLineSimpleLogger();
+        this.record = new LogRecord(Level.INFO,
+            "HeapMemoryUsage: committed=95289344 used=12090032");
+        this.record.setSourceClassName(Client.class.getName());
+    }
+    
+    @Benchmark
+    public Object recurseCompositeData() {
+        return this.client.recurseCompositeData(new StringBuffer("\n"), "",
+            "", this.composite);
+    }
+    
+    @Benchmark
+    public Object recurseTabularData() {
+        return this.client.recurseTabularData(new StringBuffer("\n"), "", "",
+            this.table);
+    }
+    
+    @Benchmark
+    public String oneLineSimpleLoggerFormat() {
+        return this.formatter.format(this.record);
+    }
+}
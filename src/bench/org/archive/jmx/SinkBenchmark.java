@@ -0,0 +1,103 @@
+/*
+ * SinkBenchmark
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.logging.StreamHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Benchmarks of results written per second by many threads at once:
+ * through a ResultSink, and through a logger formatted by
+ * OneLineSimpleLogger as results were written before.  Output is thrown
+ * away so only the cost of getting results out is measured.
+ * <p>Run with 'maven bench'.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class SinkBenchmark {
+    private static final String RESULT =
+        "java.lang:type=Memory HeapMemoryUsage.used: 12090032";
+    
+    private static final OutputStream NULL = new OutputStream() {
+        public void write(int b) {
+            // Discard.
+        }
+        
+        public void write(byte [] b, int off, int len) {
+            // Discard.
+        }
+    };
+    
+    private ResultSink sink;
+    private Logger logger;
+    private StreamHandler handler;
+    
+    @Setup
+    public void setup() {
+        this.sink = new ResultSink(new OutputStreamWriter(NULL), true,
+            ResultSink.DEFAULT_FLUSH_SIZE,
+            ResultSink.DEFAULT_FLUSH_INTERVAL);
+        this.handler = new StreamHandler(NULL,
+            new Client.OneLineSimpleLogger());
+        this.logger = Logger.getLogger(SinkBenchmark.class.getName());
+        this.logger.setUseParentHandlers(false);
+        this.logger.addHandler(this.handler);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        this.sink.close();
+        this.logger.removeHandler(this.handler);
+    }
+    
+    @Benchmark
+    public void resultSink() {
+        ResultSink.print(this.sink, this.logger, RESULT);
+    }
+    
+    @Benchmark
+    public void loggerInfo() {
+        this.logger.info(RESULT);
+    }
+}
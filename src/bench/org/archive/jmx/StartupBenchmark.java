@@ -0,0 +1,146 @@
+/*
+ * StartupBenchmark
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wall time of one-shot runs of the client, each in a JVM of its own: a
+ * '--version' run, which is JVM start and our own startup path, and a
+ * getAttribute against a {@link BenchmarkAgent}, which adds the load of the
+ * RMI stack.
+ * <p>Runs the client from our classpath unless <code>jar</code> is set.
+ * Set <code>archive</code> to an AppCDS archive made by 'maven cds' (Needs
+ * <code>jar</code> too) and <code>jvmArgs</code> to try other flags, e.g.
+ * 'maven -Dbench.jmh.args="-p jar=target/cmdline-jmxclient-X.X.jar
+ * -p archive=target/cmdline-jmxclient.jsa StartupBenchmark" bench'.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class StartupBenchmark {
+    @Param({""})
+    public String jar;
+    
+    @Param({""})
+    public String archive;
+    
+    @Param({""})
+    public String jvmArgs;
+    
+    private BenchmarkAgent agent;
+    private final byte [] drain = new byte[8 * 1024];
+    
+    @Setup
+    public void setup() throws Exception {
+        this.agent = new BenchmarkAgent();
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        this.agent.stop();
+    }
+    
+    @Benchmark
+    public int version() throws Exception {
+        return run(new String [] {"--version"});
+    }
+    
+    @Benchmark
+    public int getAttribute() throws Exception {
+        return run(new String [] {"-", this.agent.getHostPort(),
+            "JMImplementation:type=MBeanServerDelegate",
+            "ImplementationVersion"});
+    }
+    
+    /**
+     * Run the client in a new JVM and wait on it.
+     * @param args Client args.
+     * @return Exit code.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    protected int run(final String [] args)
+    throws IOException, InterruptedException {
+        List command = new ArrayList();
+        command.add(System.getProperty("java.home") + File.separator +
+            "bin" + File.separator + "java");
+        if (this.jvmArgs.length() > 0) {
+            String [] as = this.jvmArgs.trim().split("\\s+");
+            for (int i = 0; i < as.length; i++) {
+                command.add(as[i]);
+            }
+        }
+        if (this.archive.length() > 0) {
+            command.add("-XX:SharedArchiveFile=" + this.archive);
+        }
+        if (this.jar.length() > 0) {
+            command.add("-jar");
+            command.add(this.jar);
+        } else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(Client.class.getName());
+        }
+        for (int i = 0; i < args.length; i++) {
+            command.add(args[i]);
+        }
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        Process p = builder.start();
+        InputStream in = p.getInputStream();
+        while (in.read(this.drain) >= 0) {
+            // Drain so the child never blocks on a full pipe.
+        }
+        int exit = p.waitFor();
+        if (exit != 0) {
+            throw new IOException("Exit " + exit + ": " + command);
+        }
+        return exit;
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * SyntheticMBean
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanConstructorInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.ReflectionException;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+/**
+ * Bean of configurable size to run the client against.
+ * <p>Has <code>attributes</code> Long attributes named 'Attribute0',
+ * 'Attribute1', etc., a 'Counter' that goes up on every read, a
+ * 'Composite' CompositeData attribute of <code>fields</code> Long fields,
+ * and a 'Table' TabularData attribute of <code>rows</code> rows.  Has
+ * <code>operations</code> operations named 'operation0', 'operation1',
+ * etc., that take an int and return it, plus 'echo' that takes a String
+ * and returns it.  Every call sleeps <code>latency</code> milliseconds
+ * first.  Emits a '{@link #TICK}' notification each time
+ * {@link #tick()} is called.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class SyntheticMBean extends NotificationBroadcasterSupport
+implements DynamicMBean {
+    public static final String TICK = "org.archive.jmx.bench.tick";
+    
+    private final int attributes;
+    private final long latency;
+    private final MBeanInfo info;
+    private final CompositeData composite;
+    private final TabularData table;
+    private final AtomicLong counter = new AtomicLong(0);
+    private final AtomicLong sequence = new AtomicLong(0);
+    
+    public SyntheticMBean(final int attributes, final int operations,
+            final int fields, final int rows, final long latency)
+    throws OpenDataException {
+        this(attributes, operations, makeComposite("Composite", fields, 0),
+            makeTable(rows, fields), latency);
+    }
+    
+    /**
+     * Bean whose 'Composite' and 'Table' are the values passed, so large
+     * populations can share them.
+     */
+    public SyntheticMBean(final int attributes, final int operations,
+            final CompositeData composite, final TabularData table,
+            final long latency) {
+        super();
+        this.attributes = attributes;
+        this.latency = latency;
+        this.composite = composite;
+        this.table = table;
+        MBeanAttributeInfo [] ai = new MBeanAttributeInfo[attributes + 3];
+        for (int i = 0; i < attributes; i++) {
+            ai[i] = new MBeanAttributeInfo("Attribute" + i,
+                Long.class.getName(), "Synthetic attribute " + i, true, true,
+                false);
+        }
+        ai[attributes] = new MBeanAttributeInfo("Counter",
+            Long.TYPE.getName(), "Goes up on every read", true, false,
+            false);
+        ai[attributes + 1] = new MBeanAttributeInfo("Composite",
+            CompositeData.class.getName(), "Synthetic composite", true,
+            false, false);
+        ai[attributes + 2] = new MBeanAttributeInfo("Table",
+            TabularData.class.getName(), "Synthetic table", true, false,
+            false);
+        MBeanOperationInfo [] oi = new MBeanOperationInfo[operations + 1];
+        for (int i = 0; i < operations; i++) {
+            oi[i] = new MBeanOperationInfo("operation" + i,
+                "Synthetic operation " + i,
+                new MBeanParameterInfo [] {new MBeanParameterInfo("value",
+                    Integer.TYPE.getName(), "Value to return")},
+                Integer.TYPE.getName(), MBeanOperationInfo.INFO);
+        }
+        oi[operations] = new MBeanOperationInfo("echo", "Returns argument",
+            new MBeanParameterInfo [] {new MBeanParameterInfo("value",
+                String.class.getName(), "Value to return")},
+            String.class.getName(), MBeanOperationInfo.INFO);
+        this.info = new MBeanInfo(getClass().getName(), "Synthetic bean", ai,
+            new MBeanConstructorInfo[0], oi, new MBeanNotificationInfo [] {
+                new MBeanNotificationInfo(new String [] {TICK},
+                    Notification.class.getName(), "Synthetic tick")});
+    }
+    
+    /**
+     * Emit a '{@link #TICK}' notification.
+     */
+    public void tick() {
+        sendNotification(new Notification(TICK, this,
+            this.sequence.incrementAndGet(), System.currentTimeMillis()));
+    }
+    
+    protected static CompositeType makeCompositeType(final String name,
+            final int fields)
+    throws OpenDataException {
+        String [] names = new String[fields];
+        OpenType [] types = new OpenType[fields];
+        for (int i = 0; i < fields; i++) {
+            names[i] = "field" + i;
+            types[i] = SimpleType.LONG;
+        }
+        return new CompositeType(name, name, names, names, types);
+    }
+    
+    protected static CompositeData makeComposite(final String name,
+            final int fields, final long base)
+    throws OpenDataException {
+        CompositeType type = makeCompositeType(name, fields);
+        Object [] values = new Object[fields];
+        for (int i = 0; i < fields; i++) {
+            values[i] = Long.valueOf(base + i);
+        }
+        return new CompositeDataSupport(type,
+            type.keySet().toArray(new String[fields]), values);
+    }
+    
+    protected static TabularData makeTable(final int rows, final int fields)
+    throws OpenDataException {
+        CompositeType rowType = new CompositeType("Row", "Row",
+            new String [] {"key", "value"}, new String [] {"key", "value"},
+            new OpenType [] {SimpleType.STRING,
+                makeCompositeType("Value", fields)});
+        TabularData data = new TabularDataSupport(new TabularType("Table",
+            "Table", rowType, new String [] {"key"}));
+        for (int i = 0; i < rows; i++) {
+            data.put(new CompositeDataSupport(rowType,
+                new String [] {"key", "value"},
+                new Object [] {"row" + i, makeComposite("Value", fields, i)}));
+        }
+        return data;
+    }
+    
+    protected void pause() {
+        if (this.latency <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(this.latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public Object getAttribute(String attribute)
+    throws AttributeNotFoundException {
+        pause();
+        return get(attribute);
+    }
+    
+    protected Object get(final String attribute)
+    throws AttributeNotFoundException {
+        if (attribute.equals("Counter")) {
+            return Long.valueOf(this.counter.incrementAndGet());
+        } else if (attribute.equals("Composite")) {
+            return this.composite;
+        } else if (attribute.equals("Table")) {
+            return this.table;
+        } else if (attribute.startsWith("Attribute")) {
+            try {
+                int i = Integer.parseInt(attribute.substring(
+                    "Attribute".length()));
+                if (i >= 0 && i < this.attributes) {
+                    return Long.valueOf(i);
+                }
+            } catch (NumberFormatException e) {
+                // Fall through.
+            }
+        }
+        throw new AttributeNotFoundException(attribute);
+    }
+    
+    public AttributeList getAttributes(String [] names) {
+        pause();
+        AttributeList list = new AttributeList(names.length);
+        for (int i = 0; i < names.length; i++) {
+            try {
+                list.add(new Attribute(names[i], get(names[i])));
+            } catch (AttributeNotFoundException e) {
+                // Skip as per the spec.
+            }
+        }
+        return list;
+    }
+    
+    public void setAttribute(Attribute attribute)
+    throws AttributeNotFoundException {
+        pause();
+        get(attribute.getName());
+    }
+    
+    public AttributeList setAttributes(AttributeList list) {
+        pause();
+        AttributeList result = new AttributeList(list.size());
+        for (Iterator i = list.iterator(); i.hasNext();) {
+            Attribute a = (Attribute)i.next();
+            try {
+                get(a.getName());
+                result.add(a);
+            } catch (AttributeNotFoundException e) {
+                // Skip.
+            }
+        }
+        return result;
+    }
+    
+    public Object invoke(String name, Object [] params, String [] signature)
+    throws ReflectionException {
+        pause();
+        if ((name.equals("echo") || name.startsWith("operation")) &&
+                params != null && params.length == 1) {
+            return params[0];
+        }
+        throw new ReflectionException(new NoSuchMethodException(name));
+    }
+    
+    public MBeanInfo getMBeanInfo() {
+        return this.info;
+    }
+    
+    public MBeanNotificationInfo [] getNotificationInfo() {
+        return this.info.getNotifications();
+    }
+}
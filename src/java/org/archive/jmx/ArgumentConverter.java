@@ -0,0 +1,254 @@
+/*
+ * ArgumentConverter
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts a String passed on the command line to an instance of a JMX
+ * parameter or attribute type.
+ * <p>Converters are looked up by the type String found in MBean
+ * attribute and parameter info -- e.g. 'int', 'java.lang.Long',
+ * '[Ljava.lang.String;' -- and are made once per type and cached.  Handles
+ * primitives and their wrappers, enums, arrays, and any class with a
+ * static <code>valueOf(String)</code> or a constructor that takes a String
+ * (e.g. {@link javax.management.ObjectName}).  Array elements are
+ * delimited by {@link #ARRAY_DELIMITER}.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public abstract class ArgumentConverter {
+    /**
+     * Delimiter of array elements.  Can't be comma; commas delimit
+     * operation arguments.
+     */
+    public static final String ARRAY_DELIMITER = ";";
+    
+    private static final Map PRIMITIVES = new HashMap();
+    static {
+        PRIMITIVES.put("boolean", Boolean.TYPE);
+        PRIMITIVES.put("byte", Byte.TYPE);
+        PRIMITIVES.put("char", Character.TYPE);
+        PRIMITIVES.put("short", Short.TYPE);
+        PRIMITIVES.put("int", Integer.TYPE);
+        PRIMITIVES.put("long", Long.TYPE);
+        PRIMITIVES.put("float", Float.TYPE);
+        PRIMITIVES.put("double", Double.TYPE);
+    }
+    
+    private static final Map WRAPPERS = new HashMap();
+    static {
+        WRAPPERS.put(Boolean.TYPE, Boolean.class);
+        WRAPPERS.put(Byte.TYPE, Byte.class);
+        WRAPPERS.put(Character.TYPE, Character.class);
+        WRAPPERS.put(Short.TYPE, Short.class);
+        WRAPPERS.put(Integer.TYPE, Integer.class);
+        WRAPPERS.put(Long.TYPE, Long.class);
+        WRAPPERS.put(Float.TYPE, Float.class);
+        WRAPPERS.put(Double.TYPE, Double.class);
+    }
+    
+    /**
+     * Converters keyed by JMX type String.
+     */
+    private static final Map CONVERTERS = new ConcurrentHashMap();
+    
+    /**
+     * @param value String to convert.
+     * @return <code>value</code> as instance of our type.
+     * @throws Exception
+     */
+    public abstract Object convert(String value) throws Exception;
+    
+    /**
+     * Convenience.
+     * @param type JMX type String.
+     * @param value String to convert.
+     * @return <code>value</code> as instance of <code>type</code>.
+     * @throws Exception
+     */
+    public static Object convert(final String type, final String value)
+    throws Exception {
+        return getInstance(type).convert(value);
+    }
+    
+    /**
+     * @param type JMX type String.
+     * @return Converter for <code>type</code>.
+     * @throws ClassNotFoundException If <code>type</code> is not on our
+     * classpath.
+     * @throws NoSuchMethodException If we don't know how to make a
+     * <code>type</code> from a String.
+     */
+    public static ArgumentConverter getInstance(final String type)
+    throws ClassNotFoundException, NoSuchMethodException {
+        ArgumentConverter c = (ArgumentConverter)CONVERTERS.get(type);
+        if (c == null) {
+            c = create(getClass(type));
+            CONVERTERS.put(type, c);
+        }
+        return c;
+    }
+    
+    /**
+     * @param type JMX type String.
+     * @return Class for <code>type</code>, primitive if a primitive type.
+     * @throws ClassNotFoundException
+     */
+    protected static Class getClass(final String type)
+    throws ClassNotFoundException {
+        Class c = (Class)PRIMITIVES.get(type);
+        return (c != null)? c: Class.forName(type);
+    }
+    
+    protected static ArgumentConverter create(final Class c)
+    throws NoSuchMethodException {
+        if (c.isArray()) {
+            return new ArrayConverter(c.getComponentType(),
+                create(c.getComponentType()));
+        }
+        Class wrapper = c.isPrimitive()? (Class)WRAPPERS.get(c): c;
+        if (wrapper == String.class) {
+            return new ArgumentConverter() {
+                public Object convert(String value) {
+                    return value;
+                }
+            };
+        } else if (wrapper == Character.class) {
+            return new ArgumentConverter() {
+                public Object convert(String value) {
+                    if (value.length() != 1) {
+                        throw new IllegalArgumentException("Not a char: " +
+                            value);
+                    }
+                    return Character.valueOf(value.charAt(0));
+                }
+            };
+        } else if (wrapper.isEnum()) {
+            return new EnumConverter(wrapper);
+        }
+        try {
+            Method m = wrapper.getMethod("valueOf",
+                new Class [] {String.class});
+            if (Modifier.isStatic(m.getModifiers()) &&
+                    wrapper.isAssignableFrom(m.getReturnType())) {
+                return new ValueOfConverter(m);
+            }
+        } catch (NoSuchMethodException e) {
+            // Try a constructor instead.
+        }
+        return new ConstructorConverter(
+            wrapper.getConstructor(new Class [] {String.class}));
+    }
+    
+    /**
+     * Throw the cause of an InvocationTargetException if it's an Exception.
+     * @param e Exception to unwrap.
+     * @return Never returns.
+     * @throws Exception
+     */
+    protected static Object rethrow(final InvocationTargetException e)
+    throws Exception {
+        if (e.getCause() instanceof Exception) {
+            throw (Exception)e.getCause();
+        }
+        throw e;
+    }
+    
+    static class ValueOfConverter extends ArgumentConverter {
+        private final Method method;
+        
+        ValueOfConverter(final Method method) {
+            this.method = method;
+        }
+        
+        public Object convert(String value) throws Exception {
+            try {
+                return this.method.invoke(null, new Object [] {value});
+            } catch (InvocationTargetException e) {
+                return rethrow(e);
+            }
+        }
+    }
+    
+    static class ConstructorConverter extends ArgumentConverter {
+        private final Constructor constructor;
+        
+        ConstructorConverter(final Constructor constructor) {
+            this.constructor = constructor;
+        }
+        
+        public Object convert(String value) throws Exception {
+            try {
+                return this.constructor.newInstance(new Object [] {value});
+            } catch (InvocationTargetException e) {
+                return rethrow(e);
+            }
+        }
+    }
+    
+    static class EnumConverter extends ArgumentConverter {
+        private final Class type;
+        
+        EnumConverter(final Class type) {
+            this.type = type;
+        }
+        
+        public Object convert(String value) {
+            return Enum.valueOf(this.type, value);
+        }
+    }
+    
+    static class ArrayConverter extends ArgumentConverter {
+        private final Class componentType;
+        private final ArgumentConverter component;
+        
+        ArrayConverter(final Class componentType,
+                final ArgumentConverter component) {
+            this.componentType = componentType;
+            this.component = component;
+        }
+        
+        public Object convert(String value) throws Exception {
+            String [] values = (value.length() == 0)?
+                new String [0]: value.split(ARRAY_DELIMITER, -1);
+            Object array = Array.newInstance(this.componentType,
+                values.length);
+            for (int i = 0; i < values.length; i++) {
+                Array.set(array, i, this.component.convert(values[i]));
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * ArgumentConverterTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.lang.annotation.RetentionPolicy;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of {@link ArgumentConverter} over the type Strings MBean info
+ * carries.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class ArgumentConverterTest extends TestCase {
+    protected void assertFails(final String type, final String value)
+    throws Exception {
+        try {
+            ArgumentConverter.convert(type, value);
+            fail(type + " " + value);
+        } catch (IllegalArgumentException e) {
+            // Expected.  NumberFormatException is one of these.
+        }
+    }
+
+    public void testPrimitives() throws Exception {
+        assertEquals(Integer.valueOf(-3), ArgumentConverter.convert("int",
+            "-3"));
+        assertEquals(Long.valueOf(Long.MAX_VALUE),
+            ArgumentConverter.convert("long", "" + Long.MAX_VALUE));
+        assertEquals(Boolean.TRUE, ArgumentConverter.convert("boolean",
+            "true"));
+        assertEquals(Boolean.FALSE, ArgumentConverter.convert("boolean",
+            "nope"));
+        assertEquals(Short.valueOf((short)7), ArgumentConverter.convert(
+            "short", "7"));
+        assertEquals(Byte.valueOf((byte)1), ArgumentConverter.convert("byte",
+            "1"));
+        assertEquals(Double.valueOf(0.5d), ArgumentConverter.convert(
+            "double", ".5"));
+        assertEquals(Float.valueOf(2f), ArgumentConverter.convert("float",
+            "2"));
+        assertEquals(Character.valueOf('x'), ArgumentConverter.convert(
+            "char", "x"));
+        assertFails("int", "1.5");
+        assertFails("int", "" + Long.MAX_VALUE);
+        assertFails("long", "ten");
+        assertFails("char", "xy");
+    }
+
+    public void testWrappersAndStrings() throws Exception {
+        assertEquals(Integer.valueOf(4), ArgumentConverter.convert(
+            "java.lang.Integer", "4"));
+        assertEquals(Long.valueOf(4), ArgumentConverter.convert(
+            "java.lang.Long", "4"));
+        assertEquals("a,b", ArgumentConverter.convert("java.lang.String",
+            "a,b"));
+        // Constructor that takes a String.
+        assertEquals(new BigDecimal("1.25"), ArgumentConverter.convert(
+            "java.math.BigDecimal", "1.25"));
+    }
+
+    public void testArrays() throws Exception {
+        int [] ints = (int [])ArgumentConverter.convert("[I", "1;2;3");
+        assertTrue(Arrays.equals(new int [] {1, 2, 3}, ints));
+        String [] strings = (String [])ArgumentConverter.convert(
+            "[Ljava.lang.String;", "a;;b");
+        assertTrue(Arrays.equals(new String [] {"a", "", "b"}, strings));
+        assertEquals(0, ((long [])ArgumentConverter.convert("[J", "")).
+            length);
+        boolean [] [] nested = (boolean [] [])ArgumentConverter.convert(
+            "[[Z", "true");
+        assertEquals(1, nested.length);
+        assertTrue(nested[0][0]);
+        assertFails("[I", "1;two");
+    }
+
+    public void testEnums() throws Exception {
+        assertSame(RetentionPolicy.RUNTIME, ArgumentConverter.convert(
+            RetentionPolicy.class.getName(), "RUNTIME"));
+        assertFails(RetentionPolicy.class.getName(), "runtime");
+    }
+
+    public void testObjectName() throws Exception {
+        Object name = ArgumentConverter.convert(ObjectName.class.getName(),
+            "java.lang:type=Memory");
+        assertEquals(new ObjectName("java.lang:type=Memory"), name);
+        try {
+            ArgumentConverter.convert(ObjectName.class.getName(), "no key");
+            fail();
+        } catch (MalformedObjectNameException e) {
+            // Expected: the cause, not the reflection wrapper.
+        }
+    }
+
+    public void testUnknownTypes() throws Exception {
+        try {
+            ArgumentConverter.getInstance("org.archive.jmx.NoSuchType");
+            fail();
+        } catch (ClassNotFoundException e) {
+            // Expected.
+        }
+        try {
+            // No valueOf(String) nor String constructor.
+            ArgumentConverter.getInstance("java.lang.Object");
+            fail();
+        } catch (NoSuchMethodException e) {
+            // Expected.
+        }
+    }
+
+    public void testConvertersAreCached() throws Exception {
+        assertSame(ArgumentConverter.getInstance("int"),
+            ArgumentConverter.getInstance("int"));
+        assertSame(ArgumentConverter.getInstance("[Ljava.lang.String;"),
+            ArgumentConverter.getInstance("[Ljava.lang.String;"));
+        // Primitive and wrapper types are keyed apart.
+        assertTrue(ArgumentConverter.getInstance("int") !=
+            ArgumentConverter.getInstance("java.lang.Integer"));
+    }
+}
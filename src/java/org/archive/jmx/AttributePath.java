@@ -0,0 +1,256 @@
+/*
+ * AttributePath
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.TabularData;
+
+/**
+ * Path to a value inside an attribute: the attribute name followed by
+ * '.FIELD' steps into CompositeData and '[KEY,...]' steps that pick a row of
+ * TabularData by its index values or an element of an array by its index.
+ * E.g. 'HeapMemoryUsage.used' or
+ * 'LastGcInfo.memoryUsageAfterGc[PS Eden Space].value.used'.  Same paths as
+ * {@link ResultFormat} writes.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class AttributePath {
+    private final String path;
+    private final String attribute;
+    
+    /**
+     * Steps in order.  Each is a String field name or a String [] of row
+     * key or array index.
+     */
+    private final List steps;
+    
+    protected AttributePath(final String path, final String attribute,
+            final List steps) {
+        super();
+        this.path = path;
+        this.attribute = attribute;
+        this.steps = steps;
+    }
+    
+    /**
+     * @param index Features of the bean <code>cmd</code> is to run against.
+     * @param cmd Command.
+     * @return Path <code>cmd</code> names or null if <code>cmd</code> is not
+     * a path into a readable attribute of the bean (Including if it names
+     * an attribute outright).
+     */
+    public static AttributePath parse(final FeatureIndex index,
+            final String cmd) {
+        if (cmd.indexOf('=') >= 0 || cmd.indexOf('(') >= 0 ||
+                index.getAttribute(cmd) != null) {
+            return null;
+        }
+        int end = getStepStart(cmd, 0);
+        if (end <= 0 || end == cmd.length()) {
+            return null;
+        }
+        String attribute = cmd.substring(0, end);
+        if (index.getAttribute(attribute) == null ||
+                !index.getAttribute(attribute).isReadable()) {
+            return null;
+        }
+        return new AttributePath(cmd, attribute, parseSteps(cmd, end));
+    }
+    
+    /**
+     * Parse without checking against any bean's features.
+     * @param path Attribute name optionally followed by steps.
+     * @return Path.  Has no steps if <code>path</code> is an attribute
+     * name.
+     */
+    public static AttributePath parse(final String path) {
+        int end = getStepStart(path, 0);
+        if (end <= 0) {
+            throw new IllegalArgumentException("No attribute in " + path);
+        }
+        return new AttributePath(path, path.substring(0, end),
+            parseSteps(path, end));
+    }
+    
+    /**
+     * @param cmd Path.
+     * @param from Index of first step.
+     * @return Steps of <code>cmd</code> from <code>from</code> on.
+     */
+    protected static List parseSteps(final String cmd, final int from) {
+        List steps = new ArrayList();
+        int end = from;
+        for (int i = from; i < cmd.length();) {
+            if (cmd.charAt(i) == '.') {
+                end = getStepStart(cmd, i + 1);
+                if (end == i + 1) {
+                    throw new IllegalArgumentException("Empty field in " +
+                        cmd);
+                }
+                steps.add(cmd.substring(i + 1, end));
+            } else {
+                end = cmd.indexOf(']', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("No closing ']' in " +
+                        cmd);
+                }
+                String [] key = cmd.substring(i + 1, end).split(",");
+                for (int j = 0; j < key.length; j++) {
+                    key[j] = key[j].trim();
+                }
+                steps.add(key);
+                end++;
+            }
+            i = end;
+        }
+        return steps;
+    }
+    
+    /**
+     * @param cmd Path.
+     * @param from Where to start looking.
+     * @return Index of next '.' or '[' or length of <code>cmd</code>.
+     */
+    protected static int getStepStart(final String cmd, final int from) {
+        for (int i = from; i < cmd.length(); i++) {
+            char c = cmd.charAt(i);
+            if (c == '.' || c == '[') {
+                return i;
+            }
+        }
+        return cmd.length();
+    }
+    
+    /**
+     * @return Name of attribute path starts at.
+     */
+    public String getAttribute() {
+        return this.attribute;
+    }
+    
+    /**
+     * @param value Value of our attribute.
+     * @return Value at end of path.
+     * @throws Exception If a step doesn't fit the value it is applied to.
+     */
+    public Object project(final Object value) throws Exception {
+        Object v = value;
+        for (int i = 0; i < this.steps.size(); i++) {
+            Object step = this.steps.get(i);
+            if (v == null) {
+                throw new IllegalArgumentException(this.path + ": null at " +
+                    toString(i));
+            } else if (step instanceof String && v instanceof CompositeData) {
+                CompositeData data = (CompositeData)v;
+                if (!data.containsKey((String)step)) {
+                    throw new IllegalArgumentException(this.path +
+                        ": No field '" + step + "' in " + toString(i) +
+                        ", have " +
+                        data.getCompositeType().keySet());
+                }
+                v = data.get((String)step);
+            } else if (step instanceof String [] &&
+                    v instanceof TabularData) {
+                v = getRow((TabularData)v, (String [])step, i);
+            } else if (step instanceof String [] && v.getClass().isArray() &&
+                    ((String [])step).length == 1) {
+                int index = Integer.parseInt(((String [])step)[0]);
+                if (index < 0 || index >= Array.getLength(v)) {
+                    throw new IllegalArgumentException(this.path +
+                        ": No element " + index + " in " + toString(i) +
+                        " of length " + Array.getLength(v));
+                }
+                v = Array.get(v, index);
+            } else {
+                throw new IllegalArgumentException(this.path + ": Can't " +
+                    "apply " + toString(i + 1) + " to a " +
+                    v.getClass().getName());
+            }
+        }
+        return v;
+    }
+    
+    protected Object getRow(final TabularData data, final String [] key,
+            final int step)
+    throws Exception {
+        List indexNames = data.getTabularType().getIndexNames();
+        if (indexNames.size() != key.length) {
+            throw new IllegalArgumentException(this.path + ": " +
+                toString(step + 1) + " needs " + indexNames.size() +
+                " index value(s): " + indexNames);
+        }
+        // Convert index values to the types of the index columns.
+        CompositeType rowType = data.getTabularType().getRowType();
+        Object [] values = new Object[key.length];
+        for (int i = 0; i < key.length; i++) {
+            values[i] = ArgumentConverter.convert(
+                rowType.getType((String)indexNames.get(i)).getClassName(),
+                key[i]);
+        }
+        CompositeData row = data.get(values);
+        if (row == null) {
+            throw new IllegalArgumentException(this.path + ": No row " +
+                toString(step + 1));
+        }
+        return row;
+    }
+    
+    /**
+     * @param count Count of steps to include.
+     * @return Path up to and including <code>count</code> steps.
+     */
+    protected String toString(final int count) {
+        StringBuffer buffer = new StringBuffer(this.attribute);
+        for (int i = 0; i < count; i++) {
+            Object step = this.steps.get(i);
+            if (step instanceof String) {
+                buffer.append('.').append(step);
+            } else {
+                String [] key = (String [])step;
+                buffer.append('[');
+                for (int j = 0; j < key.length; j++) {
+                    if (j > 0) {
+                        buffer.append(',');
+                    }
+                    buffer.append(key[j]);
+                }
+                buffer.append(']');
+            }
+        }
+        return buffer.toString();
+    }
+    
+    public String toString() {
+        return this.path;
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * AttributePathTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.openmbean.ArrayType;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of parsing {@link AttributePath}s and projecting them over
+ * CompositeData, TabularData and arrays.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class AttributePathTest extends TestCase {
+    private CompositeType usageType;
+    private CompositeType gcType;
+    private CompositeData gcInfo;
+    private TabularDataSupport threads;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.usageType = new CompositeType("Usage", "Usage",
+            new String [] {"used", "max"}, new String [] {"used", "max"},
+            new OpenType [] {SimpleType.LONG, SimpleType.LONG});
+        CompositeType entryType = new CompositeType("Entry", "Entry",
+            new String [] {"key", "value"}, new String [] {"key", "value"},
+            new OpenType [] {SimpleType.STRING, this.usageType});
+        TabularType poolsType = new TabularType("Pools", "Pools",
+            entryType, new String [] {"key"});
+        TabularDataSupport pools = new TabularDataSupport(poolsType);
+        pools.put(new CompositeDataSupport(entryType,
+            new String [] {"key", "value"},
+            new Object [] {"Eden Space", usage(10, 100)}));
+        pools.put(new CompositeDataSupport(entryType,
+            new String [] {"key", "value"},
+            new Object [] {"Old Gen", usage(20, 200)}));
+        this.gcType = new CompositeType("GcInfo", "GcInfo",
+            new String [] {"id", "memoryUsageAfterGc", "pauses", "usages"},
+            new String [] {"id", "memoryUsageAfterGc", "pauses", "usages"},
+            new OpenType [] {SimpleType.LONG, poolsType,
+                new ArrayType(SimpleType.LONG, true),
+                new ArrayType(1, this.usageType)});
+        this.gcInfo = new CompositeDataSupport(this.gcType,
+            new String [] {"id", "memoryUsageAfterGc", "pauses", "usages"},
+            new Object [] {Long.valueOf(7), pools, new long [] {3, 5},
+                new CompositeData [] {usage(1, 2), usage(3, 4)}});
+        // Table with a two column index, one of them not a string.
+        CompositeType threadType = new CompositeType("Thread", "Thread",
+            new String [] {"group", "id", "state"},
+            new String [] {"group", "id", "state"},
+            new OpenType [] {SimpleType.STRING, SimpleType.INTEGER,
+                SimpleType.STRING});
+        this.threads = new TabularDataSupport(new TabularType("Threads",
+            "Threads", threadType, new String [] {"group", "id"}));
+        this.threads.put(new CompositeDataSupport(threadType,
+            new String [] {"group", "id", "state"},
+            new Object [] {"main", Integer.valueOf(1), "RUNNABLE"}));
+        this.threads.put(new CompositeDataSupport(threadType,
+            new String [] {"group", "id", "state"},
+            new Object [] {"main", Integer.valueOf(2), "BLOCKED"}));
+    }
+
+    protected CompositeData usage(final long used, final long max)
+    throws Exception {
+        return new CompositeDataSupport(this.usageType,
+            new String [] {"used", "max"},
+            new Object [] {Long.valueOf(used), Long.valueOf(max)});
+    }
+
+    protected Object project(final String path, final Object value)
+    throws Exception {
+        return AttributePath.parse(path).project(value);
+    }
+
+    protected void assertFails(final String path, final Object value,
+            final String message)
+    throws Exception {
+        try {
+            project(path, value);
+            fail(path);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().indexOf(message) >= 0);
+        }
+    }
+
+    public void testNoSteps() throws Exception {
+        AttributePath path = AttributePath.parse("LastGcInfo");
+        assertEquals("LastGcInfo", path.getAttribute());
+        assertSame(this.gcInfo, path.project(this.gcInfo));
+    }
+
+    public void testComposite() throws Exception {
+        assertEquals("LastGcInfo",
+            AttributePath.parse("LastGcInfo.id").getAttribute());
+        assertEquals(Long.valueOf(7), project("LastGcInfo.id", this.gcInfo));
+        assertFails("LastGcInfo.nope", this.gcInfo,
+            "No field 'nope' in LastGcInfo, have [");
+        assertFails("LastGcInfo.id.more", this.gcInfo,
+            "Can't apply LastGcInfo.id.more to a java.lang.Long");
+    }
+
+    public void testTabular() throws Exception {
+        assertEquals(Long.valueOf(20), project(
+            "LastGcInfo.memoryUsageAfterGc[Old Gen].value.used",
+            this.gcInfo));
+        // Key values are trimmed.
+        assertEquals(Long.valueOf(100), project(
+            "LastGcInfo.memoryUsageAfterGc[ Eden Space ].value.max",
+            this.gcInfo));
+        assertFails("LastGcInfo.memoryUsageAfterGc[Perm Gen].value",
+            this.gcInfo, "No row LastGcInfo.memoryUsageAfterGc[Perm Gen]");
+        assertFails("LastGcInfo.memoryUsageAfterGc[a,b]", this.gcInfo,
+            "needs 1 index value(s): [key]");
+    }
+
+    public void testTabularCompoundKey() throws Exception {
+        // The id is converted to the Integer the index column holds.
+        assertEquals("BLOCKED", project("Threads[main,2].state",
+            this.threads));
+        assertEquals("RUNNABLE", project("Threads[main, 1].state",
+            this.threads));
+        assertFails("Threads[main,3]", this.threads, "No row");
+        assertFails("Threads[main]", this.threads,
+            "needs 2 index value(s): [group, id]");
+    }
+
+    public void testArrays() throws Exception {
+        assertEquals(Long.valueOf(5), project("LastGcInfo.pauses[1]",
+            this.gcInfo));
+        assertEquals(Long.valueOf(3), project("LastGcInfo.usages[1].used",
+            this.gcInfo));
+        assertEquals("c", project("Names[2]", new String [] {"a", "b", "c"}));
+        assertFails("LastGcInfo.pauses[2]", this.gcInfo,
+            "No element 2 in LastGcInfo.pauses of length 2");
+        assertFails("LastGcInfo.pauses[-1]", this.gcInfo, "No element -1");
+        assertFails("LastGcInfo.pauses[0,1]", this.gcInfo,
+            "Can't apply LastGcInfo.pauses[0,1] to a [J");
+        try {
+            project("LastGcInfo.pauses[first]", this.gcInfo);
+            fail();
+        } catch (NumberFormatException e) {
+            // Expected.
+        }
+    }
+
+    public void testNull() throws Exception {
+        assertFails("LastGcInfo.id", null, "null at LastGcInfo");
+        assertNull(project("LastGcInfo", null));
+    }
+
+    public void testBadSyntax() throws Exception {
+        String [] bad = {".id", "[0]", "LastGcInfo..id", "LastGcInfo.",
+            "LastGcInfo.pauses[0"};
+        String [] messages = {"No attribute", "No attribute", "Empty field",
+            "Empty field", "No closing ']'"};
+        for (int i = 0; i < bad.length; i++) {
+            try {
+                AttributePath.parse(bad[i]);
+                fail(bad[i]);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(),
+                    e.getMessage().startsWith(messages[i]));
+            }
+        }
+    }
+
+    public void testParseAgainstFeatures() throws Exception {
+        FeatureIndex index = new FeatureIndex(new MBeanInfo("Test", "Test",
+            new MBeanAttributeInfo [] {
+                new MBeanAttributeInfo("LastGcInfo",
+                    CompositeData.class.getName(), "", true, false, false),
+                new MBeanAttributeInfo("Secret",
+                    CompositeData.class.getName(), "", false, true, false),
+                new MBeanAttributeInfo("Odd.Name", "java.lang.String", "",
+                    true, false, false)},
+            null, null, null));
+        AttributePath path = AttributePath.parse(index,
+            "LastGcInfo.memoryUsageAfterGc[Old Gen].value.max");
+        assertEquals("LastGcInfo", path.getAttribute());
+        assertEquals(Long.valueOf(200), path.project(this.gcInfo));
+        // Plain attributes, writes, operations, unknown and write-only
+        // attributes are not paths.
+        assertNull(AttributePath.parse(index, "LastGcInfo"));
+        assertNull(AttributePath.parse(index, "Odd.Name"));
+        assertNull(AttributePath.parse(index, "LastGcInfo.id=1"));
+        assertNull(AttributePath.parse(index, "reset(1)"));
+        assertNull(AttributePath.parse(index, "Other.id"));
+        assertNull(AttributePath.parse(index, "Secret.id"));
+    }
+}
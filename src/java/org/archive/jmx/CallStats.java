@@ -0,0 +1,246 @@
+/*
+ * CallStats
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import javax.management.ObjectName;
+
+/**
+ * Counts and latency of remote calls, by method, by method and bean, and
+ * by command, plus bytes moved over RMI sockets.
+ * <p>Per-method latency goes into a histogram of power-of-two
+ * microsecond buckets, so recording is a few atomic adds and percentiles
+ * are good to within a factor of two.  Figures are kept for a window that
+ * {@link #report(String)} logs and then starts afresh, so long-running
+ * modes can report each cycle.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class CallStats {
+    private static final Logger logger =
+        Logger.getLogger(CallStats.class.getName());
+    
+    /**
+     * Bucket <code>i</code> counts calls that took less than 2^i
+     * microseconds.  The last counts the rest.
+     */
+    private static final int BUCKETS = 32;
+    
+    /**
+     * Count of most costly method and bean pairs to report.
+     */
+    private static final int TOP = 10;
+    
+    private final AtomicReference window =
+        new AtomicReference(new Window());
+    
+    CallStats() {
+        super();
+    }
+    
+    /**
+     * Record a remote call.
+     * @param method Name of MBeanServerConnection method called.
+     * @param bean Bean called against or null if none.
+     * @param nanos Time taken.
+     * @param failed True if the call threw.
+     */
+    void record(final String method, final ObjectName bean,
+            final long nanos, final boolean failed) {
+        Window w = (Window)this.window.get();
+        get(w.methods, method).record(nanos, failed);
+        if (bean != null) {
+            get(w.beans, method + " " + bean.getCanonicalName()).
+                record(nanos, failed);
+        }
+    }
+    
+    /**
+     * Record a run of a command against a bean.
+     * @param command Command run.
+     * @param nanos Time taken.
+     * @param failed True if the command threw.
+     */
+    void recordCommand(final String command, final long nanos,
+            final boolean failed) {
+        get(((Window)this.window.get()).commands, command).record(nanos,
+            failed);
+    }
+    
+    protected Stat get(final Map stats, final String key) {
+        Stat stat = (Stat)stats.get(key);
+        if (stat == null) {
+            stat = new Stat();
+            Stat raced = (Stat)((ConcurrentHashMap)stats).putIfAbsent(key,
+                stat);
+            if (raced != null) {
+                stat = raced;
+            }
+        }
+        return stat;
+    }
+    
+    /**
+     * Log what was recorded since the last report, then start afresh.
+     * Logs nothing if nothing was recorded.
+     * @param label What the report covers (E.g. 'exit').
+     */
+    void report(final String label) {
+        Window w = (Window)this.window.getAndSet(new Window());
+        long sent = CountingSocketFactory.getBytesSent() - w.sent;
+        long received = CountingSocketFactory.getBytesReceived() -
+            w.received;
+        if (w.methods.isEmpty() && sent == 0 && received == 0) {
+            return;
+        }
+        long calls = 0;
+        for (Iterator i = w.methods.values().iterator(); i.hasNext();) {
+            calls += ((Stat)i.next()).count.get();
+        }
+        logger.info("Stats (" + label + "): calls=" + calls + " sent=" +
+            sent + "B received=" + received + "B" +
+            (CountingSocketFactory.isInstalled()? "":
+                " (bytes not counted)"));
+        for (Iterator i = new TreeMap(w.methods).entrySet().iterator();
+                i.hasNext();) {
+            Map.Entry e = (Map.Entry)i.next();
+            Stat s = (Stat)e.getValue();
+            logger.info(" " + e.getKey() + " " + s + " p50<" +
+                formatMicros(s.percentile(0.50)) + " p90<" +
+                formatMicros(s.percentile(0.90)) + " p99<" +
+                formatMicros(s.percentile(0.99)));
+        }
+        report("commands", w.commands, Integer.MAX_VALUE);
+        report("costliest bean calls", w.beans, TOP);
+    }
+    
+    protected void report(final String title, final Map stats,
+            final int limit) {
+        if (stats.isEmpty()) {
+            return;
+        }
+        List entries = new ArrayList(stats.entrySet());
+        Collections.sort(entries, new Comparator() {
+            public int compare(Object a, Object b) {
+                long x = ((Stat)((Map.Entry)a).getValue()).nanos.get();
+                long y = ((Stat)((Map.Entry)b).getValue()).nanos.get();
+                return (x < y)? 1: (x > y)? -1: 0;
+            }
+        });
+        logger.info(" By " + title + ":");
+        for (int i = 0; i < Math.min(limit, entries.size()); i++) {
+            Map.Entry e = (Map.Entry)entries.get(i);
+            logger.info("  " + e.getKey() + " " + e.getValue());
+        }
+    }
+    
+    protected static String formatMicros(final long micros) {
+        return (micros < 1000)? micros + "us":
+            Client.formatMillis(micros * 1000);
+    }
+    
+    /**
+     * Figures recorded since the last report.
+     */
+    private static class Window {
+        private final Map methods = new ConcurrentHashMap();
+        private final Map beans = new ConcurrentHashMap();
+        private final Map commands = new ConcurrentHashMap();
+        private final long sent = CountingSocketFactory.getBytesSent();
+        private final long received =
+            CountingSocketFactory.getBytesReceived();
+    }
+    
+    /**
+     * Count, errors, total and max time, and histogram of times.
+     */
+    private static class Stat {
+        private final AtomicLong count = new AtomicLong(0);
+        private final AtomicLong errors = new AtomicLong(0);
+        private final AtomicLong nanos = new AtomicLong(0);
+        private final AtomicLong max = new AtomicLong(0);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        
+        void record(final long elapsed, final boolean failed) {
+            this.count.incrementAndGet();
+            if (failed) {
+                this.errors.incrementAndGet();
+            }
+            this.nanos.addAndGet(elapsed);
+            for (long m = this.max.get(); elapsed > m; m = this.max.get()) {
+                if (this.max.compareAndSet(m, elapsed)) {
+                    break;
+                }
+            }
+            long micros = elapsed / 1000;
+            int bucket = (micros <= 0)? 0:
+                64 - Long.numberOfLeadingZeros(micros);
+            this.buckets.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+        }
+        
+        /**
+         * @param fraction Fraction of calls, e.g. 0.99.
+         * @return Microseconds that <code>fraction</code> of calls took
+         * less than.
+         */
+        long percentile(final double fraction) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += this.buckets.get(i);
+            }
+            long wanted = (long)Math.ceil(total * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += this.buckets.get(i);
+                if (seen >= wanted) {
+                    return 1L << i;
+                }
+            }
+            return 1L << (BUCKETS - 1);
+        }
+        
+        public String toString() {
+            long n = this.count.get();
+            return "calls=" + n + " errors=" + this.errors.get() +
+                " total=" + Client.formatMillis(this.nanos.get()) + " avg=" +
+                Client.formatMillis((n == 0)? 0: this.nanos.get() / n) +
+                " max=" + Client.formatMillis(this.max.get());
+        }
+    }
+}
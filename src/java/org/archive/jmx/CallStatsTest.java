@@ -0,0 +1,182 @@
+/*
+ * CallStatsTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of what {@link CallStats} reports and of recording the calls made
+ * through an {@link InstrumentedConnector}.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class CallStatsTest extends TestCase {
+    private static final String BEAN =
+        "JMImplementation:type=MBeanServerDelegate";
+
+    private final Logger logger =
+        Logger.getLogger(CallStats.class.getName());
+
+    /**
+     * Messages CallStats logged.
+     */
+    private final List messages = new ArrayList();
+
+    private final Handler handler = new Handler() {
+        public void publish(LogRecord record) {
+            messages.add(record.getMessage());
+        }
+
+        public void flush() {
+            // Nothing to do.
+        }
+
+        public void close() {
+            // Nothing to do.
+        }
+    };
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.logger.addHandler(this.handler);
+    }
+
+    protected void tearDown() throws Exception {
+        this.logger.removeHandler(this.handler);
+        super.tearDown();
+    }
+
+    protected void assertLogged(final String message) {
+        assertTrue(this.messages.toString(),
+            this.messages.contains(message));
+    }
+
+    public void testReport() throws Exception {
+        CallStats stats = new CallStats();
+        ObjectName a = new ObjectName("test:type=A");
+        ObjectName b = new ObjectName("test:type=B");
+        stats.record("getAttribute", a, 100000, false);
+        stats.record("getAttribute", b, 1500000, true);
+        stats.record("queryNames", null, 3000000, false);
+        stats.recordCommand("Count", 1600000, false);
+        stats.report("test");
+        assertTrue(this.messages.toString(), ((String)this.messages.get(0)).
+            startsWith("Stats (test): calls=3 sent="));
+        // Percentiles are the power-of-two microseconds they are under.
+        assertLogged(" getAttribute calls=2 errors=1 total=1.600ms" +
+            " avg=0.800ms max=1.500ms p50<128us p90<2.048ms p99<2.048ms");
+        assertLogged(" queryNames calls=1 errors=0 total=3.000ms" +
+            " avg=3.000ms max=3.000ms p50<4.096ms p90<4.096ms p99<4.096ms");
+        assertLogged("  Count calls=1 errors=0 total=1.600ms avg=1.600ms" +
+            " max=1.600ms");
+        // Costliest first.
+        int index = this.messages.indexOf(" By costliest bean calls:");
+        assertTrue(this.messages.toString(), index > 0);
+        assertEquals("  getAttribute test:type=B calls=1 errors=1" +
+            " total=1.500ms avg=1.500ms max=1.500ms",
+            this.messages.get(index + 1));
+        assertEquals("  getAttribute test:type=A calls=1 errors=0" +
+            " total=0.100ms avg=0.100ms max=0.100ms",
+            this.messages.get(index + 2));
+    }
+
+    public void testReportStartsAfresh() throws Exception {
+        CallStats stats = new CallStats();
+        stats.record("getAttribute", null, 1000, false);
+        stats.report("first");
+        int count = this.messages.size();
+        stats.report("second");
+        if (!CountingSocketFactory.isInstalled()) {
+            // Nothing recorded so nothing logged.
+            assertEquals(count, this.messages.size());
+        }
+        stats.record("getAttributes", null, 1000, false);
+        stats.report("third");
+        assertLogged(" getAttributes calls=1 errors=0 total=0.001ms" +
+            " avg=0.001ms max=0.001ms p50<2us p90<2us p99<2us");
+        for (int i = count; i < this.messages.size(); i++) {
+            assertTrue(this.messages.toString(), ((String)this.messages.
+                get(i)).indexOf("getAttribute ") < 0);
+        }
+    }
+
+    public void testInstrumentedConnector() throws Exception {
+        JMXConnectorServer server =
+            JMXConnectorServerFactory.newJMXConnectorServer(
+                new JMXServiceURL("service:jmx:rmi://"), null,
+                MBeanServerFactory.newMBeanServer());
+        server.start();
+        try {
+            CallStats stats = new CallStats();
+            JMXConnector jmxc = new InstrumentedConnector(
+                JMXConnectorFactory.connect(server.getAddress()), "test",
+                stats);
+            try {
+                MBeanServerConnection mbsc = jmxc.getMBeanServerConnection();
+                mbsc.getAttribute(new ObjectName(BEAN), "MBeanServerId");
+                try {
+                    mbsc.getAttribute(new ObjectName("test:type=None"),
+                        "Count");
+                    fail();
+                } catch (InstanceNotFoundException e) {
+                    // Expected.
+                }
+                mbsc.getMBeanCount();
+            } finally {
+                jmxc.close();
+            }
+            stats.report("test");
+        } finally {
+            server.stop();
+        }
+        assertTrue(this.messages.toString(), ((String)this.messages.get(0)).
+            startsWith("Stats (test): calls=3 sent="));
+        assertTrue(this.messages.toString(), ((String)this.messages.get(1)).
+            startsWith(" getAttribute calls=2 errors=1 "));
+        assertTrue(this.messages.toString(), ((String)this.messages.get(2)).
+            startsWith(" getMBeanCount calls=1 errors=0 "));
+        int index = this.messages.indexOf(" By costliest bean calls:");
+        assertTrue(this.messages.toString(), index > 0);
+        assertEquals(index + 3, this.messages.size());
+    }
+}
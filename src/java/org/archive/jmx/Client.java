@@ -25,19 +25,40 @@
  */
 package org.archive.jmx;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.text.FieldPosition;
+import java.io.Writer;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Handler;
+import java.util.logging.LogManager;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
@@ -46,6 +67,7 @@ import java.util.regex.Pattern;
 
 import javax.management.Attribute;
 import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
 import javax.management.InstanceNotFoundException;
 import javax.management.IntrospectionException;
 import javax.management.MBeanAttributeInfo;
@@ -55,8 +77,11 @@ import javax.management.MBeanOperationInfo;
 import javax.management.MBeanParameterInfo;
 import javax.management.MBeanServerConnection;
 import javax.management.MalformedObjectNameException;
+import javax.management.NotificationFilter;
+import javax.management.NotificationFilterSupport;
 import javax.management.ObjectInstance;
 import javax.management.ObjectName;
+import javax.management.QueryExp;
 import javax.management.ReflectionException;
 import javax.management.openmbean.CompositeData;
 import javax.management.openmbean.TabularData;
@@ -82,14 +107,190 @@ public class Client {
      * Usage string.
      */
     private static final String USAGE = "Usage: java -jar" +
-        " cmdline-jmxclient.jar USER:PASS HOST:PORT [BEAN] [COMMAND]\n" +
+        " cmdline-jmxclient.jar [OPTIONS] USER:PASS HOST:PORT [BEAN]" +
+        " [COMMAND]\n" +
         "Options:\n" +
+        " --version Print version and exit.\n" +
+        " --format=text|jsonl|csv|flat Write results as logged text" +
+        " (Default), a\n" +
+        "           JSON object per line, 'host,bean,path,value' CSV" +
+        " rows or\n" +
+        "           'bean.path=value' lines.  Composite fields are" +
+        " '.KEY', tabular\n" +
+        "           rows '[KEY,...]' and array elements '[INDEX]' in" +
+        " paths.\n" +
+        " --fanout[=THREADS] If BEAN is a pattern that matches more" +
+        " than one bean,\n" +
+        "           run COMMAND against every match using THREADS" +
+        " workers (Default 4).\n" +
+        "           Results are labelled with the name of the bean.\n" +
+        " --aggregate=sum|min|max|avg|count Run COMMAND against every" +
+        " bean that\n" +
+        "           matches BEAN pattern, using --fanout THREADS, and" +
+        " print the\n" +
+        "           aggregate of each command's numeric results rather" +
+        " than the\n" +
+        "           results.\n" +
+        " --where=FILTER Only beans that match BEAN pattern and pass" +
+        " FILTER, an\n" +
+        "           expression the remote side evaluates: e.g." +
+        " 'ActiveCount > 50 &&\n" +
+        "           Name like \"http-*\"'.  Has attribute names," +
+        " numbers, \"strings\",\n" +
+        "           + - * /, comparisons, 'like \"GLOB\"', 'in (...)'," +
+        " 'instanceof\n" +
+        "           \"CLASS\"', && || ! and parentheses.  Applies to" +
+        " listing,\n" +
+        "           --fanout, --aggregate, --dump, --list and" +
+        " --subscribe.\n" +
+        " --host-threads=N Count of hosts to work on at once when passed" +
+        " many\n" +
+        "           hosts (Default 16).\n" +
+        " --host-deadline=MS Milliseconds each host has, from when" +
+        " a worker picks\n" +
+        "           it up, to connect and run COMMAND (Default 30000)." +
+        "  Exits with\n" +
+        "           the count of hosts that failed or timed out" +
+        " (At most 255).\n" +
+        " --sweep-deadline=MS Milliseconds, from the start, all hosts" +
+        " have.  Hosts\n" +
+        "           running or not yet run when it passes fail" +
+        " (Default no limit).\n" +
+        " --connect-timeout=MS Give up on a connect that takes longer" +
+        " than MS.\n" +
+        " --timeout=MS Give up on any one remote call that takes longer" +
+        " than MS.\n" +
+        "           The connection is then torn down and later calls on it" +
+        " fail.\n" +
+        "           With either timeout, call count, timeouts and" +
+        " latency are\n" +
+        "           logged at FINE when the connection is closed" +
+        " (See --stats).\n" +
+        " --stats Log count and latency of remote calls by method," +
+        " by command\n" +
+        "           and by bean, and RMI bytes sent and received, at" +
+        " exit or, with\n" +
+        "           --interval or --serve, every sample or scrape.\n" +
+        " --slow=MS Hosts that take longer than this are listed as slow" +
+        " in the\n" +
+        "           summary (Default half the host deadline).\n" +
+        " --interval=SECONDS Sample the COMMAND attributes every" +
+        " SECONDS (May be\n" +
+        "           fractional) over one connection.  Numeric values," +
+        " and numeric\n" +
+        "           fields of composites, are reported with change and" +
+        " per-second\n" +
+        "           rate since last sample.  A drop is a negative" +
+        " change unless\n" +
+        "           the value is a counter.\n" +
+        " --counters=NAME[,NAME] With --interval, attributes or paths" +
+        " that only\n" +
+        "           count up: a drop is taken as a wrap past the" +
+        " type's maximum or\n" +
+        "           as a counter reset.  CollectionCount," +
+        " CollectionTime and the\n" +
+        "           other platform totals always are.\n" +
+        " --count=N Take N samples then stop (Default: run until" +
+        " killed).\n" +
+        " --list[=flat|tree] List names of all beans, or of beans" +
+        " that match\n" +
+        "           BEAN, sorted: a name a line (Default) or grouped by" +
+        " domain then\n" +
+        "           by key property with the count of beans in each" +
+        " group.\n" +
+        " --offset=N, --limit=N With --list, skip N beans, list at" +
+        " most N beans.\n" +
+        " --domains List domains, or domains with beans that match BEAN," +
+        " and the\n" +
+        "           count of beans in each.\n" +
+        " --dump[=FILE] Write all readable attributes of all beans, or of" +
+        " beans that\n" +
+        "           match BEAN, to FILE (Default stdout) as sorted" +
+        " 'BEAN<TAB>PATH<TAB>VALUE'\n" +
+        "           lines.  Beans are fetched in parallel by --fanout" +
+        " THREADS\n" +
+        "           workers.  Attributes that fail to read are left" +
+        " out.\n" +
+        " --diff=A,B Print beans and values that differ between dumps A" +
+        " and B.\n" +
+        "           Takes no USER:PASS or HOST:PORT.\n" +
+        " --record=FILE With --interval, append numeric samples to" +
+        " FILE, a\n" +
+        "           compact binary recording, rather than print them.\n" +
+        " --replay=FILE Print samples recorded in FILE.  Takes no" +
+        " USER:PASS or\n" +
+        "           HOST:PORT: pass '--replay=FILE [BEAN [ATTRIBUTE...]]'" +
+        " to print\n" +
+        "           only matching beans and attributes.  Prints CSV if" +
+        " --format=csv.\n" +
+        " --from=TIME, --to=TIME With --replay, print only samples taken" +
+        " in this\n" +
+        "           range.  TIME is milliseconds since the epoch or" +
+        "\n" +
+        "           'yyyy-MM-ddTHH:mm:ss'.\n" +
+        " --rules=FILE Check the rules in FILE, lines of" +
+        " 'warn|crit BEAN EXPRESSION'\n" +
+        "           such as 'crit java.lang:type=Memory" +
+        " HeapMemoryUsage.used /\n" +
+        "           HeapMemoryUsage.max > 0.9'.  Prints a status line and" +
+        " the checks\n" +
+        "           that fired, and exits 0 (OK), 1 (WARNING), 2" +
+        " (CRITICAL) or 3\n" +
+        "           (UNKNOWN).  With --interval, checks every interval" +
+        " and prints\n" +
+        "           checks whose status changed.  Takes no BEAN.\n" +
+        " --subscribe Print notifications emitted by BEAN, or by all" +
+        " beans that\n" +
+        "           match BEAN pattern, until --count notifications" +
+        " printed or killed.\n" +
+        " --types=TYPE[,TYPE] Only notifications whose type starts" +
+        " with a TYPE.\n" +
+        " --queue=N Notifications to buffer before overflow" +
+        " (Default 1024).\n" +
+        " --overflow=drop|block On overflow, drop notifications or" +
+        " stop fetching\n" +
+        "           them from remote side until there is room (Default" +
+        " drop).\n" +
+        " --report-interval=SECONDS How often to report received," +
+        " dropped and\n" +
+        "           queued counts (Default 30).\n" +
+        " --serve=PORT Serve BEAN COMMAND attributes on PORT over HTTP" +
+        " in\n" +
+        "           Prometheus text format.  Keeps connections open to" +
+        " all hosts\n" +
+        "           between scrapes.  Bean key properties, composite" +
+        " fields and, if\n" +
+        "           many hosts, the host are labels.\n" +
+        " --metrics=FILE With --serve, export the 'BEAN ATTRIBUTE...'" +
+        " listed a line\n" +
+        "           at a time in FILE rather than BEAN COMMAND.\n" +
+        " --cache-ttl=SECONDS With --serve, answer scrapes from the last" +
+        " collection\n" +
+        "           until it is this old (Default 0).  Scrapes that" +
+        " arrive during a\n" +
+        "           collection always share it.\n" +
+        " --session[=FILE] Keep one connection open and run a" +
+        " 'BEAN COMMAND...'\n" +
+        "           line at a time read from FILE or, if no FILE, from" +
+        " stdin.\n" +
+        "           Reports how long each line took. 'quit' ends the" +
+        " session.\n" +
         " USER:PASS Username and password. Required. If none, pass '-'.\n" +
         "           E.g. 'controlRole:secret'\n" +
         " HOST:PORT Hostname and port to connect to. Required." +
         " E.g. localhost:8081.\n" +
+        "           Or a JMX service URL such as" +
+        " 'service:jmx:rmi:///jndi/rmi://HOST:PORT/jmxrmi'\n" +
+        "           or 'service:jmx:rmi:///stub/...' to skip the" +
+        " registry lookup.\n" +
+        "           Or 'pid:PID' to attach to a JVM on this box by" +
+        " process id\n" +
+        "           (Needs a JDK).\n" +
         "           Lists registered beans if only USER:PASS and this" +
         " argument.\n" +
+        "           Pass a comma-delimited list, or '@FILE' to read a" +
+        " list from FILE,\n" +
+        "           to run against many hosts at once.\n" +
         " BEAN      Optional target bean name. If present we list" +
         " available operations\n" +
         "           and attributes.\n" +
@@ -101,7 +302,17 @@ public class Client {
         " Operations do not.\n" +
         "           Operations can take arguments by adding an '=' " +
         "followed by\n" +
-        "           comma-delimited params. Pass multiple " +
+        "           comma-delimited params. Array params take" +
+        " ';'-delimited\n" +
+        "           elements. To get one field of a composite, one row of a" +
+        " table or\n" +
+        "           one element of an array, pass a path:" +
+        " 'HeapMemoryUsage.used' or\n" +
+        "           'Attr[KEY,...].field' or 'Attr[INDEX]'." +
+        " To pick between overloaded operations," +
+        " name the\n" +
+        "           signature: e.g. 'op(int,java.lang.String)=1,two'.\n" +
+        "           Pass multiple " +
         "attributes/operations to run\n" +
         "           more than one per invocation. Use commands 'create' and " +
         "'destroy'\n" +
@@ -145,19 +356,241 @@ public class Client {
     
     private static final String CREATE_CMD_PREFIX = "create=";
     
+    /**
+     * Prefix that marks an argument as an option.  Options come before
+     * USER:PASS on the command line.
+     */
+    private static final String OPTION_PREFIX = "--";
+    
+    private static final String SESSION_OPTION = "session";
+    
+    private static final String FORMAT_OPTION = "format";
+    
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    
+    private static final String FANOUT_OPTION = "fanout";
+    
+    private static final int DEFAULT_FANOUT_THREADS = 4;
+    
+    private static final String AGGREGATE_OPTION = "aggregate";
+    
+    private static final String [] AGGREGATES =
+        {"sum", "min", "max", "avg", "count"};
+    
+    /**
+     * HOST:PORT argument that begins with this prefix names a file of
+     * hosts, one per line.
+     */
+    private static final String HOSTS_FILE_PREFIX = "@";
+    
+    /**
+     * HOST:PORT argument that begins with this prefix is a JMX service URL.
+     */
+    private static final String SERVICE_URL_PREFIX = "service:jmx:";
+    
+    /**
+     * HOST:PORT argument that begins with this prefix is the process id of
+     * a JVM on this box to attach to.
+     */
+    private static final String PID_PREFIX = "pid:";
+    
+    private static final String HOST_THREADS_OPTION = "host-threads";
+    
+    private static final int DEFAULT_HOST_THREADS = 16;
+    
+    private static final String HOST_DEADLINE_OPTION = "host-deadline";
+    
+    private static final int DEFAULT_HOST_DEADLINE = 30 * 1000;
+    
+    private static final String SWEEP_DEADLINE_OPTION = "sweep-deadline";
+    
+    /**
+     * Highest status a process can exit with.
+     */
+    private static final int MAX_EXIT_CODE = 255;
+    
+    private static final String SLOW_OPTION = "slow";
+    
+    private static final String CONNECT_TIMEOUT_OPTION = "connect-timeout";
+    
+    private static final String TIMEOUT_OPTION = "timeout";
+    
+    private static final String STATS_OPTION = "stats";
+    
+    private static final String INTERVAL_OPTION = "interval";
+    
+    private static final String COUNT_OPTION = "count";
+    
+    private static final String COUNTERS_OPTION = "counters";
+    
+    private static final String DUMP_OPTION = "dump";
+    
+    private static final String LIST_OPTION = "list";
+    
+    private static final String OFFSET_OPTION = "offset";
+    
+    private static final String LIMIT_OPTION = "limit";
+    
+    private static final String DOMAINS_OPTION = "domains";
+    
+    private static final String DIFF_OPTION = "diff";
+    
+    private static final String RECORD_OPTION = "record";
+    
+    private static final String REPLAY_OPTION = "replay";
+    
+    private static final String FROM_OPTION = "from";
+    
+    private static final String TO_OPTION = "to";
+    
+    private static final String RULES_OPTION = "rules";
+    
+    private static final String SUBSCRIBE_OPTION = "subscribe";
+    
+    private static final String TYPES_OPTION = "types";
+    
+    private static final String QUEUE_OPTION = "queue";
+    
+    private static final int DEFAULT_QUEUE_SIZE = 1024;
+    
+    private static final String OVERFLOW_OPTION = "overflow";
+    
+    private static final String REPORT_INTERVAL_OPTION = "report-interval";
+    
+    private static final long DEFAULT_REPORT_INTERVAL = 30 * 1000;
+    
+    private static final String VERSION_OPTION = "version";
+    
+    private static final String SERVE_OPTION = "serve";
+    
+    private static final String METRICS_OPTION = "metrics";
+    
+    private static final String CACHE_TTL_OPTION = "cache-ttl";
+    
+    private static final String WHERE_OPTION = "where";
+    
+    /**
+     * Options passed on the command line keyed by option name.  Options
+     * without a value map to the empty string.
+     */
+    private final Map options = new HashMap();
+    
+    /**
+     * MBeanInfo caches keyed by the connector they cache for.  Made when we
+     * connect and dropped in {@link #close(JMXConnector)}.
+     */
+    private final Map infoCaches = new HashMap();
+    
+    /**
+     * The caches of {@link #infoCaches} keyed by the server connection of
+     * their connector, which is what lookups have.
+     */
+    private final Map infoCachesByConnection = new HashMap();
+    
+    /**
+     * Format to write results in.  If null, results are logged as text.
+     * Writes nowhere itself; see {@link #newResultFormat()}.
+     */
+    private ResultFormat format = null;
+    
+    /**
+     * Where results are written.  If null, text results are logged.
+     */
+    private ResultSink sink = null;
+    
+    /**
+     * Pool to borrow connectors from.  If null, we connect per execute.
+     */
+    private ConnectionPool pool = null;
+    
+    /**
+     * Milliseconds to wait on a connect.  If <= 0, no limit.
+     */
+    private long connectTimeout = 0;
+    
+    /**
+     * Milliseconds to wait on a remote call.  If <= 0, no limit.
+     */
+    private long callTimeout = 0;
+    
+    /**
+     * Runs {@link #executeAsync(String, String, String, String, String[])}
+     * calls.  Made on first use.
+     */
+    private ExecutorService async = null;
+    
+    /**
+     * Where to record remote calls.  If null, calls are not recorded.
+     */
+    private CallStats stats = null;
+    
+    /**
+     * Filter the remote side applies to bean queries.  If null, beans are
+     * not filtered.
+     */
+    private QueryExp query = null;
+    
+    /**
+     * Logging configuration main installs: that of the JDK's default
+     * logging.properties but for our formatter.
+     */
+    private static final String LOGGING_CONFIGURATION =
+        "handlers=java.util.logging.ConsoleHandler\n" +
+        ".level=INFO\n" +
+        "java.util.logging.ConsoleHandler.level=INFO\n" +
+        "java.util.logging.ConsoleHandler.formatter=" +
+            OneLineSimpleLogger.class.getName() + "\n";
+    
+    /**
+     * Status for main to exit with.
+     */
+    private int exitCode = 0;
+    
 	public static void main(String[] args) throws Exception {
         Client client = new Client();
-        // Set the logger to use our all-on-one-line formatter.
-        Logger l = Logger.getLogger("");
-        Handler [] hs = l.getHandlers();
+        configureLogging();
+        client.execute(args);
+        if (client.exitCode != 0) {
+            System.exit(client.exitCode);
+        }
+	}
+    
+    /**
+     * Set the logger to use our all-on-one-line formatter.
+     * <p>Unless the user gave their own logging configuration, we do it by
+     * configuration so the console handler and its formatter are only made
+     * when the first record is logged; a one-shot run that logs nothing
+     * never makes them.  Otherwise we set the formatter on the console
+     * handlers the user configured.
+     * @throws IOException
+     */
+    protected static void configureLogging() throws IOException {
+        if (System.getProperty("java.util.logging.config.file") == null &&
+                System.getProperty("java.util.logging.config.class") ==
+                    null) {
+            LogManager.getLogManager().readConfiguration(
+                new ByteArrayInputStream(LOGGING_CONFIGURATION.
+                    getBytes("ISO-8859-1")));
+            return;
+        }
+        Handler [] hs = Logger.getLogger("").getHandlers();
         for (int i = 0; i < hs.length; i++) {
-            Handler h = hs[0];
+            Handler h = hs[i];
             if (h instanceof ConsoleHandler) {
-                h.setFormatter(client.new OneLineSimpleLogger());
+                h.setFormatter(new OneLineSimpleLogger());
             }
         }
-        client.execute(args);
-	}
+    }
+    
+    /**
+     * @return Version from the jar manifest or 'unknown' if not run from
+     * the jar.
+     */
+    protected static String getVersion() {
+        Package p = Client.class.getPackage();
+        String version = (p == null)? null: p.getImplementationVersion();
+        return "cmdline-jmxclient " + ((version == null)? "unknown": version);
+    }
     
     protected static void usage() {
         usage(0, null);
@@ -213,62 +646,847 @@ public class Client {
     protected JMXConnector getJMXConnector(final String hostport,
             final String login, final String password)
     throws IOException {
-        // Make up the jmx rmi URL and get a connector.
-        JMXServiceURL rmiurl = new JMXServiceURL("service:jmx:rmi://"
-            + hostport + "/jndi/rmi://" + hostport + "/jmxrmi");
-        return JMXConnectorFactory.connect(rmiurl,
-            formatCredentials(login, password));
+        return getJMXConnector(hostport, login, password, false);
+    }
+    
+    /**
+     * Connect.  If a connect or call timeout is set, or if
+     * <code>abortable</code>, the connect and the calls made over the
+     * returned connector are bounded by a {@link DeadlineConnector}.
+     * @param hostport 'host:port' combination.
+     * @param login RMI login to use.
+     * @param password RMI password to use.
+     * @param abortable If true, interrupting a thread stuck in connect or in
+     * a call abandons it and tears down the connection even when no timeout
+     * is set.
+     * @return Connector.
+     * @throws IOException
+     */
+    protected JMXConnector getJMXConnector(final String hostport,
+            final String login, final String password,
+            final boolean abortable)
+    throws IOException {
+        return getJMXConnector(hostport, login, password, abortable,
+            this.connectTimeout);
+    }
+    
+    /**
+     * @param connectTimeout Milliseconds to wait on the connect rather than
+     * the connect timeout set on this Client.  If <= 0, no limit.
+     * @see #getJMXConnector(String, String, String, boolean)
+     */
+    protected JMXConnector getJMXConnector(final String hostport,
+            final String login, final String password,
+            final boolean abortable, final long connectTimeout)
+    throws IOException {
+        JMXServiceURL rmiurl = getJMXServiceURL(hostport);
+        Map env = formatCredentials(login, password);
+        JMXConnector jmxc = null;
+        if (!abortable && connectTimeout <= 0 && this.callTimeout <= 0) {
+            jmxc = JMXConnectorFactory.connect(rmiurl, env);
+        } else {
+            jmxc = new DeadlineConnector(DeadlineConnector.connect(rmiurl,
+                env, connectTimeout), hostport, this.callTimeout);
+        }
+        if (this.stats != null) {
+            jmxc = new InstrumentedConnector(jmxc, hostport, this.stats);
+        }
+        addMBeanInfoCache(jmxc);
+        return jmxc;
+    }
+    
+    /**
+     * @return Where results are written or null if they are logged.
+     */
+    ResultSink getResultSink() {
+        return this.sink;
+    }
+    
+    /**
+     * @return Format that writes each result it is flushed after as a
+     * record of our sink, or null if results are text.  Not thread-safe so
+     * each printer gets its own.
+     */
+    ResultFormat newResultFormat() {
+        return (this.format == null)? null:
+            this.format.newInstance(new ResultSink.RecordWriter(this.sink));
+    }
+    
+    /**
+     * @return Where remote calls are recorded or null if not recording.
+     */
+    CallStats getStats() {
+        return this.stats;
+    }
+    
+    /**
+     * @param hostport 'host:port', a JMX service URL or 'pid:PID'.
+     * @return URL to connect to.  For 'host:port', the default agent's
+     * RMI registry entry.  For 'pid:PID', the local connector of the
+     * JVM with that process id.
+     * @throws IOException
+     */
+    protected JMXServiceURL getJMXServiceURL(final String hostport)
+    throws IOException {
+        if (hostport.startsWith(SERVICE_URL_PREFIX)) {
+            return new JMXServiceURL(hostport);
+        }
+        if (hostport.startsWith(PID_PREFIX)) {
+            return new JMXServiceURL(LocalAttach.getConnectorAddress(
+                hostport.substring(PID_PREFIX.length())));
+        }
+        // Make up the jmx rmi URL.
+        return new JMXServiceURL("service:jmx:rmi://" + hostport +
+            "/jndi/rmi://" + hostport + "/jmxrmi");
+    }
+    
+    /**
+     * @param connectTimeout Milliseconds to wait on a connect.  If <= 0,
+     * no limit.
+     */
+    public void setConnectTimeout(final long connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+    
+    public long getConnectTimeout() {
+        return this.connectTimeout;
+    }
+    
+    /**
+     * @param callTimeout Milliseconds to wait on any one remote call.  A
+     * call that runs over fails with an InterruptedIOException and its
+     * connection is torn down.  If <= 0, no limit.
+     */
+    public void setCallTimeout(final long callTimeout) {
+        this.callTimeout = callTimeout;
+    }
+    
+    public long getCallTimeout() {
+        return this.callTimeout;
+    }
+    
+    /**
+     * @param query Filter the remote side applies when we query beans by
+     * name or pattern; only beans that pass are returned.  If null, beans
+     * are not filtered.
+     * @see QueryFilter
+     */
+    public void setQuery(final QueryExp query) {
+        this.query = query;
+    }
+    
+    public QueryExp getQuery() {
+        return this.query;
+    }
+    
+    /**
+     * Pull leading '--name[=value]' options out of <code>args</code>.
+     * @param args Cmdline args.
+     * @return Count of options found at the head of <code>args</code>.
+     */
+    protected int parseOptions(final String [] args) {
+        int count = 0;
+        for (; count < args.length && args[count].startsWith(OPTION_PREFIX);
+                count++) {
+            String option = args[count].substring(OPTION_PREFIX.length());
+            int index = option.indexOf('=');
+            if (index > 0) {
+                this.options.put(option.substring(0, index),
+                    option.substring(index + 1));
+            } else {
+                this.options.put(option, "");
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * @param name Option name.
+     * @param defaultValue Value to use if option not passed or passed
+     * without a value.
+     * @return Option value as an int.
+     */
+    protected int getIntOption(final String name, final int defaultValue) {
+        String value = getOption(name);
+        return notEmpty(value)? Integer.parseInt(value): defaultValue;
+    }
+    
+    /**
+     * @param name Name of option whose value is seconds (May be fractional).
+     * @return Option value converted to milliseconds.
+     */
+    protected long getMillisOption(final String name) {
+        String value = getOption(name);
+        if (!notEmpty(value)) {
+            throw new IllegalArgumentException("--" + name +
+                " takes a value.");
+        }
+        return Math.round(Double.parseDouble(value) * 1000);
+    }
+    
+    protected boolean hasOption(final String name) {
+        return this.options.containsKey(name);
+    }
+    
+    /**
+     * @param name Option name.
+     * @return Value of option or null if option not passed (Empty string if
+     * option passed without a value).
+     */
+    protected String getOption(final String name) {
+        return (String)this.options.get(name);
+    }
+    
+    /**
+     * Parse the HOST:PORT argument.  May be a comma-delimited list of
+     * 'host:port' or, if it begins with '@', the name of a file with a
+     * 'host:port' per line (Blank lines and lines that begin with '#' are
+     * skipped).
+     * @param hostport HOST:PORT argument.
+     * @return List of 'host:port' strings.
+     * @throws IOException
+     */
+    protected List parseHosts(final String hostport) throws IOException {
+        List hosts = new ArrayList();
+        if (!hostport.startsWith(HOSTS_FILE_PREFIX)) {
+            String [] hs = hostport.split(",");
+            for (int i = 0; i < hs.length; i++) {
+                if (notEmpty(hs[i].trim())) {
+                    hosts.add(hs[i].trim());
+                }
+            }
+            return hosts;
+        }
+        BufferedReader reader = new BufferedReader(
+            new FileReader(hostport.substring(HOSTS_FILE_PREFIX.length())));
+        try {
+            for (String line = reader.readLine(); line != null;
+                    line = reader.readLine()) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith("#")) {
+                    hosts.add(line);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return hosts;
+    }
+    
+    /**
+     * @param beanname Name or pattern of beans to export.
+     * @param command Attributes to export.
+     * @return List with one Object [] of ObjectName and attribute names.
+     * @throws MalformedObjectNameException
+     */
+    protected List parseMetrics(final String beanname,
+            final String [] command)
+    throws MalformedObjectNameException {
+        if (!notEmpty(beanname) || command == null) {
+            usage(1, "Pass BEAN and attributes, or --metrics, to serve.");
+        }
+        List metrics = new ArrayList();
+        metrics.add(new Object [] {getObjectName(beanname), command});
+        return metrics;
+    }
+    
+    /**
+     * @param file File of 'BEAN ATTRIBUTE...' lines (Blank lines and lines
+     * that begin with '#' are skipped).
+     * @return List of Object [] of ObjectName and attribute names.
+     * @throws IOException
+     * @throws MalformedObjectNameException
+     */
+    protected List parseMetrics(final String file)
+    throws IOException, MalformedObjectNameException {
+        List metrics = new ArrayList();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            for (String line = reader.readLine(); line != null;
+                    line = reader.readLine()) {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) {
+                    continue;
+                }
+                String [] tokens = line.split("\\s+");
+                if (tokens.length < 2) {
+                    throw new IllegalArgumentException(file +
+                        ": No attributes: " + line);
+                }
+                String [] attributes = new String[tokens.length - 1];
+                System.arraycopy(tokens, 1, attributes, 0,
+                    attributes.length);
+                metrics.add(new Object [] {new ObjectName(tokens[0]),
+                    attributes});
+            }
+        } finally {
+            reader.close();
+        }
+        return metrics;
+    }
+    
+    /**
+     * @param types Comma-delimited list of notification type prefixes.
+     * @return Filter that enables <code>types</code> or null if no types.
+     */
+    protected NotificationFilter getNotificationFilter(final String types) {
+        if (!notEmpty(types)) {
+            return null;
+        }
+        NotificationFilterSupport filter = new NotificationFilterSupport();
+        String [] ts = types.split(",");
+        for (int i = 0; i < ts.length; i++) {
+            filter.enableType(ts[i].trim());
+        }
+        return filter;
+    }
+    
+    /**
+     * @param name Name of an option of comma-delimited values.
+     * @return Set of the trimmed values, empty if the option is not set.
+     */
+    protected Set getSetOption(final String name) {
+        Set values = new HashSet();
+        if (notEmpty(getOption(name))) {
+            String [] vs = getOption(name).split(",");
+            for (int i = 0; i < vs.length; i++) {
+                values.add(vs[i].trim());
+            }
+        }
+        return values;
+    }
+    
+    protected ObjectName getObjectName(final String beanname)
+    throws MalformedObjectNameException, NullPointerException {
+        return notEmpty(beanname)? new ObjectName(beanname): null;
+    }
+    
+    /**
+     * Version of execute called from the cmdline.
+     * Prints out result of execution on stdout.
+     * Parses cmdline args.  Then calls {@link #execute(String, String,
+     * String, String, String[], boolean)}.
+     * @param args Cmdline args.
+     * @throws Exception
+     */
+    protected void execute(final String [] args)
+    throws Exception {
+        // Process command-line.
+        int offset = parseOptions(args);
+        if (hasOption(VERSION_OPTION)) {
+            System.out.println(getVersion());
+            return;
+        }
+        this.connectTimeout = getIntOption(CONNECT_TIMEOUT_OPTION, 0);
+        this.callTimeout = getIntOption(TIMEOUT_OPTION, 0);
+        if (hasOption(WHERE_OPTION)) {
+            try {
+                this.query = QueryFilter.compile(getOption(WHERE_OPTION));
+            } catch (IllegalArgumentException e) {
+                usage(1, "Bad --where: " + e.getMessage());
+            }
+        }
+        if (hasOption(REPLAY_OPTION)) {
+            replay(args, offset);
+            return;
+        }
+        if (hasOption(DIFF_OPTION)) {
+            String [] files = getOption(DIFF_OPTION).split(",");
+            if (files.length != 2) {
+                usage(1, "Pass two dumps to diff: --diff=A,B");
+            }
+            Dump.diff(files[0], files[1], new BufferedWriter(
+                new OutputStreamWriter(System.out), OUTPUT_BUFFER_SIZE));
+            return;
+        }
+        // Text results go where they went when they were logged.
+        this.format = ResultFormat.getInstance(getOption(FORMAT_OPTION),
+            null);
+        this.sink = new ResultSink((this.format == null)?
+                new OutputStreamWriter(System.err):
+                new OutputStreamWriter(System.out),
+            this.format == null, ResultSink.DEFAULT_FLUSH_SIZE,
+            ResultSink.DEFAULT_FLUSH_INTERVAL);
+        if (hasOption(STATS_OPTION)) {
+            this.stats = new CallStats();
+            CountingSocketFactory.install();
+        }
+        try {
+            execute(args, offset);
+        } finally {
+            this.sink.close();
+            if (this.stats != null) {
+                this.stats.report("exit");
+                logger.info(this.sink.getStats());
+            }
+        }
+    }
+    
+    /**
+     * Run what the cmdline asks for against one or many hosts.
+     * @param args Cmdline args.
+     * @param offset Index of first arg after the options.
+     * @throws Exception
+     */
+    protected void execute(final String [] args, final int offset)
+    throws Exception {
+        if (args.length - offset < 2) {
+            usage();
+        }
+        String userpass = args[offset];
+        String hostport = args[offset + 1];
+        String beanname = null;
+        String [] command = null;
+        if (args.length > offset + 2) {
+            beanname = args[offset + 2];
+        }
+        if (args.length > offset + 3) {
+            command = new String [args.length - (offset + 3)];
+            for (int i = offset + 3; i < args.length; i++) {
+                command[i - (offset + 3)] = args[i];
+            }
+        }
+        String [] loginPassword = parseUserpass(userpass);
+        String login = (loginPassword == null)? null: loginPassword[0];
+        String password = (loginPassword == null)? null: loginPassword[1];
+        List hosts = parseHosts(hostport);
+        if (hasOption(SERVE_OPTION)) {
+            List metrics = hasOption(METRICS_OPTION)?
+                parseMetrics(getOption(METRICS_OPTION)):
+                parseMetrics(beanname, command);
+            new Exporter(this, hosts, login, password, metrics,
+                hasOption(CACHE_TTL_OPTION)?
+                    getMillisOption(CACHE_TTL_OPTION): 0,
+                getIntOption(HOST_THREADS_OPTION, DEFAULT_HOST_THREADS)).
+                    run(getIntOption(SERVE_OPTION, 0));
+            return;
+        }
+        if (hasOption(RULES_OPTION)) {
+            if (hosts.size() != 1 || beanname != null) {
+                usage(Rules.UNKNOWN, "Pass one host and no BEAN to check" +
+                    " rules.");
+            }
+            this.exitCode = checkRules((String)hosts.get(0), login,
+                password, Rules.parse(getOption(RULES_OPTION)));
+            return;
+        }
+        if (hosts.size() > 1 || hostport.startsWith(HOSTS_FILE_PREFIX)) {
+            long deadline = getIntOption(HOST_DEADLINE_OPTION,
+                DEFAULT_HOST_DEADLINE);
+            int failed = new MultiHost(this, login, password, beanname,
+                command, getIntOption(HOST_THREADS_OPTION,
+                    DEFAULT_HOST_THREADS),
+                deadline, getIntOption(SWEEP_DEADLINE_OPTION, 0),
+                getIntOption(SLOW_OPTION, (int)deadline / 2)).
+                    run(hosts);
+            this.exitCode = Math.min(failed, MAX_EXIT_CODE);
+            return;
+        }
+        if (hasOption(SUBSCRIBE_OPTION)) {
+            JMXConnector jmxc = getJMXConnector(hostport, login, password);
+            try {
+                new NotificationTail(this, jmxc, getObjectName(beanname),
+                    getNotificationFilter(getOption(TYPES_OPTION)),
+                    getIntOption(QUEUE_OPTION, DEFAULT_QUEUE_SIZE),
+                    "block".equals(getOption(OVERFLOW_OPTION))).run(
+                        getIntOption(COUNT_OPTION, 0),
+                        hasOption(REPORT_INTERVAL_OPTION)?
+                            getMillisOption(REPORT_INTERVAL_OPTION):
+                            DEFAULT_REPORT_INTERVAL);
+            } finally {
+                close(jmxc);
+            }
+            return;
+        }
+        if (hasOption(INTERVAL_OPTION)) {
+            if (command == null) {
+                usage(1, "Pass attributes to sample.");
+            }
+            Recorder recorder = hasOption(RECORD_OPTION)?
+                new Recorder(new File(getOption(RECORD_OPTION))): null;
+            JMXConnector jmxc = getJMXConnector(hostport, login, password);
+            try {
+                new Sampler(jmxc.getMBeanServerConnection(),
+                    getObjectName(beanname), command,
+                    getMillisOption(INTERVAL_OPTION),
+                    getIntOption(COUNT_OPTION, 0), recorder,
+                    this.stats, this.sink, newResultFormat(),
+                    getSetOption(COUNTERS_OPTION)).run();
+            } finally {
+                close(jmxc);
+                if (recorder != null) {
+                    recorder.close();
+                }
+            }
+            return;
+        }
+        if (hasOption(DUMP_OPTION)) {
+            String file = getOption(DUMP_OPTION);
+            Writer writer = new BufferedWriter(notEmpty(file)?
+                (Writer)new FileWriter(file):
+                new OutputStreamWriter(System.out), OUTPUT_BUFFER_SIZE);
+            JMXConnector jmxc = getJMXConnector(hostport, login, password);
+            try {
+                new Dump(this, jmxc.getMBeanServerConnection(),
+                    getIntOption(FANOUT_OPTION, DEFAULT_FANOUT_THREADS)).
+                        run(getObjectName(beanname), writer);
+            } finally {
+                writer.close();
+                close(jmxc);
+            }
+            return;
+        }
+        if (hasOption(LIST_OPTION) || hasOption(DOMAINS_OPTION)) {
+            String list = getOption(LIST_OPTION);
+            if (notEmpty(list) && !list.equals("flat") &&
+                    !list.equals("tree")) {
+                usage(1, "Pass --list=flat or --list=tree.");
+            }
+            Writer writer = new BufferedWriter(
+                new OutputStreamWriter(System.out), OUTPUT_BUFFER_SIZE);
+            JMXConnector jmxc = getJMXConnector(hostport, login, password);
+            try {
+                Listing listing = new Listing(
+                    jmxc.getMBeanServerConnection(), this.query);
+                if (hasOption(DOMAINS_OPTION)) {
+                    listing.domains(getObjectName(beanname), writer);
+                } else {
+                    listing.names(getObjectName(beanname),
+                        "tree".equals(list),
+                        getIntOption(OFFSET_OPTION, 0),
+                        getIntOption(LIMIT_OPTION, 0), writer);
+                }
+            } finally {
+                writer.flush();
+                close(jmxc);
+            }
+            return;
+        }
+        if (hasOption(SESSION_OPTION)) {
+            session(hostport, login, password, getOption(SESSION_OPTION));
+            return;
+        }
+        if (hasOption(AGGREGATE_OPTION)) {
+            String function = getOption(AGGREGATE_OPTION);
+            if (command == null ||
+                    !Arrays.asList(AGGREGATES).contains(function)) {
+                usage(1, "Pass one of " + Arrays.asList(AGGREGATES) +
+                    " and commands to aggregate.");
+            }
+            String [] labels = new String[command.length];
+            for (int i = 0; i < command.length; i++) {
+                labels[i] = function + "(" + command[i] + ")";
+            }
+            JMXConnector jmxc = getJMXConnector(hostport, login, password);
+            try {
+                printResults(null, beanname, labels, aggregate(function,
+                    doBeansInParallel(jmxc.getMBeanServerConnection(),
+                        getObjectName(beanname), command,
+                        getIntOption(FANOUT_OPTION, DEFAULT_FANOUT_THREADS)),
+                    command.length));
+            } finally {
+                close(jmxc);
+            }
+            return;
+        }
+        if (hasOption(FANOUT_OPTION)) {
+            JMXConnector jmxc = getJMXConnector(hostport, login, password);
+            try {
+                runCommand(jmxc.getMBeanServerConnection(), beanname,
+                    command);
+            } finally {
+                close(jmxc);
+            }
+            return;
+        }
+        printResults(null, beanname, command, execute(hostport, login,
+            password, beanname, command));
+    }
+    
+    /**
+     * Check <code>rules</code> once or, if the interval option, every
+     * interval.  Failure to connect is reported as UNKNOWN.
+     * @param hostport 'host:port' combination.
+     * @param login RMI login to use.
+     * @param password RMI password to use.
+     * @param rules Rules to check.
+     * @return Status of last check.
+     * @throws Exception
+     */
+    protected int checkRules(final String hostport, final String login,
+            final String password, final Rules rules)
+    throws Exception {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(System.out),
+            OUTPUT_BUFFER_SIZE);
+        try {
+            JMXConnector jmxc = null;
+            try {
+                jmxc = getJMXConnector(hostport, login, password);
+            } catch (IOException e) {
+                writer.write("JMX " + Rules.STATUS[Rules.UNKNOWN] + " - " +
+                    hostport + ": " + e + "\n");
+                return Rules.UNKNOWN;
+            }
+            try {
+                return rules.run(jmxc.getMBeanServerConnection(),
+                    hasOption(INTERVAL_OPTION)?
+                        getMillisOption(INTERVAL_OPTION): 0,
+                    getIntOption(COUNT_OPTION, 0), writer);
+            } finally {
+                close(jmxc);
+            }
+        } finally {
+            writer.flush();
+        }
+    }
+    
+    /**
+     * Print samples from the recording named by the replay option.
+     * @param args Cmdline args.
+     * @param offset Index of first arg after the options: optional bean
+     * pattern then attribute names.
+     * @throws Exception
+     */
+    protected void replay(final String [] args, final int offset)
+    throws Exception {
+        ObjectName pattern = (args.length > offset)?
+            getObjectName(args[offset]): null;
+        String [] attributes = null;
+        if (args.length > offset + 1) {
+            attributes = new String[args.length - (offset + 1)];
+            System.arraycopy(args, offset + 1, attributes, 0,
+                attributes.length);
+        }
+        Replay replay = new Replay.Query(new File(getOption(REPLAY_OPTION)),
+            hasOption(FROM_OPTION)? parseTime(getOption(FROM_OPTION)):
+                Long.MIN_VALUE,
+            hasOption(TO_OPTION)? parseTime(getOption(TO_OPTION)):
+                Long.MAX_VALUE,
+            pattern, attributes,
+            ResultFormat.CSV.equals(getOption(FORMAT_OPTION)),
+            new BufferedWriter(new OutputStreamWriter(System.out),
+                OUTPUT_BUFFER_SIZE));
+        try {
+            replay.read();
+        } finally {
+            replay.close();
+        }
+    }
+    
+    /**
+     * @param time Milliseconds since the epoch or 'yyyy-MM-ddTHH:mm:ss'
+     * local time.
+     * @return Milliseconds since the epoch.
+     * @throws ParseException
+     */
+    protected static long parseTime(final String time)
+    throws ParseException {
+        if (time.matches("-?\\d+")) {
+            return Long.parseLong(time);
+        }
+        return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").parse(time).
+            getTime();
+    }
+    
+    /**
+     * Run <code>command</code> against <code>beanname</code> and print
+     * results.
+     * @param mbsc Server connection.
+     * @param beanname Name or pattern of bean(s) to run command against.
+     * @param command Commands to run (May be null).
+     * @throws Exception
+     */
+    protected void runCommand(final MBeanServerConnection mbsc,
+            final String beanname, final String [] command)
+    throws Exception {
+        printResults(null, beanname, command,
+            doCommand(mbsc, beanname, command));
+    }
+    
+    /**
+     * Run <code>command</code> against <code>beanname</code>.  Fans out
+     * over all matched beans if so configured.
+     * @param mbsc Server connection.
+     * @param beanname Name or pattern of bean(s) to run command against.
+     * @param command Commands to run (May be null).
+     * @return Array of results -- one per command -- or, if we fanned out,
+     * a Map of bean name to array of results.
+     * @throws Exception
+     */
+    protected Object doCommand(final MBeanServerConnection mbsc,
+            final String beanname, final String [] command)
+    throws Exception {
+        if (hasOption(FANOUT_OPTION) && command != null) {
+            return doBeansInParallel(mbsc, getObjectName(beanname), command,
+                getIntOption(FANOUT_OPTION, DEFAULT_FANOUT_THREADS));
+        }
+        return doBeans(mbsc, getObjectName(beanname), command, false);
+    }
+    
+    /**
+     * Print out results on stdout. Only log if a result.
+     * @param command Commands run (May be null).
+     * @param result Results of running <code>command</code>.
+     */
+    protected void printResults(final String [] command,
+            final Object [] result) {
+        printResults(null, null, command, result);
     }
     
-    protected ObjectName getObjectName(final String beanname)
-    throws MalformedObjectNameException, NullPointerException {
-        return notEmpty(beanname)? new ObjectName(beanname): null;
+    /**
+     * Print out what {@link #doCommand(MBeanServerConnection, String,
+     * String[])} returned.
+     * @param host Host results came from (May be null).
+     * @param bean Name of bean run against (May be null).
+     * @param command Commands run (May be null).
+     * @param result Array of results or, if we fanned out, Map of bean name
+     * to array of results.
+     */
+    protected void printResults(final String host, final String bean,
+            final String [] command, final Object result) {
+        ResultFormat f = newResultFormat();
+        if (!(result instanceof Map)) {
+            printResults(host, bean, false, command, (Object [])result, f);
+        } else {
+            for (Iterator i = ((Map)result).entrySet().iterator();
+                    i.hasNext();) {
+                Map.Entry e = (Map.Entry)i.next();
+                if (e.getValue() instanceof Throwable) {
+                    logger.severe(((host == null)? "": host + " ") +
+                        e.getKey() + ": " + e.getValue());
+                } else {
+                    printResults(host, (String)e.getKey(), true, command,
+                        (Object [])e.getValue(), f);
+                }
+            }
+        }
     }
     
     /**
-     * Version of execute called from the cmdline.
-     * Prints out result of execution on stdout.
-     * Parses cmdline args.  Then calls {@link #execute(String, String,
-     * String, String, String[], boolean)}.
-     * @param args Cmdline args.
-     * @throws Exception
+     * Print out results on stdout. Only log if a result.
+     * @param host Host results came from (May be null).
+     * @param bean Name of bean run against (May be null).
+     * @param labelBean If true and logging results as text, put the bean
+     * name before each result.
+     * @param command Commands run (May be null).
+     * @param result Results of running <code>command</code>.
+     * @param f Format to write results in, each as a record of our sink.
+     * If null, results are logged as text.
      */
-    protected void execute(final String [] args)
-    throws Exception {
-        // Process command-line.
-        if (args.length == 0 || args.length == 1) {
-            usage();
+    protected void printResults(final String host, final String bean,
+            final boolean labelBean, final String [] command,
+            final Object [] result, final ResultFormat f) {
+        if (result == null) {
+            return;
         }
-        String userpass = args[0];
-        String hostport = args[1];
-        String beanname = null;
-        String [] command = null;
-        if (args.length > 2) {
-            beanname = args[2];
+        if (f != null) {
+            try {
+                for (int i = 0; i < result.length; i++) {
+                    if (result[i] != null) {
+                        try {
+                            f.write(host, bean, (command == null)? null:
+                                command[i], result[i]);
+                        } finally {
+                            // Ends the record even if the write failed.
+                            f.flush();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                logger.severe("Failed write of results: " + e);
+            }
+            return;
         }
-        if (args.length > 3) {
-            command = new String [args.length - 3];
-            for (int i = 3; i < args.length; i++) {
-                command[i - 3] = args[i];
+        String prefix = ((host == null)? "": host + " ") +
+            ((labelBean && bean != null)? bean + " ": "");
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] != null && result[i].toString().length() > 0) {
+                if (command != null) {
+                    ResultSink.print(this.sink, logger,
+                        prefix + command[i] + ": " + result[i]);
+                } else {
+                    ResultSink.print(this.sink, logger,
+                        prefix + "\n" + result[i].toString());
+                }
             }
         }
-        String [] loginPassword = parseUserpass(userpass);
-        Object [] result = execute(hostport,
-            ((loginPassword == null)? null: loginPassword[0]),
-            ((loginPassword == null)? null: loginPassword[1]), beanname,
-            command);
-        // Print out results on stdout. Only log if a result.
-        if (result != null) {
-            for (int i = 0; i < result.length; i++) {
-                if (result[i] != null && result[i].toString().length() > 0) {
-                    if (command != null) {
-                        logger.info(command[i] + ": " + result[i]);
-                    } else {
-                        logger.info("\n" + result[i].toString());
+    }
+    
+    /**
+     * Run a session: open one connection and run every line read from
+     * <code>script</code> against it.  Lines are 'BEAN [COMMAND...]' as on
+     * the command line.  Blank lines and lines that begin with '#' are
+     * skipped.  Saves paying for a JVM launch and an RMI connection setup
+     * per command.
+     * @param hostport 'host:port' combination.
+     * @param login RMI login to use.
+     * @param password RMI password to use.
+     * @param script File of lines to run.  If null or empty, read stdin.
+     * @throws Exception
+     */
+    protected void session(final String hostport, final String login,
+            final String password, final String script)
+    throws Exception {
+        BufferedReader reader = new BufferedReader(notEmpty(script)?
+            new FileReader(script): new InputStreamReader(System.in));
+        try {
+            JMXConnector jmxc = getJMXConnector(hostport, login, password);
+            try {
+                watchMBeanInfo(jmxc);
+                MBeanServerConnection mbsc = jmxc.getMBeanServerConnection();
+                for (String line = reader.readLine(); line != null;
+                        line = reader.readLine()) {
+                    line = line.trim();
+                    if (line.length() == 0 || line.startsWith("#")) {
+                        continue;
                     }
+                    if (line.equals("quit") || line.equals("exit")) {
+                        break;
+                    }
+                    sessionLine(mbsc, line);
                 }
+            } finally {
+                close(jmxc);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+    
+    /**
+     * Run one session line.  Failures are logged rather than thrown so
+     * a bad line does not end the session.
+     * @param mbsc Server connection.
+     * @param line Line of form 'BEAN [COMMAND...]'.
+     */
+    protected void sessionLine(final MBeanServerConnection mbsc,
+            final String line) {
+        String [] tokens = line.split("\\s+");
+        String [] command = null;
+        if (tokens.length > 1) {
+            command = new String[tokens.length - 1];
+            System.arraycopy(tokens, 1, command, 0, command.length);
+        }
+        long start = System.nanoTime();
+        try {
+            runCommand(mbsc, tokens[0], command);
+            if (this.sink != null) {
+                // Have results out ahead of the timing.
+                this.sink.sync();
             }
+        } catch (Exception e) {
+            logger.severe(line + ": " + e);
         }
+        logger.info(line + " took " + formatMillis(System.nanoTime() - start));
+    }
+    
+    /**
+     * @param nanos Elapsed nanoseconds.
+     * @return <code>nanos</code> as milliseconds to three decimal places.
+     */
+    protected static String formatMillis(final long nanos) {
+        return String.format("%.3fms", new Object[] {
+            Double.valueOf(nanos / 1000000.0d)});
     }
     
     protected Object [] execute(final String hostport, final String login,
@@ -306,17 +1524,220 @@ public class Client {
             final String password, final String beanname,
             final String [] command, final boolean oneBeanOnly)
     throws Exception {
+        if (this.pool != null) {
+            return executePooled(hostport, login, password, beanname,
+                command, oneBeanOnly);
+        }
         JMXConnector jmxc = getJMXConnector(hostport, login, password);
         Object [] result = null;
         try {
             result = doBeans(jmxc.getMBeanServerConnection(),
                 getObjectName(beanname), command, oneBeanOnly);
         } finally {
-            jmxc.close();
+            close(jmxc);
         }
         return result;
     }
     
+    /**
+     * Execute command against remote JMX agent on another thread.
+     * Cancelling the returned Future with interrupt abandons a connect or
+     * remote call in progress and tears down its connection.  If a pool is
+     * set, its connectors are only torn down if a call timeout is set.
+     * @param hostport 'host:port' combination.
+     * @param login RMI login to use.
+     * @param password RMI password to use.
+     * @param beanname Name of remote bean to run command against.
+     * @param command Array of commands to run.
+     * @return Future whose value is the array of results -- one per
+     * command.
+     */
+    public Future executeAsync(final String hostport, final String login,
+            final String password, final String beanname,
+            final String [] command) {
+        ExecutorService executor = null;
+        synchronized (this) {
+            if (this.async == null) {
+                this.async = Executors.newCachedThreadPool(
+                    new DaemonThreadFactory("async"));
+            }
+            executor = this.async;
+        }
+        return executor.submit(new Callable() {
+            public Object call() throws Exception {
+                if (Client.this.pool != null) {
+                    return executePooled(hostport, login, password,
+                        beanname, command, false);
+                }
+                JMXConnector jmxc = getJMXConnector(hostport, login,
+                    password, true);
+                try {
+                    return doBeans(jmxc.getMBeanServerConnection(),
+                        getObjectName(beanname), command, false);
+                } finally {
+                    close(jmxc);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Execute command over a connector borrowed from our pool.  The
+     * connector is given back for reuse unless the connection failed.
+     * @see #execute(String, String, String, String, String[], boolean)
+     */
+    protected Object [] executePooled(final String hostport,
+            final String login, final String password, final String beanname,
+            final String [] command, final boolean oneBeanOnly)
+    throws Exception {
+        JMXConnector jmxc = this.pool.borrow(hostport, login, password);
+        try {
+            return doBeans(jmxc.getMBeanServerConnection(),
+                getObjectName(beanname), command, oneBeanOnly);
+        } catch (IOException e) {
+            this.pool.invalidate(jmxc);
+            jmxc = null;
+            throw e;
+        } finally {
+            if (jmxc != null) {
+                this.pool.release(jmxc);
+            }
+        }
+    }
+    
+    /**
+     * Have {@link #executeOneCmd(String, String, String, String, String)}
+     * and friends borrow connectors from <code>pool</code> rather than
+     * connect per call.  With a pool set, this Client is safe to call from
+     * many threads at once.
+     * @param pool Pool to use or null to connect per call.
+     */
+    public void setConnectionPool(final ConnectionPool pool) {
+        this.pool = pool;
+    }
+    
+    public ConnectionPool getConnectionPool() {
+        return this.pool;
+    }
+    
+    /**
+     * Release resources we hold against the connection, then close it.
+     * @param jmxc Connector to close.
+     * @throws IOException
+     */
+    protected void close(final JMXConnector jmxc) throws IOException {
+        try {
+            releaseMBeanInfoCache(jmxc);
+        } finally {
+            jmxc.close();
+        }
+    }
+    
+    /**
+     * Get MBeanInfo via the cache we keep per connection.
+     * @param mbsc Server connection.
+     * @param name Bean to get info on.
+     * @return MBeanInfo for <code>name</code>.
+     * @throws InstanceNotFoundException
+     * @throws IntrospectionException
+     * @throws ReflectionException
+     * @throws IOException
+     */
+    protected MBeanInfo getMBeanInfo(final MBeanServerConnection mbsc,
+            final ObjectName name)
+    throws InstanceNotFoundException, IntrospectionException,
+            ReflectionException, IOException {
+        return getMBeanInfoCache(mbsc).getMBeanInfo(name);
+    }
+    
+    /**
+     * Get index of bean features via the cache we keep per connection.
+     * @param mbsc Server connection.
+     * @param name Bean to get index of.
+     * @return FeatureIndex for <code>name</code>.
+     * @throws InstanceNotFoundException
+     * @throws IntrospectionException
+     * @throws ReflectionException
+     * @throws IOException
+     */
+    protected FeatureIndex getFeatureIndex(final MBeanServerConnection mbsc,
+            final ObjectName name)
+    throws InstanceNotFoundException, IntrospectionException,
+            ReflectionException, IOException {
+        return getMBeanInfoCache(mbsc).getFeatureIndex(name);
+    }
+    
+    /**
+     * @param mbsc Server connection.
+     * @return Cache for <code>mbsc</code>.  If <code>mbsc</code> is not of
+     * a connector we made, a cache that lives only as long as the caller
+     * holds it.
+     */
+    protected MBeanInfoCache getMBeanInfoCache(
+            final MBeanServerConnection mbsc) {
+        MBeanInfoCache cache = null;
+        synchronized (this.infoCaches) {
+            cache = (MBeanInfoCache)this.infoCachesByConnection.get(mbsc);
+        }
+        return (cache == null)? new MBeanInfoCache(mbsc): cache;
+    }
+    
+    protected void addMBeanInfoCache(final JMXConnector jmxc)
+    throws IOException {
+        MBeanServerConnection mbsc = jmxc.getMBeanServerConnection();
+        MBeanInfoCache cache = new MBeanInfoCache(mbsc);
+        synchronized (this.infoCaches) {
+            this.infoCaches.put(jmxc, cache);
+            this.infoCachesByConnection.put(mbsc, cache);
+        }
+    }
+    
+    /**
+     * Have the cache of <code>jmxc</code> keep its entries current by
+     * listening for beans registered and unregistered.  Costs remote calls
+     * to subscribe and unsubscribe so only worth it on connections kept
+     * open for many commands.
+     * @param jmxc Connector we made.
+     */
+    protected void watchMBeanInfo(final JMXConnector jmxc) {
+        MBeanInfoCache cache = null;
+        synchronized (this.infoCaches) {
+            cache = (MBeanInfoCache)this.infoCaches.get(jmxc);
+        }
+        if (cache != null) {
+            cache.watch();
+        }
+    }
+    
+    protected void releaseMBeanInfoCache(final JMXConnector jmxc) {
+        MBeanInfoCache cache = null;
+        synchronized (this.infoCaches) {
+            cache = (MBeanInfoCache)this.infoCaches.remove(jmxc);
+            if (cache != null) {
+                this.infoCachesByConnection.remove(
+                    cache.getMBeanServerConnection());
+            }
+        }
+        if (cache != null) {
+            cache.close();
+        }
+    }
+    
+    /**
+     * @param objName Bean name or pattern queried (May be null: all beans).
+     * @param query Filter queried with (May be null).
+     * @return Message for when the query found no bean.
+     */
+    static String getNoBeanMessage(final ObjectName objName,
+            final QueryExp query) {
+        if (query != null) {
+            return ((objName == null)? "": objName.getCanonicalName() +
+                ": ") + "No bean passes filter.";
+        }
+        return (objName == null)? "No bean registered.":
+            objName.getCanonicalName() + " not registered.";
+    }
+    
     protected boolean notEmpty(String s) {
         return s != null && s.length() > 0;
     }
@@ -326,19 +1747,22 @@ public class Client {
         final boolean oneBeanOnly)
     throws Exception {
         Object [] result = null;
-        Set beans = mbsc.queryMBeans(objName, null);
+        Set beans = mbsc.queryMBeans(objName, this.query);
         if (beans.size() == 0) {
             // No bean found. Check if we are to create a bean?
-            if (command.length == 1 && notEmpty(command[0])
-                    && command[0].startsWith(CREATE_CMD_PREFIX)) {
+            if (this.query != null) {
+                throw new RuntimeException(getNoBeanMessage(objName,
+                    this.query));
+            } else if (command != null && command.length == 1 &&
+                    notEmpty(command[0]) &&
+                    command[0].startsWith(CREATE_CMD_PREFIX)) {
                 String className =
                     command[0].substring(CREATE_CMD_PREFIX.length());
                 mbsc.createMBean(className, objName);
             } else {
                 // TODO: Is there a better JMX exception that RE for this
                 // scenario?
-                throw new RuntimeException(objName.getCanonicalName() +
-                    " not registered.");
+                throw new RuntimeException(getNoBeanMessage(objName, null));
             }
         } else if (beans.size() == 1) {
             result = doBean(mbsc, (ObjectInstance) beans.iterator().next(),
@@ -369,6 +1793,125 @@ public class Client {
         return result;
     }
     
+    /**
+     * Run <code>command</code> against every bean that matches
+     * <code>objName</code> using a bounded pool of workers that share the
+     * one connection.
+     * @param mbsc Server connection.
+     * @param objName Bean name or pattern.
+     * @param command Commands to run against each bean.
+     * @param threads Maximum count of concurrent workers.
+     * @return Map of canonical bean name to array of results -- one per
+     * command -- or to the Throwable the bean's commands failed with.
+     * Sorted by bean name.
+     * @throws Exception
+     */
+    protected Map doBeansInParallel(final MBeanServerConnection mbsc,
+        final ObjectName objName, final String [] command, final int threads)
+    throws Exception {
+        Set beans = mbsc.queryMBeans(objName, this.query);
+        if (beans.size() == 0) {
+            throw new RuntimeException(getNoBeanMessage(objName,
+                this.query));
+        }
+        Map futures = new TreeMap();
+        ExecutorService pool =
+            Executors.newFixedThreadPool(Math.max(1,
+                Math.min(threads, beans.size())),
+                new DaemonThreadFactory("fanout"));
+        try {
+            for (Iterator i = beans.iterator(); i.hasNext();) {
+                final ObjectInstance instance = (ObjectInstance)i.next();
+                futures.put(instance.getObjectName().getCanonicalName(),
+                    pool.submit(new Callable() {
+                        public Object call() throws Exception {
+                            return doBean(mbsc, instance, command);
+                        }
+                    }));
+            }
+            for (Iterator i = futures.entrySet().iterator(); i.hasNext();) {
+                Map.Entry e = (Map.Entry)i.next();
+                try {
+                    e.setValue(((Future)e.getValue()).get());
+                } catch (ExecutionException ee) {
+                    e.setValue(ee.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return futures;
+    }
+    
+    /**
+     * Aggregate the numeric results of each command across beans.
+     * Non-numeric results, and beans whose commands failed, are left out.
+     * @param function One of 'sum', 'min', 'max', 'avg' or 'count'.
+     * @param results What {@link #doBeansInParallel(MBeanServerConnection,
+     * ObjectName, String[], int)} returned.
+     * @param count Count of commands.
+     * @return Aggregate per command.  Long if all values are integral
+     * (Double for 'avg').  Null if no values but for 'count'.
+     */
+    protected Object [] aggregate(final String function, final Map results,
+            final int count) {
+        Object [] aggregates = new Object[count];
+        for (int c = 0; c < count; c++) {
+            long n = 0;
+            long lsum = 0;
+            double dsum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            long lmin = Long.MAX_VALUE;
+            long lmax = Long.MIN_VALUE;
+            boolean integral = true;
+            for (Iterator i = results.entrySet().iterator(); i.hasNext();) {
+                Map.Entry e = (Map.Entry)i.next();
+                if (e.getValue() instanceof Throwable) {
+                    if (c == 0) {
+                        logger.warning(e.getKey() + ": " + e.getValue());
+                    }
+                    continue;
+                }
+                Object value = ((Object [])e.getValue())[c];
+                if (!(value instanceof Number)) {
+                    logger.fine(e.getKey() + ": Not a number: " + value);
+                    continue;
+                }
+                Number number = (Number)value;
+                n++;
+                dsum += number.doubleValue();
+                min = Math.min(min, number.doubleValue());
+                max = Math.max(max, number.doubleValue());
+                if (number instanceof Long || number instanceof Integer ||
+                        number instanceof Short || number instanceof Byte) {
+                    lsum += number.longValue();
+                    lmin = Math.min(lmin, number.longValue());
+                    lmax = Math.max(lmax, number.longValue());
+                } else {
+                    integral = false;
+                }
+            }
+            if (function.equals("count")) {
+                aggregates[c] = Long.valueOf(n);
+            } else if (n == 0) {
+                aggregates[c] = null;
+            } else if (function.equals("avg")) {
+                aggregates[c] = Double.valueOf(dsum / n);
+            } else if (function.equals("sum")) {
+                aggregates[c] = integral? (Object)Long.valueOf(lsum):
+                    Double.valueOf(dsum);
+            } else if (function.equals("min")) {
+                aggregates[c] = integral? (Object)Long.valueOf(lmin):
+                    Double.valueOf(min);
+            } else {
+                aggregates[c] = integral? (Object)Long.valueOf(lmax):
+                    Double.valueOf(max);
+            }
+        }
+        return aggregates;
+    }
+    
     /**
      * Get attribute or run operation against passed bean <code>instance</code>.
      * 
@@ -381,6 +1924,42 @@ public class Client {
      */
     protected Object [] doBean(MBeanServerConnection mbsc,
         ObjectInstance instance, String [] command)
+    throws Exception {
+        if (this.stats == null) {
+            return doBeanCommands(mbsc, instance, command);
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object [] result = doBeanCommands(mbsc, instance, command);
+            failed = false;
+            return result;
+        } finally {
+            this.stats.recordCommand(getCommandLabel(command),
+                System.nanoTime() - start, failed);
+        }
+    }
+    
+    /**
+     * @param command Commands (May be null).
+     * @return <code>command</code> as one space-delimited string.
+     */
+    protected String getCommandLabel(final String [] command) {
+        if (command == null || command.length <= 0) {
+            return "(list)";
+        }
+        StringBuffer buffer = new StringBuffer(command[0]);
+        for (int i = 1; i < command.length; i++) {
+            buffer.append(' ').append(command[i]);
+        }
+        return buffer.toString();
+    }
+    
+    /**
+     * @see #doBean(MBeanServerConnection, ObjectInstance, String[])
+     */
+    protected Object [] doBeanCommands(MBeanServerConnection mbsc,
+        ObjectInstance instance, String [] command)
     throws Exception {
         // If no command, then print out list of attributes and operations.
         if (command == null || command.length <= 0) {
@@ -388,13 +1967,130 @@ public class Client {
         }
         
         // Maybe multiple attributes/operations listed on one command line.
+        // Each run of plain attribute reads goes over together in one
+        // getAttributes call.  The rest -- operations, setters and any
+        // reads that didn't come back from getAttributes -- are run one at
+        // a time.  Commands are run in order: a run of reads is done before
+        // the setter or operation that follows it.
         Object [] result = new Object[command.length];
-        for (int i = 0; i < command.length; i++) {
-            result[i] = doSubCommand(mbsc, instance, command[i]);
+        FeatureIndex index = getFeatureIndex(mbsc, instance.getObjectName());
+        int from = 0;
+        for (int i = 0; i <= command.length; i++) {
+            if (i < command.length && (isAttributeRead(index, command[i]) ||
+                    AttributePath.parse(index, command[i]) != null)) {
+                continue;
+            }
+            boolean [] done = readAttributes(mbsc, instance, command, from,
+                i, result);
+            for (int j = from; j < i; j++) {
+                if (!done[j - from]) {
+                    result[j] = doSubCommand(mbsc, instance, command[j]);
+                }
+            }
+            if (i < command.length) {
+                result[i] = doSubCommand(mbsc, instance, command[i]);
+            }
+            from = i + 1;
         }
         return result;
     }
     
+    /**
+     * Fetch with a single getAttributes call all of <code>command</code>
+     * from <code>from</code> up to <code>to</code> that are plain attribute
+     * reads or paths into attributes.  Results are projected and rendered
+     * as {@link #doSubCommand(MBeanServerConnection, ObjectInstance, String)}
+     * would do it.
+     * @param mbsc Server connection.
+     * @param instance Bean to read attributes from.
+     * @param command Commands to run.
+     * @param from Index of first command to read.
+     * @param to Index after last command to read.
+     * @param result Where to put results; same order as <code>command</code>.
+     * @return Flags set for each command, from <code>from</code>, whose
+     * result we filled in.
+     * @throws Exception
+     */
+    protected boolean [] readAttributes(MBeanServerConnection mbsc,
+        ObjectInstance instance, String [] command, int from, int to,
+        Object [] result)
+    throws Exception {
+        boolean [] done = new boolean[to - from];
+        if (to - from < 2) {
+            // Nothing to be saved.
+            return done;
+        }
+        FeatureIndex index = getFeatureIndex(mbsc, instance.getObjectName());
+        List names = new ArrayList(to - from);
+        AttributePath [] paths = new AttributePath[to - from];
+        String [] reads = new String[to - from];
+        for (int i = 0; i < reads.length; i++) {
+            if (isAttributeRead(index, command[from + i])) {
+                reads[i] = command[from + i];
+            } else {
+                paths[i] = AttributePath.parse(index, command[from + i]);
+                if (paths[i] != null) {
+                    reads[i] = paths[i].getAttribute();
+                }
+            }
+            if (reads[i] != null && !names.contains(reads[i])) {
+                names.add(reads[i]);
+            }
+        }
+        if (names.size() < 2) {
+            // Nothing to be saved.
+            return done;
+        }
+        AttributeList list = null;
+        try {
+            list = mbsc.getAttributes(instance.getObjectName(),
+                (String [])names.toArray(new String[names.size()]));
+        } catch (InterruptedIOException e) {
+            // Timed out: the connection is gone so no use trying again.
+            throw e;
+        } catch (Exception e) {
+            // Let the one-at-a-time path report the problem.
+            logger.fine("getAttributes failed: " + e);
+            return done;
+        }
+        Map values = new HashMap(list.size());
+        for (Iterator i = list.iterator(); i.hasNext();) {
+            Attribute a = (Attribute)i.next();
+            values.put(a.getName(), a);
+        }
+        for (int i = 0; i < reads.length; i++) {
+            Attribute a = (reads[i] == null)? null:
+                (Attribute)values.get(reads[i]);
+            if (a != null) {
+                result[from + i] = renderResult((paths[i] == null)? a.getValue():
+                    paths[i].project(a.getValue()));
+                done[i] = true;
+            }
+        }
+        return done;
+    }
+    
+    /**
+     * @param index Bean features.
+     * @param cmd Command.
+     * @return True if <code>cmd</code> is a get of a readable attribute as
+     * {@link #doSubCommand(MBeanServerConnection, ObjectInstance, String)}
+     * would route it (i.e. no arguments and not taken for an operation).
+     */
+    protected boolean isAttributeRead(final FeatureIndex index,
+            final String cmd) {
+        if (cmd.length() == 0 || cmd.indexOf('=') >= 0 ||
+                cmd.indexOf('(') >= 0 || cmd.equals("Attributes")) {
+            return false;
+        }
+        MBeanAttributeInfo attribute = index.getAttribute(cmd);
+        if (attribute == null || !attribute.isReadable()) {
+            return false;
+        }
+        return Character.isUpperCase(cmd.charAt(0)) ||
+            !index.hasOperation(cmd);
+    }
+    
     public Object doSubCommand(MBeanServerConnection mbsc,
         ObjectInstance instance, String subCommand)
     throws Exception {
@@ -408,10 +2104,17 @@ public class Client {
         }
         
         // Get attribute and operation info.
-        MBeanAttributeInfo [] attributeInfo =
-            mbsc.getMBeanInfo(instance.getObjectName()).getAttributes();
-        MBeanOperationInfo [] operationInfo =
-            mbsc.getMBeanInfo(instance.getObjectName()).getOperations();
+        FeatureIndex index = getFeatureIndex(mbsc, instance.getObjectName());
+        // Fetch only the field or row asked for if a path into an
+        // attribute.
+        AttributePath path = AttributePath.parse(index, subCommand);
+        if (path != null) {
+            return renderResult(path.project(mbsc.getAttribute(
+                instance.getObjectName(), path.getAttribute())));
+        }
+        String name = FeatureIndex.getName(subCommand);
+        boolean isAttribute = index.getAttribute(name) != null;
+        boolean isOperation = index.hasOperation(name);
         // Now, bdbje JMX bean doesn't follow the convention of attributes
         // having uppercase first letter and operations having lowercase
         // first letter.  But most beans do. Be prepared to handle the bdbje
@@ -419,37 +2122,45 @@ public class Client {
         Object result = null;
         if (Character.isUpperCase(subCommand.charAt(0))) {
             // Probably an attribute.
-            if (!isFeatureInfo(attributeInfo, subCommand) &&
-                    isFeatureInfo(operationInfo, subCommand)) {
+            if (!isAttribute && isOperation) {
                 // Its not an attribute name. Looks like its name of an
                 // operation.  Try it.
-                result =
-                    doBeanOperation(mbsc, instance, subCommand, operationInfo);
+                result = doBeanOperation(mbsc, instance, subCommand, index);
             } else {
                 // Then it is an attribute OR its not an attribute name nor
                 // operation name and the below invocation will throw a
                 // AttributeNotFoundException.
                 result = doAttributeOperation(mbsc, instance, subCommand,
-                    attributeInfo);
+                    index);
             }
         } else {
             // Must be an operation.
-            if (!isFeatureInfo(operationInfo, subCommand) &&
-                    isFeatureInfo(attributeInfo, subCommand)) {
+            if (!isOperation && isAttribute) {
                 // Its not an operation name but looks like it could be an
                 // attribute name. Try it.
                 result = doAttributeOperation(mbsc, instance, subCommand,
-                    attributeInfo);        
+                    index);
             } else {
                 // Its an operation name OR its neither operation nor attribute
                 // name and the below will throw a NoSuchMethodException.
-                result =
-                    doBeanOperation(mbsc, instance, subCommand, operationInfo);
+                result = doBeanOperation(mbsc, instance, subCommand, index);
             }
         }
-        
-        // Look at the result.  Is it of composite or tabular type?
-        // If so, convert to a String representation.
+        return renderResult(result);
+    }
+    
+    /**
+     * Look at the result.  Is it of composite or tabular type?
+     * If so, convert to a String representation.  Leave be if we are
+     * writing results in a structured format.
+     * @param result Result of an attribute get or operation invocation.
+     * @return <code>result</code> or its String representation.
+     */
+    protected Object renderResult(Object result) {
+        if (this.format != null) {
+            // Format walks the raw result itself.
+            return result;
+        }
         if (result instanceof CompositeData) {
             result = recurseCompositeData(new StringBuffer("\n"), "", "",
                 (CompositeData)result);
@@ -489,9 +2200,9 @@ public class Client {
     
     protected MBeanFeatureInfo getFeatureInfo(MBeanFeatureInfo [] infos,
             String cmd) {
-        // Cmd may be carrying arguments.  Don't count them in the compare.
-        int index = cmd.indexOf('=');
-        String name = (index > 0)? cmd.substring(0, index): cmd;
+        // Cmd may be carrying arguments and signature.  Don't count them in
+        // the compare.
+        String name = FeatureIndex.getName(cmd);
         for (int i = 0; i < infos.length; i++) {
             if (infos[i].getName().equals(name)) {
                 return infos[i];
@@ -557,11 +2268,14 @@ public class Client {
     /**
      * Class that parses commandline arguments.
      * Expected format is 'operationName=arg0,arg1,arg2...'. We are assuming no
-     * spaces nor comma's in argument values.
+     * spaces nor comma's in argument values.  To pick between overloaded
+     * operations, name the signature after the operation name:
+     * 'operationName(type0,type1)=arg0,arg1'.
      */
     protected class CommandParse {
         private String cmd;
         private String [] args;
+        private String [] signature;
         
         protected CommandParse(String command) throws ParseException {
             parse(command);
@@ -574,6 +2288,16 @@ public class Client {
             }
 
             this.cmd = m.group(1);
+            int index = this.cmd.indexOf('(');
+            if (index > 0 && this.cmd.endsWith(")")) {
+                String types = this.cmd.substring(index + 1,
+                    this.cmd.length() - 1).trim();
+                this.signature = (types.length() == 0)? new String [0]:
+                    types.split(",");
+                this.cmd = this.cmd.substring(0, index);
+            } else {
+                this.signature = null;
+            }
             if (m.group(2) != null && m.group(2).length() > 0) {
                 this.args = m.group(2).split(",");
             } else {
@@ -588,10 +2312,18 @@ public class Client {
         protected String [] getArgs() {
             return this.args;
         }
+        
+        /**
+         * @return Signature types named on the command line or null if
+         * none named.
+         */
+        protected String [] getSignature() {
+            return this.signature;
+        }
     }
     
     protected Object doAttributeOperation(MBeanServerConnection mbsc,
-        ObjectInstance instance, String command, MBeanAttributeInfo [] infos)
+        ObjectInstance instance, String command, FeatureIndex index)
     throws Exception {
         // Usually we get attributes. If an argument, then we're being asked
         // to set attribute.
@@ -600,6 +2332,8 @@ public class Client {
             // Special-casing.  If the subCommand is 'Attributes', then return
             // list of all attributes.
             if (command.equals("Attributes")) {
+                MBeanAttributeInfo [] infos =
+                    index.getMBeanInfo().getAttributes();
                 String [] names = new String[infos.length];
                 for (int i = 0; i < infos.length; i++) {
                     names[i] = infos[i].getName();
@@ -612,57 +2346,50 @@ public class Client {
             throw new IllegalArgumentException("One only argument setting " +
                 "attribute values: " + parse.getArgs());
         }
-        // Get first attribute of name 'cmd'. Assumption is no method
-        // overrides.  Then, look at the attribute and use its type.
-        MBeanAttributeInfo info =
-            (MBeanAttributeInfo)getFeatureInfo(infos, parse.getCmd());
-        java.lang.reflect.Constructor c = Class.forName(
-             info.getType()).getConstructor(new Class[] {String.class});
+        // Look at the attribute and use its type.
+        MBeanAttributeInfo info = index.getAttribute(parse.getCmd());
+        if (info == null) {
+            throw new AttributeNotFoundException(parse.getCmd());
+        }
         Attribute a = new Attribute(parse.getCmd(),
-            c.newInstance(new Object[] {parse.getArgs()[0]}));
+            ArgumentConverter.convert(info.getType(), parse.getArgs()[0]));
         mbsc.setAttribute(instance.getObjectName(), a);
         return null;
     }
 
     protected Object doBeanOperation(MBeanServerConnection mbsc,
-        ObjectInstance instance, String command, MBeanOperationInfo [] infos)
+        ObjectInstance instance, String command, FeatureIndex index)
     throws Exception {
         // Parse command line.
         CommandParse parse = new CommandParse(command);
         
-        // Get first method of name 'cmd'. Assumption is no method
-        // overrides.  Then, look at the method and use its signature
-        // to make sure client sends over parameters of the correct type.
-        MBeanOperationInfo op =
-            (MBeanOperationInfo)getFeatureInfo(infos, parse.getCmd());
-        Object result = null;
+        // Find the operation of name 'cmd' whose signature matches the
+        // passed arguments.  Then, look at its signature to make sure client
+        // sends over parameters of the correct type.
+        if (!index.hasOperation(parse.getCmd())) {
+            return "Operation " + parse.getCmd() + " not found.";
+        }
+        MBeanOperationInfo op = index.getOperation(parse.getCmd(),
+            parse.getArgs(), parse.getSignature());
         if (op == null) {
-            result = "Operation " + parse.getCmd() + " not found.";
-        } else {
-            MBeanParameterInfo [] paraminfos = op.getSignature();
-            int paraminfosLength = (paraminfos == null)? 0: paraminfos.length;
-            int objsLength = (parse.getArgs() == null)?
-                0: parse.getArgs().length;
-            if (paraminfosLength != objsLength) {
-                result = "Passed param count does not match signature count";
-            } else {
-                String [] signature = new String[paraminfosLength];
-                Object [] params = (paraminfosLength == 0)? null
-                        : new Object[paraminfosLength];
-                for (int i = 0; i < paraminfosLength; i++) {
-                    MBeanParameterInfo paraminfo = paraminfos[i];
-                    java.lang.reflect.Constructor c = Class.forName(
-                        paraminfo.getType()).getConstructor(
-                            new Class[] {String.class});
-                    params[i] =
-                        c.newInstance(new Object[] {parse.getArgs()[i]});
-                    signature[i] = paraminfo.getType();
-                }
-                result = mbsc.invoke(instance.getObjectName(), parse.getCmd(),
-                    params, signature);
-            }
+            return (parse.getSignature() == null)?
+                "Passed param count does not match signature count":
+                "Operation " + parse.getCmd() + " with passed signature " +
+                    "not found.";
         }
-        return result;
+        MBeanParameterInfo [] paraminfos = op.getSignature();
+        int paraminfosLength = (paraminfos == null)? 0: paraminfos.length;
+        String [] signature = new String[paraminfosLength];
+        Object [] params = (paraminfosLength == 0)? null
+                : new Object[paraminfosLength];
+        for (int i = 0; i < paraminfosLength; i++) {
+            MBeanParameterInfo paraminfo = paraminfos[i];
+            params[i] = ArgumentConverter.convert(paraminfo.getType(),
+                parse.getArgs()[i]);
+            signature[i] = paraminfo.getType();
+        }
+        return mbsc.invoke(instance.getObjectName(), parse.getCmd(), params,
+            signature);
     }
 
     protected String listOptions(MBeanServerConnection mbsc,
@@ -670,7 +2397,7 @@ public class Client {
     throws InstanceNotFoundException, IntrospectionException,
             ReflectionException, IOException {
         StringBuffer result = new StringBuffer();
-        MBeanInfo info = mbsc.getMBeanInfo(instance.getObjectName());
+        MBeanInfo info = getMBeanInfo(mbsc, instance.getObjectName());
         MBeanAttributeInfo [] attributes  = info.getAttributes();
         if (attributes.length > 0) {
             result.append("Attributes:");
@@ -711,6 +2438,30 @@ public class Client {
         return result.toString();
     }
     
+    /**
+     * @param millis Milliseconds since the epoch.
+     * @return <code>millis</code> as 'MM/dd/yyyy HH:mm:ss Z' in the
+     * default time zone.
+     */
+    protected static String formatDate(final long millis) {
+        SimpleDateFormat format = DateFormatHolder.FORMAT;
+        synchronized (format) {
+            format.setTimeZone(TimeZone.getDefault());
+            return format.format(new Date(millis));
+        }
+    }
+    
+    /**
+     * Holds the format {@link #formatDate(long)} uses.  Making a
+     * SimpleDateFormat loads locale data, which costs a one-shot run close
+     * to 100ms, so it is made when a date is first formatted rather than
+     * when we load.
+     */
+    private static class DateFormatHolder {
+        static final SimpleDateFormat FORMAT =
+            new SimpleDateFormat("MM/dd/yyyy HH:mm:ss Z");
+    }
+    
     /**
      * Logger that writes entry on one line with less verbose date.
      * Modelled on the OneLineSimpleLogger from Heritrix.
@@ -718,26 +2469,22 @@ public class Client {
      * @author stack
      * @version $Revision$, $Date$
      */
-    private class OneLineSimpleLogger extends SimpleFormatter {
+    public static class OneLineSimpleLogger extends SimpleFormatter {
         /**
-         * Date instance.
+         * Date of last record formatted as 'MM/dd/yyyy HH:mm:ss Z'.
          * 
-         * Keep around instance of date.
+         * Records come in bursts so we keep the date until the second
+         * turns over.
          */
-        private Date date = new Date();
+        private String date = null;
         
-        /**
-         * Field position instance.
-         * 
-         * Keep around this instance.
-         */
-        private FieldPosition position = new FieldPosition(0);
+        private final String lineSeparator =
+            System.getProperty("line.separator");
         
         /**
-         * MessageFormatter for date.
+         * Second of <code>date</code> (Milliseconds since the epoch).
          */
-        private SimpleDateFormat formatter =
-            new SimpleDateFormat("MM/dd/yyyy HH:mm:ss Z");
+        private long second = 0;
         
         /**
          * Persistent buffer in which we conjure the log.
@@ -751,9 +2498,7 @@ public class Client {
         
         public synchronized String format(LogRecord record) {
             this.buffer.setLength(0);
-            this.date.setTime(record.getMillis());
-            this.position.setBeginIndex(0);
-            this.formatter.format(this.date, this.buffer, this.position);
+            this.buffer.append(getDate(record.getMillis()));
             this.buffer.append(' ');
             if (record.getSourceClassName() != null) {
                 this.buffer.append(record.getSourceClassName());
@@ -762,7 +2507,7 @@ public class Client {
             }
             this.buffer.append(' ');
             this.buffer.append(formatMessage(record));
-            this.buffer.append(System.getProperty("line.separator"));
+            this.buffer.append(this.lineSeparator);
             if (record.getThrown() != null) {
                 try {
                     StringWriter writer = new StringWriter();
@@ -777,5 +2522,18 @@ public class Client {
             }
             return this.buffer.toString();
         }
+        
+        /**
+         * @param millis Milliseconds since the epoch.
+         * @return Date of the second <code>millis</code> falls in.
+         */
+        protected synchronized String getDate(final long millis) {
+            if (this.date == null || millis < this.second ||
+                    millis - this.second >= 1000) {
+                this.second = millis - (((millis % 1000) + 1000) % 1000);
+                this.date = Client.formatDate(this.second);
+            }
+            return this.date;
+        }
     }
 }
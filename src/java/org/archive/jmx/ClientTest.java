@@ -0,0 +1,295 @@
+/*
+ * ClientTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of how {@link Client} runs commands against a bean.  Runs against
+ * an in-process MBeanServer; no connector is needed.  Also tests the
+ * date formatting of log records.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class ClientTest extends TestCase {
+    private MBeanServer mbs;
+    private ObjectName name;
+    private Toggle toggle;
+    private Client client;
+    
+    /**
+     * Names of the remote calls made, in order.
+     */
+    private final List calls = new ArrayList();
+    private MBeanServerConnection mbsc;
+    
+    public interface ToggleMBean {
+        boolean isVerbose();
+        void setVerbose(boolean verbose);
+        int getCount();
+        String getLabel();
+        int increment();
+    }
+    
+    public static class Toggle implements ToggleMBean {
+        private boolean verbose = false;
+        private int count = 0;
+        private int reads = 0;
+        
+        public synchronized boolean isVerbose() {
+            this.reads++;
+            return this.verbose;
+        }
+        
+        public synchronized void setVerbose(boolean verbose) {
+            this.verbose = verbose;
+        }
+        
+        public synchronized int getCount() {
+            this.reads++;
+            return this.count;
+        }
+        
+        public synchronized String getLabel() {
+            this.reads++;
+            return "toggle";
+        }
+        
+        public synchronized int increment() {
+            return ++this.count;
+        }
+        
+        synchronized int getReads() {
+            return this.reads;
+        }
+    }
+    
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mbs = MBeanServerFactory.newMBeanServer();
+        this.name = new ObjectName("test:type=Toggle");
+        this.toggle = new Toggle();
+        this.mbs.registerMBean(this.toggle, this.name);
+        this.client = new Client();
+        this.mbsc = (MBeanServerConnection)Proxy.newProxyInstance(
+            MBeanServerConnection.class.getClassLoader(),
+            new Class [] {MBeanServerConnection.class},
+            new InvocationHandler() {
+                public Object invoke(Object proxy, Method method,
+                        Object [] args)
+                throws Throwable {
+                    calls.add(method.getName());
+                    try {
+                        return method.invoke(mbs, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                }
+            });
+    }
+    
+    protected Object [] run(final String [] command) throws Exception {
+        return this.client.doBeans(this.mbsc, this.name, command, true);
+    }
+    
+    protected int countCalls(final String method) {
+        int count = 0;
+        for (int i = 0; i < this.calls.size(); i++) {
+            if (this.calls.get(i).equals(method)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    public void testSetThenRead() throws Exception {
+        Object [] result = run(new String [] {"Verbose=true", "Verbose",
+            "Label"});
+        assertEquals(Boolean.TRUE, result[1]);
+        assertEquals("toggle", result[2]);
+    }
+    
+    public void testMixedSetReadInvoke() throws Exception {
+        Object [] result = run(new String [] {"Count", "Verbose",
+            "increment", "Count", "Label", "Verbose=true", "Verbose",
+            "increment", "Count"});
+        assertEquals(9, result.length);
+        assertEquals(Integer.valueOf(0), result[0]);
+        assertEquals(Boolean.FALSE, result[1]);
+        assertEquals(Integer.valueOf(1), result[2]);
+        assertEquals(Integer.valueOf(1), result[3]);
+        assertEquals("toggle", result[4]);
+        assertEquals(Boolean.TRUE, result[6]);
+        assertEquals(Integer.valueOf(2), result[7]);
+        assertEquals(Integer.valueOf(2), result[8]);
+        assertTrue(this.toggle.isVerbose());
+    }
+    
+    public void testReadsOnlyAllRead() throws Exception {
+        Object [] result = run(new String [] {"Label", "Count", "Verbose"});
+        assertEquals("toggle", result[0]);
+        assertEquals(Integer.valueOf(0), result[1]);
+        assertEquals(Boolean.FALSE, result[2]);
+        assertEquals(3, this.toggle.getReads());
+        assertEquals(1, countCalls("getAttributes"));
+        assertEquals(0, countCalls("getAttribute"));
+    }
+    
+    public void testReadsBatchedBetweenOperations() throws Exception {
+        run(new String [] {"Label", "Count", "increment", "Count",
+            "Verbose", "Verbose=true"});
+        // Two runs of reads, each one getAttributes.
+        assertEquals(2, countCalls("getAttributes"));
+        assertEquals(1, countCalls("invoke"));
+        assertEquals(1, countCalls("setAttribute"));
+        assertTrue(this.calls.indexOf("invoke") <
+            this.calls.lastIndexOf("getAttributes"));
+        assertTrue(this.calls.lastIndexOf("getAttributes") <
+            this.calls.indexOf("setAttribute"));
+    }
+    
+    protected void assertNoBean(final ObjectName pattern,
+            final String message)
+    throws Exception {
+        try {
+            this.client.doBeansInParallel(this.mbsc, pattern,
+                new String [] {"Count"}, 2);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals(message, e.getMessage());
+        }
+        try {
+            this.client.doBeans(this.mbsc, pattern, new String [] {"Count"},
+                false);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+    
+    public void testNoBeanMatches() throws Exception {
+        assertNoBean(new ObjectName("none:*"), "none:* not registered.");
+        this.client.setQuery(QueryFilter.compile("Count > 100"));
+        // No pattern is all beans.
+        assertNoBean(null, "No bean passes filter.");
+        assertNoBean(this.name, "test:type=Toggle: No bean passes filter.");
+        assertEquals("No bean registered.",
+            Client.getNoBeanMessage(null, null));
+    }
+    
+    public void testFormatDateBoundaries() throws Exception {
+        String [] dates = {
+            "1899-12-31 23:59:59.999", "1900-01-01 00:00:00.000",
+            "1900-02-28 12:00:00.000", "1900-03-01 00:00:00.000",
+            "1969-12-31 23:59:59.999", "1970-01-01 00:00:00.000",
+            "1999-12-31 23:59:59.000", "2000-01-01 00:00:00.000",
+            "2000-02-28 23:59:59.000", "2000-02-29 00:00:00.000",
+            "2000-03-01 00:00:00.000", "2024-02-29 23:59:59.500",
+            "2024-12-31 23:59:59.999", "2025-01-01 00:00:00.000",
+            "2100-02-28 23:59:59.000", "2100-03-01 00:00:00.000"};
+        SimpleDateFormat parser =
+            new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        parser.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long [] millis = new long[dates.length];
+        for (int i = 0; i < dates.length; i++) {
+            millis[i] = parser.parse(dates[i]).getTime();
+        }
+        assertFormatDate(millis);
+    }
+    
+    public void testFormatDateSweep() throws Exception {
+        // Every seven hours and a bit across two leap years, so we land on
+        // all hours and month ends, and over daylight saving changes.
+        long start = -2 * 366 * 86400000L;
+        long [] millis = new long[2 * 4 * 366 * 24 / 7];
+        for (int i = 0; i < millis.length; i++) {
+            millis[i] = 946684800000L + start + i * 25201001L;
+        }
+        assertFormatDate(millis);
+    }
+    
+    protected void assertFormatDate(final long [] millis) {
+        String [] zones = {"UTC", "America/New_York", "Asia/Kolkata",
+            "America/St_Johns", "Pacific/Kiritimati"};
+        TimeZone saved = TimeZone.getDefault();
+        try {
+            for (int i = 0; i < zones.length; i++) {
+                TimeZone.setDefault(TimeZone.getTimeZone(zones[i]));
+                SimpleDateFormat expected =
+                    new SimpleDateFormat("MM/dd/yyyy HH:mm:ss Z");
+                for (int j = 0; j < millis.length; j++) {
+                    Date date = new Date(millis[j]);
+                    assertEquals(zones[i] + " " + millis[j],
+                        expected.format(date), Client.formatDate(millis[j]));
+                }
+            }
+        } finally {
+            TimeZone.setDefault(saved);
+        }
+    }
+    
+    public void testFormatterKeepsDateForTheSecond() throws Exception {
+        Client.OneLineSimpleLogger formatter =
+            new Client.OneLineSimpleLogger();
+        long [] millis = {1000500L, 1000999L, 1001000L, 1000999L, -1L,
+            -1000L, -1001L};
+        String last = null;
+        for (int i = 0; i < millis.length; i++) {
+            long second = millis[i] - (((millis[i] % 1000) + 1000) % 1000);
+            String date = formatter.getDate(millis[i]);
+            assertEquals(millis[i] + " " + date, Client.formatDate(second),
+                date);
+            if (i == 1) {
+                // Same second as the one before: kept, not made again.
+                assertSame(last, date);
+            }
+            last = date;
+        }
+        LogRecord record = new LogRecord(Level.INFO, "message");
+        String line = formatter.format(record);
+        assertTrue(line, line.startsWith(
+            formatter.getDate(record.getMillis()) + " "));
+        assertTrue(line, line.indexOf(" message") > 0);
+    }
+}
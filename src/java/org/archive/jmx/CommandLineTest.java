@@ -0,0 +1,233 @@
+/*
+ * CommandLineTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnectionNotification;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of running {@link Client} as from the command line against a
+ * JMXConnectorServer on loopback: session mode, fanning out over beans
+ * and naming the target by JMX service URL.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class CommandLineTest extends TestCase {
+    private static final String NL = System.getProperty("line.separator");
+
+    private MBeanServer mbs;
+    private Registry registry;
+    private JMXConnectorServer server;
+    private String hostport;
+    private String url;
+    private File script;
+
+    /**
+     * Count of client connections the server opened.
+     */
+    private final AtomicInteger opened = new AtomicInteger(0);
+
+    public interface CounterMBean {
+        int getCount();
+        int increment();
+    }
+
+    public static class Counter implements CounterMBean {
+        private int count;
+
+        public Counter(final int count) {
+            this.count = count;
+        }
+
+        public synchronized int getCount() {
+            return this.count;
+        }
+
+        public synchronized int increment() {
+            return ++this.count;
+        }
+    }
+
+    /**
+     * Bean without the Counter attributes.
+     */
+    public interface OtherMBean {
+        String getName();
+    }
+
+    public static class Other implements OtherMBean {
+        public String getName() {
+            return "other";
+        }
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (System.getProperty("java.rmi.server.hostname") == null) {
+            System.setProperty("java.rmi.server.hostname", "localhost");
+        }
+        this.mbs = MBeanServerFactory.newMBeanServer();
+        this.mbs.registerMBean(new Counter(0),
+            new ObjectName("test:type=Counter"));
+        for (int i = 1; i <= 3; i++) {
+            this.mbs.registerMBean(new Counter(i * 10),
+                new ObjectName("test:type=Pool,name=p" + i));
+        }
+        this.mbs.registerMBean(new Other(),
+            new ObjectName("test:type=Pool,name=other"));
+        ServerSocket s = new ServerSocket(0);
+        int port = s.getLocalPort();
+        s.close();
+        this.registry = LocateRegistry.createRegistry(port);
+        this.url = "service:jmx:rmi:///jndi/rmi://localhost:" + port +
+            "/jmxrmi";
+        this.server = JMXConnectorServerFactory.newJMXConnectorServer(
+            new JMXServiceURL(this.url), null, this.mbs);
+        this.server.addNotificationListener(new NotificationListener() {
+            public void handleNotification(Notification n, Object handback) {
+                if (JMXConnectionNotification.OPENED.equals(n.getType())) {
+                    opened.incrementAndGet();
+                }
+            }
+        }, null, null);
+        this.server.start();
+        this.hostport = "localhost:" + port;
+        this.script = File.createTempFile("session", ".txt");
+    }
+
+    protected void tearDown() throws Exception {
+        this.script.delete();
+        this.server.stop();
+        UnicastRemoteObject.unexportObject(this.registry, true);
+        super.tearDown();
+    }
+
+    /**
+     * Run the client with <code>args</code>.
+     * @return What it wrote to stdout.
+     */
+    protected String run(final String [] args) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            new Client().execute(args);
+        } finally {
+            System.setOut(out);
+        }
+        return bytes.toString();
+    }
+
+    protected void writeScript(final String [] lines) throws Exception {
+        Writer writer = new FileWriter(this.script);
+        try {
+            for (int i = 0; i < lines.length; i++) {
+                writer.write(lines[i] + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void testSessionSharesOneConnection() throws Exception {
+        writeScript(new String [] {"# Comment", "",
+            "test:type=Counter Count",
+            "test:type=Counter increment",
+            "none:type=None Count",
+            "  test:type=Counter   Count  ",
+            "quit",
+            "test:type=Counter increment"});
+        // The bad line is logged and the session goes on.
+        assertEquals("test:type=Counter.Count=0" + NL +
+            "test:type=Counter.increment=1" + NL +
+            "test:type=Counter.Count=1" + NL,
+            run(new String [] {"--format=flat",
+                "--session=" + this.script.getPath(), "-", this.hostport}));
+        assertEquals(1, this.opened.get());
+        // Nothing after 'quit' is run.
+        assertEquals(Integer.valueOf(1), this.mbs.getAttribute(
+            new ObjectName("test:type=Counter"), "Count"));
+    }
+
+    public void testFanout() throws Exception {
+        // A bean the commands fail on is logged and left out.
+        assertEquals("test:name=p1,type=Pool.Count=10" + NL +
+            "test:name=p1,type=Pool.increment=11" + NL +
+            "test:name=p2,type=Pool.Count=20" + NL +
+            "test:name=p2,type=Pool.increment=21" + NL +
+            "test:name=p3,type=Pool.Count=30" + NL +
+            "test:name=p3,type=Pool.increment=31" + NL,
+            run(new String [] {"--format=flat", "--fanout=2", "-",
+                this.hostport, "test:type=Pool,*", "Count", "increment"}));
+        assertEquals(1, this.opened.get());
+    }
+
+    public void testAggregate() throws Exception {
+        assertEquals("test:type=Pool,*.sum(Count)=60" + NL +
+            "test:type=Pool,*.max(Count)=30" + NL, run(new String [] {
+                "--format=flat", "--aggregate=sum", "-", this.hostport,
+                "test:type=Pool,*", "Count"}) +
+            run(new String [] {"--format=flat", "--aggregate=max", "-",
+                this.hostport, "test:type=Pool,*", "Count"}));
+    }
+
+    public void testServiceUrl() throws Exception {
+        assertEquals("test:type=Counter.Count=0" + NL,
+            run(new String [] {"--format=flat", "-", this.url,
+                "test:type=Counter", "Count"}));
+        assertEquals(1, this.opened.get());
+    }
+
+    public void testServiceUrlNotRewritten() throws Exception {
+        Client client = new Client();
+        assertEquals(new JMXServiceURL(this.url),
+            client.getJMXServiceURL(this.url));
+        assertEquals(new JMXServiceURL("service:jmx:rmi://" + this.hostport +
+            "/jndi/rmi://" + this.hostport + "/jmxrmi"),
+            client.getJMXServiceURL(this.hostport));
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * ConnectionPool
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.management.remote.JMXConnector;
+
+/**
+ * Pool of open connectors keyed by host, port and credentials.
+ * <p>For embedding the client in a long-running service: rather than
+ * connect and tear down per call, borrow a connector, use it, and give it
+ * back.  No more than <code>maxPerHost</code> connectors are out to any
+ * one key at a time; borrowers past that wait.  Connectors idle longer
+ * than <code>idleTimeout</code> are closed by a background evictor.  A
+ * connector that has sat idle for more than <code>checkAfter</code> is
+ * checked with a cheap remote call before being handed out.  Safe to use
+ * from many threads.
+ * <p>Usage:
+ * <pre>
+ * Client client = new Client();
+ * client.setConnectionPool(new ConnectionPool(client, 4, 60000));
+ * client.executeOneCmd("host:8081", null, null,
+ *     "java.lang:type=Memory", "HeapMemoryUsage");
+ * </pre>
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class ConnectionPool {
+    private static final Logger logger =
+        Logger.getLogger(ConnectionPool.class.getName());
+    
+    /**
+     * Default milliseconds a borrower waits for a connector.
+     */
+    public static final long DEFAULT_BORROW_TIMEOUT = 30 * 1000;
+    
+    /**
+     * Default milliseconds idle after which a connector is checked before
+     * being handed out.
+     */
+    public static final long DEFAULT_CHECK_AFTER = 5 * 1000;
+    
+    private final Client client;
+    private final int maxPerHost;
+    private final long idleTimeout;
+    private long borrowTimeout = DEFAULT_BORROW_TIMEOUT;
+    private long checkAfter = DEFAULT_CHECK_AFTER;
+    
+    /**
+     * HostPools keyed by host, port and credentials.
+     */
+    private final Map pools = new ConcurrentHashMap();
+    
+    /**
+     * HostPools keyed by the connectors currently borrowed from them.
+     */
+    private final Map borrowed = new ConcurrentHashMap();
+    
+    private final ScheduledExecutorService evictor;
+    
+    private final AtomicLong borrows = new AtomicLong(0);
+    private final AtomicLong waitNanos = new AtomicLong(0);
+    private final AtomicLong maxWaitNanos = new AtomicLong(0);
+    private final AtomicLong created = new AtomicLong(0);
+    private final AtomicLong evicted = new AtomicLong(0);
+    private final AtomicLong failedChecks = new AtomicLong(0);
+    
+    private volatile boolean closed = false;
+    
+    /**
+     * @param client Client to make connectors with.
+     * @param maxPerHost Most connectors out at once per host and
+     * credentials.
+     * @param idleTimeout Milliseconds a connector may sit idle before it is
+     * closed.
+     */
+    public ConnectionPool(final Client client, final int maxPerHost,
+            final long idleTimeout) {
+        super();
+        this.client = client;
+        this.maxPerHost = maxPerHost;
+        this.idleTimeout = idleTimeout;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(
+            new DaemonThreadFactory("pool-evictor"));
+        long period = Math.max(1, idleTimeout / 2);
+        this.evictor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                evict();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+    
+    public void setBorrowTimeout(final long borrowTimeout) {
+        this.borrowTimeout = borrowTimeout;
+    }
+    
+    public void setCheckAfter(final long checkAfter) {
+        this.checkAfter = checkAfter;
+    }
+    
+    /**
+     * Borrow a connector.  Give it back with {@link #release(JMXConnector)}
+     * or, if it failed, {@link #invalidate(JMXConnector)}.
+     * @param hostport 'host:port' combination.
+     * @param login RMI login to use (May be null).
+     * @param password RMI password to use (May be null).
+     * @return Open connector.
+     * @throws IOException If we fail to connect or time out waiting.
+     */
+    public JMXConnector borrow(final String hostport, final String login,
+            final String password)
+    throws IOException {
+        if (this.closed) {
+            throw new IllegalStateException("Pool closed");
+        }
+        HostPool pool = getHostPool(hostport, login, password);
+        long start = System.nanoTime();
+        try {
+            if (!pool.permits.tryAcquire(this.borrowTimeout,
+                    TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out after " +
+                    this.borrowTimeout + "ms waiting on connection to " +
+                    hostport);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting on connection to " +
+                hostport);
+        }
+        recordWait(System.nanoTime() - start);
+        try {
+            JMXConnector jmxc = pool.takeIdle();
+            if (jmxc == null) {
+                jmxc = this.client.getJMXConnector(hostport, login,
+                    password);
+                this.client.watchMBeanInfo(jmxc);
+                this.created.incrementAndGet();
+            }
+            this.borrowed.put(jmxc, pool);
+            return jmxc;
+        } catch (IOException e) {
+            pool.permits.release();
+            throw e;
+        } catch (RuntimeException e) {
+            pool.permits.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * Give back a borrowed connector for reuse.
+     * @param jmxc Connector to give back.
+     */
+    public void release(final JMXConnector jmxc) {
+        HostPool pool = (HostPool)this.borrowed.remove(jmxc);
+        if (pool == null) {
+            throw new IllegalArgumentException("Not borrowed from pool");
+        }
+        if (this.closed) {
+            closeQuietly(jmxc);
+        } else {
+            pool.putIdle(jmxc);
+        }
+        pool.permits.release();
+    }
+    
+    /**
+     * Give back a borrowed connector that failed.  It is closed.
+     * @param jmxc Connector to give back.
+     */
+    public void invalidate(final JMXConnector jmxc) {
+        HostPool pool = (HostPool)this.borrowed.remove(jmxc);
+        closeQuietly(jmxc);
+        if (pool != null) {
+            pool.permits.release();
+        }
+    }
+    
+    /**
+     * Close all idle connectors and stop evicting.  Connectors out on loan
+     * are closed when given back.
+     */
+    public void close() {
+        this.closed = true;
+        this.evictor.shutdownNow();
+        for (Iterator i = this.pools.values().iterator(); i.hasNext();) {
+            ((HostPool)i.next()).closeIdle(0);
+        }
+    }
+    
+    /**
+     * @return Summary of pool metrics.
+     */
+    public String getStats() {
+        long count = this.borrows.get();
+        int idle = 0;
+        for (Iterator i = this.pools.values().iterator(); i.hasNext();) {
+            idle += ((HostPool)i.next()).getIdleCount();
+        }
+        return "borrows=" + count +
+            " avgWait=" + Client.formatMillis((count == 0)? 0:
+                this.waitNanos.get() / count) +
+            " maxWait=" + Client.formatMillis(this.maxWaitNanos.get()) +
+            " created=" + this.created.get() +
+            " evicted=" + this.evicted.get() +
+            " failedChecks=" + this.failedChecks.get() +
+            " borrowed=" + this.borrowed.size() + " idle=" + idle;
+    }
+    
+    protected void recordWait(final long nanos) {
+        this.borrows.incrementAndGet();
+        this.waitNanos.addAndGet(nanos);
+        for (long max = this.maxWaitNanos.get(); nanos > max;
+                max = this.maxWaitNanos.get()) {
+            if (this.maxWaitNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+    
+    protected HostPool getHostPool(final String hostport, final String login,
+            final String password) {
+        // Credentials are part of the key so a connection made with one
+        // set is never handed to a caller with another.
+        String key = hostport + "\u0000" + login + "\u0000" + password;
+        HostPool pool = (HostPool)this.pools.get(key);
+        if (pool == null) {
+            synchronized (this.pools) {
+                pool = (HostPool)this.pools.get(key);
+                if (pool == null) {
+                    pool = new HostPool(hostport);
+                    this.pools.put(key, pool);
+                }
+            }
+        }
+        return pool;
+    }
+    
+    protected void evict() {
+        for (Iterator i = this.pools.values().iterator(); i.hasNext();) {
+            ((HostPool)i.next()).closeIdle(this.idleTimeout);
+        }
+    }
+    
+    /**
+     * @param jmxc Connector to check.
+     * @return True if connector answers a cheap remote call.
+     */
+    protected boolean isHealthy(final JMXConnector jmxc) {
+        try {
+            jmxc.getMBeanServerConnection().getDefaultDomain();
+            return true;
+        } catch (Exception e) {
+            this.failedChecks.incrementAndGet();
+            logger.fine("Failed check: " + e);
+            return false;
+        }
+    }
+    
+    protected void closeQuietly(final JMXConnector jmxc) {
+        try {
+            this.client.close(jmxc);
+        } catch (Exception e) {
+            logger.fine("Failed close: " + e);
+        }
+    }
+    
+    /**
+     * Idle connectors, and permits to borrow, for one key.
+     */
+    private class HostPool {
+        private final String hostport;
+        private final Semaphore permits = new Semaphore(maxPerHost, true);
+        
+        /**
+         * Idle connectors, most recently used first.  Each entry is an
+         * Object [] of connector and Long time it was given back.
+         */
+        private final LinkedList idle = new LinkedList();
+        
+        HostPool(final String hostport) {
+            this.hostport = hostport;
+        }
+        
+        /**
+         * @return An idle connector that is good to use or null if none.
+         */
+        JMXConnector takeIdle() {
+            while (true) {
+                Object [] entry = null;
+                synchronized (this.idle) {
+                    if (this.idle.isEmpty()) {
+                        return null;
+                    }
+                    entry = (Object [])this.idle.removeFirst();
+                }
+                JMXConnector jmxc = (JMXConnector)entry[0];
+                long since = System.currentTimeMillis() -
+                    ((Long)entry[1]).longValue();
+                if (since < checkAfter || isHealthy(jmxc)) {
+                    return jmxc;
+                }
+                closeQuietly(jmxc);
+            }
+        }
+        
+        void putIdle(final JMXConnector jmxc) {
+            synchronized (this.idle) {
+                this.idle.addFirst(new Object [] {jmxc,
+                    Long.valueOf(System.currentTimeMillis())});
+            }
+        }
+        
+        int getIdleCount() {
+            synchronized (this.idle) {
+                return this.idle.size();
+            }
+        }
+        
+        /**
+         * @param timeout Close connectors idle longer than this.
+         */
+        void closeIdle(final long timeout) {
+            long now = System.currentTimeMillis();
+            List victims = new LinkedList();
+            synchronized (this.idle) {
+                // Least recently used are at the end.
+                while (!this.idle.isEmpty()) {
+                    Object [] entry = (Object [])this.idle.getLast();
+                    if (now - ((Long)entry[1]).longValue() < timeout) {
+                        break;
+                    }
+                    victims.add(this.idle.removeLast());
+                }
+            }
+            for (Iterator i = victims.iterator(); i.hasNext();) {
+                closeQuietly((JMXConnector)((Object [])i.next())[0]);
+                evicted.incrementAndGet();
+            }
+            if (victims.size() > 0) {
+                logger.fine("Evicted " + victims.size() + " from " +
+                    this.hostport);
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * ConnectionPoolTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.management.MBeanServerFactory;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of {@link ConnectionPool} against a JMXConnectorServer on loopback.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class ConnectionPoolTest extends TestCase {
+    private static final String BEAN =
+        "JMImplementation:type=MBeanServerDelegate";
+
+    private Registry registry;
+    private JMXConnectorServer server;
+    private String hostport;
+    private Client client;
+    private ConnectionPool pool;
+    private ExecutorService executor;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (System.getProperty("java.rmi.server.hostname") == null) {
+            System.setProperty("java.rmi.server.hostname", "localhost");
+        }
+        ServerSocket s = new ServerSocket(0);
+        int port = s.getLocalPort();
+        s.close();
+        this.registry = LocateRegistry.createRegistry(port);
+        this.server = JMXConnectorServerFactory.newJMXConnectorServer(
+            new JMXServiceURL("service:jmx:rmi:///jndi/rmi://localhost:" +
+                port + "/jmxrmi"), null, MBeanServerFactory.newMBeanServer());
+        this.server.start();
+        this.hostport = "localhost:" + port;
+        this.client = new Client();
+        this.executor = Executors.newCachedThreadPool(
+            new DaemonThreadFactory("borrower"));
+    }
+
+    protected void tearDown() throws Exception {
+        this.executor.shutdownNow();
+        if (this.pool != null) {
+            this.pool.close();
+        }
+        this.server.stop();
+        UnicastRemoteObject.unexportObject(this.registry, true);
+        super.tearDown();
+    }
+
+    protected ConnectionPool newPool(final int maxPerHost,
+            final long idleTimeout) {
+        this.pool = new ConnectionPool(this.client, maxPerHost, idleTimeout);
+        this.client.setConnectionPool(this.pool);
+        return this.pool;
+    }
+
+    protected JMXConnector borrow() throws IOException {
+        return this.pool.borrow(this.hostport, null, null);
+    }
+
+    protected Future borrowLater() {
+        return this.executor.submit(new Callable() {
+            public Object call() throws Exception {
+                return borrow();
+            }
+        });
+    }
+
+    /**
+     * @return Value of <code>name</code> in the pool's stats.
+     */
+    protected long stat(final String name) {
+        Matcher m = Pattern.compile("\\b" + name + "=(\\d+)").matcher(
+            this.pool.getStats());
+        assertTrue(this.pool.getStats(), m.find());
+        return Long.parseLong(m.group(1));
+    }
+
+    protected static boolean isOpen(final JMXConnector jmxc) {
+        try {
+            jmxc.getConnectionId();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void testBlocksAtMaxPerHost() throws Exception {
+        newPool(1, 60000);
+        this.pool.setBorrowTimeout(200);
+        JMXConnector a = borrow();
+        long start = System.currentTimeMillis();
+        try {
+            borrow();
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(),
+                e.getMessage().startsWith("Timed out after 200ms"));
+        }
+        assertTrue(System.currentTimeMillis() - start >= 200);
+        // A waiting borrower gets the connector once it is given back.
+        this.pool.setBorrowTimeout(5000);
+        Future waiter = borrowLater();
+        Thread.sleep(100);
+        assertFalse(waiter.isDone());
+        this.pool.release(a);
+        assertSame(a, waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(1, stat("created"));
+        // Other credentials are another host's worth.
+        JMXConnector other = this.pool.borrow(this.hostport, "x", "y");
+        assertTrue(a != other);
+        this.pool.release(other);
+    }
+
+    public void testReuseIsLastInFirstOut() throws Exception {
+        newPool(2, 60000);
+        JMXConnector a = borrow();
+        JMXConnector b = borrow();
+        this.pool.release(a);
+        this.pool.release(b);
+        assertSame(b, borrow());
+        assertSame(a, borrow());
+        assertEquals(2, stat("created"));
+        assertEquals(2, stat("borrowed"));
+        this.pool.release(a);
+        this.pool.release(b);
+    }
+
+    public void testIdleAreEvicted() throws Exception {
+        newPool(2, 100);
+        JMXConnector a = borrow();
+        this.pool.release(a);
+        assertEquals(1, stat("idle"));
+        for (int i = 0; i < 100 && stat("evicted") == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, stat("evicted"));
+        assertEquals(0, stat("idle"));
+        assertFalse(isOpen(a));
+        JMXConnector b = borrow();
+        assertTrue(a != b);
+        assertEquals(2, stat("created"));
+        this.pool.release(b);
+    }
+
+    public void testFailedCheckDiscards() throws Exception {
+        newPool(1, 60000);
+        this.pool.setCheckAfter(0);
+        JMXConnector a = borrow();
+        this.pool.release(a);
+        // Healthy: handed out again after the check.
+        assertSame(a, borrow());
+        this.pool.release(a);
+        // Broken while idle: the check fails and it is dropped.
+        a.close();
+        JMXConnector b = borrow();
+        assertTrue(a != b);
+        assertTrue(isOpen(b));
+        assertEquals(1, stat("failedChecks"));
+        assertEquals(2, stat("created"));
+        this.pool.release(b);
+    }
+
+    public void testInvalidateOnIOException() throws Exception {
+        newPool(1, 60000);
+        assertEquals(1, this.client.executeOneCmd(this.hostport, null, null,
+            BEAN, "MBeanServerId").length);
+        assertEquals(1, stat("idle"));
+        // Break the idle connector.  Recently used so it is not checked.
+        JMXConnector a = borrow();
+        this.pool.release(a);
+        a.close();
+        try {
+            this.client.executeOneCmd(this.hostport, null, null, BEAN,
+                "MBeanServerId");
+            fail();
+        } catch (IOException e) {
+            // Expected.
+        }
+        // Dropped, and its permit given back.
+        assertEquals(0, stat("idle"));
+        assertEquals(0, stat("borrowed"));
+        assertEquals(1, this.client.executeOneCmd(this.hostport, null, null,
+            BEAN, "MBeanServerId").length);
+        assertEquals(2, stat("created"));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * CountingSocketFactory
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMISocketFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * RMI socket factory that counts bytes sent and received over the client
+ * sockets it makes.
+ * <p>Installed JVM-wide with {@link RMISocketFactory#setSocketFactory}, so
+ * it sees the registry lookup and every call made through a stub that
+ * carries no socket factory of its own, which is how the default JMX agent
+ * exports its stubs unless SSL is on.  Stubs with their own factory (e.g.
+ * SSL) are not counted.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class CountingSocketFactory extends RMISocketFactory {
+    private static final Logger logger =
+        Logger.getLogger(CountingSocketFactory.class.getName());
+    
+    private static final AtomicLong sent = new AtomicLong(0);
+    private static final AtomicLong received = new AtomicLong(0);
+    
+    private static volatile boolean installed = false;
+    
+    private CountingSocketFactory() {
+        super();
+    }
+    
+    /**
+     * Install as the JVM-wide RMI socket factory.  Does nothing if
+     * someone else has installed a factory already.
+     */
+    static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        try {
+            RMISocketFactory.setSocketFactory(new CountingSocketFactory());
+            installed = true;
+        } catch (IOException e) {
+            logger.warning("Bytes not counted: " + e);
+        }
+    }
+    
+    static boolean isInstalled() {
+        return installed;
+    }
+    
+    static long getBytesSent() {
+        return sent.get();
+    }
+    
+    static long getBytesReceived() {
+        return received.get();
+    }
+    
+    public Socket createSocket(final String host, final int port)
+    throws IOException {
+        return new CountingSocket(host, port);
+    }
+    
+    public ServerSocket createServerSocket(final int port)
+    throws IOException {
+        return getDefaultSocketFactory().createServerSocket(port);
+    }
+    
+    /**
+     * Socket whose streams count what goes through them.
+     */
+    private static class CountingSocket extends Socket {
+        private InputStream in = null;
+        private OutputStream out = null;
+        
+        CountingSocket(final String host, final int port)
+        throws IOException {
+            super(host, port);
+        }
+        
+        public synchronized InputStream getInputStream()
+        throws IOException {
+            if (this.in == null) {
+                this.in = new FilterInputStream(super.getInputStream()) {
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b >= 0) {
+                            received.incrementAndGet();
+                        }
+                        return b;
+                    }
+                    
+                    public int read(byte [] b, int off, int len)
+                    throws IOException {
+                        int n = super.read(b, off, len);
+                        if (n > 0) {
+                            received.addAndGet(n);
+                        }
+                        return n;
+                    }
+                };
+            }
+            return this.in;
+        }
+        
+        public synchronized OutputStream getOutputStream()
+        throws IOException {
+            if (this.out == null) {
+                this.out = new FilterOutputStream(super.getOutputStream()) {
+                    public void write(int b) throws IOException {
+                        this.out.write(b);
+                        sent.incrementAndGet();
+                    }
+                    
+                    public void write(byte [] b, int off, int len)
+                    throws IOException {
+                        // Not super.write: it writes a byte at a time.
+                        this.out.write(b, off, len);
+                        sent.addAndGet(len);
+                    }
+                };
+            }
+            return this.out;
+        }
+    }
+}
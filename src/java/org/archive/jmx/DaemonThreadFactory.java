@@ -0,0 +1,52 @@
+/*
+ * DaemonThreadFactory
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes named daemon threads so worker pools never hold up JVM exit.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class DaemonThreadFactory implements ThreadFactory {
+    private final String prefix;
+    
+    private final AtomicInteger count = new AtomicInteger(0);
+    
+    DaemonThreadFactory(final String prefix) {
+        super();
+        this.prefix = prefix;
+    }
+    
+    public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, this.prefix + "-" + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * DeadlineConnector
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+/**
+ * Connector whose server connection gives up on calls that take longer
+ * than a deadline.
+ * <p>Each call on the connection is run on a pool thread while the caller
+ * waits up to the deadline.  If the deadline passes, or the caller is
+ * interrupted, the call fails with an InterruptedIOException and the
+ * connection is torn down -- closing it aborts the stuck call and frees the
+ * RMI threads behind it -- so later calls fail fast.  Counts calls and
+ * timeouts and keeps call latency; these are logged at FINE on close.
+ * <p>Also has {@link #connect(JMXServiceURL, Map, long)}, which bounds how
+ * long we wait on a connect.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class DeadlineConnector extends ForwardingConnector {
+    private static final Logger logger =
+        Logger.getLogger(DeadlineConnector.class.getName());
+    
+    /**
+     * Runs calls, connects and closes.  Threads are made as needed: a stuck
+     * call holds its thread until the connection is torn down.
+     */
+    private static final ExecutorService CALLS =
+        Executors.newCachedThreadPool(new DaemonThreadFactory("call"));
+    
+    private final long timeout;
+    
+    private volatile boolean tornDown = false;
+    
+    private final AtomicLong calls = new AtomicLong(0);
+    private final AtomicLong timeouts = new AtomicLong(0);
+    private final AtomicLong totalNanos = new AtomicLong(0);
+    private final AtomicLong maxNanos = new AtomicLong(0);
+    
+    /**
+     * @param delegate Connector to wrap.
+     * @param name Name to use in messages (E.g. 'host:port').
+     * @param timeout Milliseconds a call may take.  If <= 0, no limit but
+     * calls are still abandoned, and the connection torn down, if the
+     * caller is interrupted.
+     * @throws IOException
+     */
+    DeadlineConnector(final JMXConnector delegate, final String name,
+            final long timeout)
+    throws IOException {
+        super(delegate, name);
+        this.timeout = timeout;
+    }
+    
+    /**
+     * Connect, waiting no longer than <code>timeout</code>.  If the connect
+     * completes after we've given up on it, the connector is closed.
+     * @param url Where to connect.
+     * @param env Connect environment.
+     * @param timeout Milliseconds to wait.  If <= 0, no limit but the
+     * connect is still abandoned if the caller is interrupted.
+     * @return Connector.
+     * @throws IOException If connect fails or times out.
+     */
+    static JMXConnector connect(final JMXServiceURL url, final Map env,
+            final long timeout)
+    throws IOException {
+        final Object lock = new Object();
+        final boolean [] abandoned = new boolean [] {false};
+        Future future = CALLS.submit(new Callable() {
+            public Object call() throws Exception {
+                JMXConnector jmxc = JMXConnectorFactory.connect(url, env);
+                synchronized (lock) {
+                    if (abandoned[0]) {
+                        closeQuietly(jmxc);
+                        return null;
+                    }
+                }
+                return jmxc;
+            }
+        });
+        try {
+            return (JMXConnector)((timeout > 0)?
+                future.get(timeout, TimeUnit.MILLISECONDS): future.get());
+        } catch (TimeoutException e) {
+            abandon(future, lock, abandoned);
+            throw new InterruptedIOException("Connect to " + url +
+                " timed out after " + timeout + "ms");
+        } catch (InterruptedException e) {
+            abandon(future, lock, abandoned);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Connect to " + url +
+                " interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw (IOException)new IOException("Connect to " + url +
+                " failed").initCause(e.getCause());
+        }
+    }
+    
+    private static void abandon(final Future future, final Object lock,
+            final boolean [] abandoned) {
+        synchronized (lock) {
+            abandoned[0] = true;
+            if (future.isDone() && !future.isCancelled()) {
+                // Connected between our giving up and taking the lock.
+                try {
+                    closeQuietly((JMXConnector)future.get());
+                } catch (Exception e) {
+                    // Connect failed.  Nothing to close.
+                }
+            }
+        }
+        future.cancel(true);
+    }
+    
+    protected Object call(final MBeanServerConnection target,
+            final Method method, final Object [] args)
+    throws Throwable {
+        if (this.tornDown) {
+            throw new IOException(this.name + ": Connection torn down" +
+                " after a call timed out");
+        }
+        long start = System.nanoTime();
+        Future future = CALLS.submit(new Callable() {
+            public Object call() throws Exception {
+                return method.invoke(target, args);
+            }
+        });
+        try {
+            return (this.timeout > 0)?
+                future.get(this.timeout, TimeUnit.MILLISECONDS):
+                future.get();
+        } catch (TimeoutException e) {
+            this.timeouts.incrementAndGet();
+            tearDown(future);
+            throw new InterruptedIOException(this.name + ": " +
+                method.getName() + " timed out after " + this.timeout +
+                "ms");
+        } catch (InterruptedException e) {
+            tearDown(future);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(this.name + ": " +
+                method.getName() + " interrupted");
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            throw (t instanceof InvocationTargetException)?
+                ((InvocationTargetException)t).getTargetException(): t;
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+    
+    protected void record(final long nanos) {
+        this.calls.incrementAndGet();
+        this.totalNanos.addAndGet(nanos);
+        for (long max = this.maxNanos.get(); nanos > max;
+                max = this.maxNanos.get()) {
+            if (this.maxNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Abandon <code>future</code> and close the connection under it.  Close
+     * may block too so is done on a pool thread.
+     * @param future Call to abandon.
+     */
+    protected void tearDown(final Future future) {
+        future.cancel(true);
+        if (this.tornDown) {
+            return;
+        }
+        this.tornDown = true;
+        CALLS.execute(new Runnable() {
+            public void run() {
+                closeQuietly(DeadlineConnector.this.delegate);
+            }
+        });
+    }
+    
+    /**
+     * @return Calls made, calls timed out and call latency.
+     */
+    public String getStats() {
+        long count = this.calls.get();
+        return this.name + " calls=" + count + " timeouts=" +
+            this.timeouts.get() + " avg=" + Client.formatMillis((count == 0)?
+                0: this.totalNanos.get() / count) +
+            " max=" + Client.formatMillis(this.maxNanos.get());
+    }
+    
+    protected static void closeQuietly(final JMXConnector jmxc) {
+        try {
+            jmxc.close();
+        } catch (Exception e) {
+            logger.fine("Failed close: " + e);
+        }
+    }
+    
+    public void close() throws IOException {
+        logger.fine(getStats());
+        if (!this.tornDown) {
+            this.delegate.close();
+        }
+    }
+}
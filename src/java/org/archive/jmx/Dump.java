@@ -0,0 +1,408 @@
+/*
+ * Dump
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+
+/**
+ * Dump all readable attributes of all beans, or of all beans that match a
+ * pattern, and diff two dumps.
+ * <p>A dump is a line per leaf value -- composites, tables and arrays are
+ * flattened as by {@link ResultFormat} -- of tab-separated bean name,
+ * attribute path and value with tab, newline, carriage return and
+ * backslash escaped.  Each bean's lines are led by a line with an empty
+ * path and value that marks the bean present, so a bean none of whose
+ * attributes could be read is still in the dump and a diff tells beans
+ * that come and go from values that do.  Lines are sorted by bean then
+ * path, so two dumps can be diffed by a merge that holds only a line of
+ * each in memory.  Lines that start with '#' are comments.
+ * <p>Bean names are fetched with one queryNames.  Beans' attributes are then
+ * fetched with a getAttributes per bean on a bounded pool of workers and
+ * written in order as they come in.  Attributes that fail to read are left
+ * out of the dump.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class Dump {
+    private static final Logger logger =
+        Logger.getLogger(Dump.class.getName());
+    
+    /**
+     * Count of beans we let workers get ahead of the writer, per worker.
+     */
+    private static final int WINDOW_PER_THREAD = 4;
+    
+    private final Client client;
+    private final MBeanServerConnection mbsc;
+    private final int threads;
+    
+    private int beans = 0;
+    private int values = 0;
+    private int failed = 0;
+    
+    Dump(final Client client, final MBeanServerConnection mbsc,
+            final int threads) {
+        super();
+        this.client = client;
+        this.mbsc = mbsc;
+        this.threads = threads;
+    }
+    
+    /**
+     * @param pattern Beans to dump (Null for all).
+     * @param writer Where to write dump.
+     * @throws Exception
+     */
+    void run(final ObjectName pattern, final Writer writer)
+    throws Exception {
+        long start = System.nanoTime();
+        Map names = new TreeMap();
+        for (Iterator i = this.mbsc.queryNames(pattern,
+                this.client.getQuery()).iterator(); i.hasNext();) {
+            ObjectName name = (ObjectName)i.next();
+            names.put(name.getCanonicalName(), name);
+        }
+        writer.write("# " + names.size() + " beans\n");
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads,
+            new DaemonThreadFactory("dump"));
+        try {
+            LinkedList pending = new LinkedList();
+            for (Iterator i = names.values().iterator(); i.hasNext();) {
+                final ObjectName name = (ObjectName)i.next();
+                pending.add(pool.submit(new Callable() {
+                    public Object call() throws Exception {
+                        return fetch(name);
+                    }
+                }));
+                if (pending.size() >= this.threads * WINDOW_PER_THREAD) {
+                    write((Future)pending.removeFirst(), writer);
+                }
+            }
+            while (!pending.isEmpty()) {
+                write((Future)pending.removeFirst(), writer);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        writer.flush();
+        logger.info("Dumped " + this.values + " values of " + this.beans +
+            " beans in " + Client.formatMillis(System.nanoTime() - start) +
+            "; " + this.failed + " failed");
+    }
+    
+    protected void write(final Future future, final Writer writer)
+    throws IOException, InterruptedException {
+        Leaves leaves = null;
+        try {
+            leaves = (Leaves)future.get();
+        } catch (ExecutionException e) {
+            this.failed++;
+            logger.warning(e.getCause().toString());
+            return;
+        }
+        this.beans++;
+        this.failed += leaves.failed;
+        // Marks the bean present.  Sorts before its values since no
+        // attribute path is empty.
+        writeField(writer, leaves.bean);
+        writer.write("\t\t\n");
+        for (Iterator i = leaves.values.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry)i.next();
+            writeField(writer, leaves.bean);
+            writer.write('\t');
+            writeField(writer, (String)e.getKey());
+            writer.write('\t');
+            writeField(writer, (String)e.getValue());
+            writer.write('\n');
+            this.values++;
+        }
+    }
+    
+    /**
+     * @param name Bean to fetch.
+     * @return Leaf values of the bean's readable attributes.
+     * @throws Exception
+     */
+    protected Leaves fetch(final ObjectName name) throws Exception {
+        MBeanAttributeInfo [] infos =
+            this.client.getMBeanInfo(this.mbsc, name).getAttributes();
+        int count = 0;
+        for (int i = 0; i < infos.length; i++) {
+            if (infos[i].isReadable()) {
+                count++;
+            }
+        }
+        String [] attributes = new String[count];
+        for (int i = 0, j = 0; i < infos.length; i++) {
+            if (infos[i].isReadable()) {
+                attributes[j++] = infos[i].getName();
+            }
+        }
+        Leaves leaves = new Leaves(name.getCanonicalName());
+        AttributeList list = null;
+        try {
+            list = this.mbsc.getAttributes(name, attributes);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            // Some servers fail the lot if one fails.  Go one at a time.
+            list = new AttributeList();
+            for (int i = 0; i < attributes.length; i++) {
+                try {
+                    list.add(new Attribute(attributes[i],
+                        this.mbsc.getAttribute(name, attributes[i])));
+                } catch (IOException ioe) {
+                    throw ioe;
+                } catch (Exception ae) {
+                    logger.fine(leaves.bean + " " + attributes[i] + ": " +
+                        ae);
+                }
+            }
+        }
+        // getAttributes leaves out those that fail.
+        leaves.failed = attributes.length - list.size();
+        for (Iterator i = list.iterator(); i.hasNext();) {
+            Attribute a = (Attribute)i.next();
+            leaves.write(null, leaves.bean, a.getName(), a.getValue());
+        }
+        return leaves;
+    }
+    
+    /**
+     * Print the differences between dump files <code>a</code> and
+     * <code>b</code>: '- BEAN' and '+ BEAN' for beans only in one,
+     * '- BEAN PATH: VALUE' and '+ BEAN PATH: VALUE' for values only in one
+     * and '~ BEAN PATH: A -> B' for values that changed.
+     * @param a Baseline dump.
+     * @param b Dump to compare.
+     * @param writer Where to print.
+     * @return Count of differences.
+     * @throws IOException
+     */
+    static int diff(final String a, final String b, final Writer writer)
+    throws IOException {
+        LineReader ra = new LineReader(a);
+        LineReader rb = new LineReader(b);
+        int count = 0;
+        try {
+            ra.next();
+            rb.next();
+            // Bean in both dumps whose values we are comparing.
+            String current = null;
+            while (ra.bean != null || rb.bean != null) {
+                boolean inA = ra.bean != null && ra.bean.equals(current);
+                boolean inB = rb.bean != null && rb.bean.equals(current);
+                if (!inA && !inB) {
+                    int c = (ra.bean == null)? 1: (rb.bean == null)? -1:
+                        ra.bean.compareTo(rb.bean);
+                    if (c < 0) {
+                        writer.write("- " + ra.bean + "\n");
+                        ra.skipBean();
+                        count++;
+                    } else if (c > 0) {
+                        writer.write("+ " + rb.bean + "\n");
+                        rb.skipBean();
+                        count++;
+                    } else {
+                        current = ra.bean;
+                    }
+                    continue;
+                }
+                // Bean markers only count toward presence, seen above.
+                // Dumps from before markers have none.
+                if (inA && ra.path.length() == 0) {
+                    ra.next();
+                    continue;
+                }
+                if (inB && rb.path.length() == 0) {
+                    rb.next();
+                    continue;
+                }
+                int c = !inB? -1: !inA? 1: ra.path.compareTo(rb.path);
+                if (c < 0) {
+                    writer.write("- " + ra.bean + " " + ra.path + ": " +
+                        ra.value + "\n");
+                    ra.next();
+                    count++;
+                } else if (c > 0) {
+                    writer.write("+ " + rb.bean + " " + rb.path + ": " +
+                        rb.value + "\n");
+                    rb.next();
+                    count++;
+                } else {
+                    if (!ra.value.equals(rb.value)) {
+                        writer.write("~ " + ra.bean + " " + ra.path + ": " +
+                            ra.value + " -> " + rb.value + "\n");
+                        count++;
+                    }
+                    ra.next();
+                    rb.next();
+                }
+            }
+        } finally {
+            ra.close();
+            rb.close();
+        }
+        writer.flush();
+        return count;
+    }
+    
+    protected static void writeField(final Writer writer, final String s)
+    throws IOException {
+        if (s == null) {
+            return;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\t': writer.write("\\t"); break;
+                case '\n': writer.write("\\n"); break;
+                case '\r': writer.write("\\r"); break;
+                case '\\': writer.write("\\\\"); break;
+                default: writer.write(c);
+            }
+        }
+    }
+    
+    protected static String readField(final String s) {
+        if (s.indexOf('\\') < 0) {
+            return s;
+        }
+        StringBuffer buffer = new StringBuffer(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c != '\\' || i + 1 == s.length()) {
+                buffer.append(c);
+                continue;
+            }
+            c = s.charAt(++i);
+            buffer.append((c == 't')? '\t': (c == 'n')? '\n':
+                (c == 'r')? '\r': c);
+        }
+        return buffer.toString();
+    }
+    
+    /**
+     * Leaf values of one bean keyed by path, sorted.
+     */
+    static class Leaves extends ResultFormat.Flattening {
+        private final String bean;
+        private final Map values = new TreeMap();
+        private int failed = 0;
+        
+        Leaves(final String bean) {
+            super(null);
+            this.bean = bean;
+        }
+        
+        /**
+         * We write nowhere so <code>w</code> is ignored.
+         * @return Empty Leaves of the same bean.
+         */
+        public ResultFormat newInstance(final Writer w) {
+            return new Leaves(this.bean);
+        }
+        
+        protected void leaf(String host, String bean, String path,
+                Object value) {
+            this.values.put(path, String.valueOf(value));
+        }
+    }
+    
+    /**
+     * Reads a dump a line at a time.
+     */
+    static class LineReader {
+        private final String file;
+        private final BufferedReader reader;
+        private String bean = null;
+        private String path = null;
+        private String value = null;
+        
+        LineReader(final String file) throws IOException {
+            super();
+            this.file = file;
+            this.reader = new BufferedReader(new FileReader(file));
+        }
+        
+        /**
+         * Read next line.  <code>bean</code> is null at end of file.
+         * @throws IOException
+         */
+        void next() throws IOException {
+            for (String line = this.reader.readLine(); line != null;
+                    line = this.reader.readLine()) {
+                if (line.length() == 0 || line.startsWith("#")) {
+                    continue;
+                }
+                String [] fields = line.split("\t", 3);
+                if (fields.length < 3) {
+                    throw new IOException(this.file + ": Bad line: " + line);
+                }
+                this.bean = readField(fields[0]);
+                this.path = readField(fields[1]);
+                this.value = readField(fields[2]);
+                return;
+            }
+            this.bean = null;
+        }
+        
+        /**
+         * Read past the lines of the current bean.
+         * @throws IOException
+         */
+        void skipBean() throws IOException {
+            String current = this.bean;
+            do {
+                next();
+            } while (this.bean != null && this.bean.equals(current));
+        }
+        
+        void close() throws IOException {
+            this.reader.close();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * DumpTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of writing {@link Dump}s of an in-process MBeanServer and of
+ * diffing them.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class DumpTest extends TestCase {
+    private MBeanServer mbs;
+    private Counter counter;
+    private File a;
+    private File b;
+
+    public interface CounterMBean {
+        int getCount();
+        String getName();
+    }
+
+    public static class Counter implements CounterMBean {
+        private int count = 1;
+
+        public synchronized int getCount() {
+            return this.count;
+        }
+
+        public String getName() {
+            return "tab\there";
+        }
+
+        synchronized void setCount(final int count) {
+            this.count = count;
+        }
+    }
+
+    /**
+     * Bean with nothing to read.
+     */
+    public interface EmptyMBean {
+        void reset();
+    }
+
+    public static class Empty implements EmptyMBean {
+        public void reset() {
+            // Nothing to do.
+        }
+    }
+
+    /**
+     * Bean whose one attribute fails to read.
+     */
+    public interface BrokenMBean {
+        int getValue();
+    }
+
+    public static class Broken implements BrokenMBean {
+        public int getValue() {
+            throw new IllegalStateException("Broken");
+        }
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mbs = MBeanServerFactory.newMBeanServer();
+        this.counter = new Counter();
+        this.mbs.registerMBean(this.counter,
+            new ObjectName("test:type=Counter"));
+        this.mbs.registerMBean(new Empty(), new ObjectName("test:type=Empty"));
+        this.mbs.registerMBean(new Broken(),
+            new ObjectName("test:type=Broken"));
+        this.a = File.createTempFile("dump", ".a");
+        this.b = File.createTempFile("dump", ".b");
+    }
+
+    protected void tearDown() throws Exception {
+        this.a.delete();
+        this.b.delete();
+        super.tearDown();
+    }
+
+    protected void dump(final File f) throws Exception {
+        Writer writer = new FileWriter(f);
+        try {
+            new Dump(new Client(), this.mbs, 2).run(
+                new ObjectName("test:*"), writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    protected String diff() throws IOException {
+        StringWriter writer = new StringWriter();
+        Dump.diff(this.a.getPath(), this.b.getPath(), writer);
+        return writer.toString();
+    }
+
+    protected static String read(final File f) throws IOException {
+        FileReader reader = new FileReader(f);
+        try {
+            StringWriter writer = new StringWriter();
+            char [] buffer = new char[1024];
+            for (int n = reader.read(buffer); n > 0; n = reader.read(buffer)) {
+                writer.write(buffer, 0, n);
+            }
+            return writer.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    protected static void write(final File f, final String s)
+    throws IOException {
+        Writer writer = new FileWriter(f);
+        try {
+            writer.write(s);
+        } finally {
+            writer.close();
+        }
+    }
+
+    public void testDumpMarksEachBean() throws Exception {
+        dump(this.a);
+        assertEquals("# 3 beans\n" +
+            "test:type=Broken\t\t\n" +
+            "test:type=Counter\t\t\n" +
+            "test:type=Counter\tCount\t1\n" +
+            "test:type=Counter\tName\ttab\\there\n" +
+            "test:type=Empty\t\t\n", read(this.a));
+    }
+
+    public void testSameDumpsDoNotDiffer() throws Exception {
+        dump(this.a);
+        dump(this.b);
+        assertEquals("", diff());
+    }
+
+    public void testBeansWithoutValuesDiffByPresence() throws Exception {
+        dump(this.a);
+        this.mbs.unregisterMBean(new ObjectName("test:type=Empty"));
+        this.mbs.unregisterMBean(new ObjectName("test:type=Broken"));
+        this.mbs.registerMBean(new Empty(), new ObjectName("test:type=New"));
+        this.counter.setCount(2);
+        dump(this.b);
+        assertEquals("- test:type=Broken\n" +
+            "~ test:type=Counter Count: 1 -> 2\n" +
+            "- test:type=Empty\n" +
+            "+ test:type=New\n", diff());
+    }
+
+    public void testValuesComeAndGo() throws Exception {
+        write(this.a, "x:a=1\t\t\nx:a=1\tA\t1\nx:a=1\tB\t2\nx:a=2\t\t\n");
+        write(this.b, "x:a=1\t\t\nx:a=1\tB\t3\nx:a=1\tC\t4\nx:a=2\t\t\n" +
+            "x:a=2\tD\t5\n");
+        assertEquals("- x:a=1 A: 1\n" +
+            "~ x:a=1 B: 2 -> 3\n" +
+            "+ x:a=1 C: 4\n" +
+            "+ x:a=2 D: 5\n", diff());
+    }
+
+    public void testDumpsWithoutMarkers() throws Exception {
+        // As written before beans were marked.
+        write(this.a, "# 2 beans\nx:a=1\tA\t1\nx:a=2\tB\t2\n");
+        write(this.b, "x:a=1\t\t\nx:a=1\tA\t1\nx:a=2\t\t\nx:a=2\tB\t3\n" +
+            "x:a=3\t\t\n");
+        assertEquals("~ x:a=2 B: 2 -> 3\n+ x:a=3\n", diff());
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Exporter
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.remote.JMXConnector;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serve attributes of remote beans over HTTP in the Prometheus text
+ * exposition format.
+ * <p>Connections to the targets are kept open in a {@link ConnectionPool}
+ * between scrapes.  Metric names are made of bean domain and attribute
+ * name; the bean's key properties become labels, as does the field name for
+ * CompositeData attributes (<code>field="used"</code>).  If more than one
+ * target, each sample is labelled with the target's <code>host</code>.
+ * Only Number and Boolean values are exported.
+ * <p>Scrapes that arrive while a collection is in flight wait on that
+ * collection rather than start their own, and a finished collection is
+ * served from cache until <code>ttl</code> has passed, so the load we put on
+ * the targets is independent of the count of scrapers.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class Exporter implements HttpHandler {
+    private static final Logger logger =
+        Logger.getLogger(Exporter.class.getName());
+    
+    private static final String CONTENT_TYPE =
+        "text/plain; version=0.0.4; charset=utf-8";
+    
+    private static final int HTTP_THREADS = 4;
+    
+    private final Client client;
+    private final ConnectionPool pool;
+    private final List hosts;
+    private final String login;
+    private final String password;
+    
+    /**
+     * Beans to export.  Each is an Object [] of ObjectName (May be a
+     * pattern) and String [] of attribute names.
+     */
+    private final List metrics;
+    
+    private final long ttl;
+    
+    /**
+     * Collects from the targets in parallel.
+     */
+    private final ExecutorService collectors;
+    
+    private final Object lock = new Object();
+    
+    /**
+     * Collection in flight or null if none.  Guarded by <code>lock</code>.
+     */
+    private Future inflight = null;
+    
+    /**
+     * Last collected page and when it was collected (Milliseconds).
+     * Guarded by <code>lock</code>.
+     */
+    private byte [] page = null;
+    private long collected = 0;
+    
+    /**
+     * @param client Client to make connections with.
+     * @param hosts List of 'host:port' of targets.
+     * @param login RMI login to use (May be null).
+     * @param password RMI password to use (May be null).
+     * @param metrics List of beans to export: Object [] of bean name or
+     * pattern and String [] of attribute names.
+     * @param ttl Milliseconds to serve a collection from cache.
+     * @param threads Count of targets to collect from at once.
+     */
+    Exporter(final Client client, final List hosts, final String login,
+            final String password, final List metrics, final long ttl,
+            final int threads) {
+        super();
+        this.client = client;
+        // One connection per target is plenty: collections never overlap.
+        this.pool = new ConnectionPool(client, 1, Long.MAX_VALUE / 2);
+        this.hosts = hosts;
+        this.login = login;
+        this.password = password;
+        this.metrics = metrics;
+        this.ttl = ttl;
+        this.collectors = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(threads, hosts.size())),
+            new DaemonThreadFactory("collector"));
+    }
+    
+    /**
+     * Serve on <code>port</code> until killed.
+     * @param port Port to listen on.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    void run(final int port) throws IOException, InterruptedException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/", this);
+        server.setExecutor(Executors.newFixedThreadPool(HTTP_THREADS,
+            new DaemonThreadFactory("http")));
+        server.start();
+        logger.info("Serving " + this.hosts + " on port " +
+            server.getAddress().getPort());
+        try {
+            new CountDownLatch(1).await();
+        } finally {
+            server.stop(0);
+            this.pool.close();
+        }
+    }
+    
+    public void handle(final HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte [] body = null;
+            try {
+                body = getPage();
+            } catch (Exception e) {
+                logger.severe("Failed collection: " + e);
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    /**
+     * @return Cached page if fresh, else the page of the collection in
+     * flight, else the page of a new collection run in this thread.
+     * @throws Exception
+     */
+    protected byte [] getPage() throws Exception {
+        FutureTask task = null;
+        Future wait = null;
+        synchronized (this.lock) {
+            if (this.page != null &&
+                    System.currentTimeMillis() - this.collected < this.ttl) {
+                return this.page;
+            }
+            if (this.inflight == null) {
+                task = new FutureTask(new Callable() {
+                    public Object call() throws Exception {
+                        return collect();
+                    }
+                });
+                this.inflight = task;
+            }
+            wait = this.inflight;
+        }
+        if (task != null) {
+            try {
+                task.run();
+            } finally {
+                synchronized (this.lock) {
+                    this.inflight = null;
+                    if (!task.isCancelled()) {
+                        try {
+                            this.page = (byte [])task.get();
+                            this.collected = System.currentTimeMillis();
+                        } catch (ExecutionException e) {
+                            // Next scrape tries again.
+                        }
+                    }
+                }
+            }
+        }
+        try {
+            return (byte [])wait.get();
+        } catch (ExecutionException e) {
+            throw (Exception)e.getCause();
+        }
+    }
+    
+    /**
+     * Collect from all targets.
+     * @return Page in Prometheus text format.
+     * @throws Exception
+     */
+    protected byte [] collect() throws Exception {
+        long start = System.nanoTime();
+        List futures = new ArrayList(this.hosts.size());
+        for (Iterator i = this.hosts.iterator(); i.hasNext();) {
+            final String hostport = (String)i.next();
+            futures.add(this.collectors.submit(new Callable() {
+                public Object call() throws Exception {
+                    return collect(hostport);
+                }
+            }));
+        }
+        // Samples keyed by metric name; each value is a Set of sample lines.
+        Map samples = new TreeMap();
+        int errors = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                merge(samples, (Map)((Future)futures.get(i)).get());
+            } catch (ExecutionException e) {
+                errors++;
+                logger.severe(this.hosts.get(i) + ": " + e.getCause());
+            }
+        }
+        StringBuffer buffer = new StringBuffer();
+        for (Iterator i = samples.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry)i.next();
+            buffer.append("# TYPE ").append(e.getKey()).append(" untyped\n");
+            for (Iterator j = ((Set)e.getValue()).iterator(); j.hasNext();) {
+                buffer.append(j.next()).append('\n');
+            }
+        }
+        buffer.append("# TYPE jmx_scrape_duration_seconds gauge\n");
+        buffer.append("jmx_scrape_duration_seconds ").
+            append((System.nanoTime() - start) / 1000000000.0d).append('\n');
+        buffer.append("# TYPE jmx_scrape_errors gauge\n");
+        buffer.append("jmx_scrape_errors ").append(errors).append('\n');
+        if (this.client.getStats() != null) {
+            this.client.getStats().report("scrape");
+        }
+        return buffer.toString().getBytes("UTF-8");
+    }
+    
+    protected void merge(final Map samples, final Map more) {
+        for (Iterator i = more.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry)i.next();
+            Set s = (Set)samples.get(e.getKey());
+            if (s == null) {
+                samples.put(e.getKey(), e.getValue());
+            } else {
+                s.addAll((Set)e.getValue());
+            }
+        }
+    }
+    
+    /**
+     * Collect from one target.
+     * @param hostport Target to collect from.
+     * @return Map of metric name to Set of sample lines.
+     * @throws Exception
+     */
+    protected Map collect(final String hostport) throws Exception {
+        String hostLabel = (this.hosts.size() > 1)?
+            "host=\"" + escape(hostport) + "\"": null;
+        Map samples = new TreeMap();
+        JMXConnector jmxc = this.pool.borrow(hostport, this.login,
+            this.password);
+        try {
+            MBeanServerConnection mbsc = jmxc.getMBeanServerConnection();
+            for (Iterator i = this.metrics.iterator(); i.hasNext();) {
+                Object [] metric = (Object [])i.next();
+                Set names = mbsc.queryNames((ObjectName)metric[0], null);
+                for (Iterator j = names.iterator(); j.hasNext();) {
+                    ObjectName name = (ObjectName)j.next();
+                    AttributeList list = mbsc.getAttributes(name,
+                        (String [])metric[1]);
+                    String labels = getLabels(name, hostLabel);
+                    for (Iterator k = list.iterator(); k.hasNext();) {
+                        Attribute a = (Attribute)k.next();
+                        add(samples, getMetricName(name.getDomain(),
+                            a.getName()), labels, a.getValue());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            this.pool.invalidate(jmxc);
+            jmxc = null;
+            throw e;
+        } finally {
+            if (jmxc != null) {
+                this.pool.release(jmxc);
+            }
+        }
+        return samples;
+    }
+    
+    protected void add(final Map samples, final String metric,
+            final String labels, final Object value) {
+        if (value instanceof CompositeData) {
+            CompositeData data = (CompositeData)value;
+            for (Iterator i = data.getCompositeType().keySet().iterator();
+                    i.hasNext();) {
+                String key = (String)i.next();
+                String field = "field=\"" + escape(key) + "\"";
+                add(samples, metric, (labels.length() == 0)? field:
+                    labels + "," + field, data.get(key));
+            }
+            return;
+        }
+        String sample = null;
+        if (value instanceof Number) {
+            sample = value.toString();
+        } else if (value instanceof Boolean) {
+            sample = ((Boolean)value).booleanValue()? "1": "0";
+        } else {
+            return;
+        }
+        Set s = (Set)samples.get(metric);
+        if (s == null) {
+            s = new TreeSet();
+            samples.put(metric, s);
+        }
+        s.add(metric + ((labels.length() == 0)? "": "{" + labels + "}") +
+            " " + sample);
+    }
+    
+    /**
+     * @param name Bean name.
+     * @param hostLabel Host label or null if none.
+     * @return Key properties of <code>name</code> as labels, sorted by key.
+     */
+    protected static String getLabels(final ObjectName name,
+            final String hostLabel) {
+        StringBuffer buffer = new StringBuffer();
+        if (hostLabel != null) {
+            buffer.append(hostLabel);
+        }
+        Map keys = new TreeMap(name.getKeyPropertyList());
+        for (Iterator i = keys.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry)i.next();
+            if (buffer.length() > 0) {
+                buffer.append(',');
+            }
+            buffer.append(sanitize((String)e.getKey())).append("=\"").
+                append(escape(unquote((String)e.getValue()))).
+                append('"');
+        }
+        return buffer.toString();
+    }
+    
+    protected static String unquote(final String value) {
+        return value.startsWith("\"")? ObjectName.unquote(value): value;
+    }
+    
+    protected static String getMetricName(final String domain,
+            final String attribute) {
+        return sanitize(domain + "_" + attribute);
+    }
+    
+    /**
+     * @param s String to make a metric or label name of.
+     * @return <code>s</code> with characters not allowed in names replaced
+     * by '_'.
+     */
+    protected static String sanitize(final String s) {
+        StringBuffer buffer = new StringBuffer(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            buffer.append(((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') ||
+                (c >= '0' && c <= '9' && i > 0) || c == '_')? c: '_');
+        }
+        return buffer.toString();
+    }
+    
+    /**
+     * @param s Label value.
+     * @return <code>s</code> with backslash, double-quote and newline
+     * escaped.
+     */
+    protected static String escape(final String s) {
+        if (s.indexOf('\\') < 0 && s.indexOf('"') < 0 &&
+                s.indexOf('\n') < 0) {
+            return s;
+        }
+        StringBuffer buffer = new StringBuffer(s.length() + 8);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' || c == '"') {
+                buffer.append('\\').append(c);
+            } else if (c == '\n') {
+                buffer.append("\\n");
+            } else {
+                buffer.append(c);
+            }
+        }
+        return buffer.toString();
+    }
+}
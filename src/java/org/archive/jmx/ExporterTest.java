@@ -0,0 +1,208 @@
+/*
+ * ExporterTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.net.ServerSocket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the pages {@link Exporter} serves, collecting from a
+ * JMXConnectorServer on loopback.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class ExporterTest extends TestCase {
+    private static final String SCRAPE = "# TYPE jmx_scrape_duration_seconds";
+
+    private MBeanServer mbs;
+    private Registry registry;
+    private JMXConnectorServer server;
+    private String hostport;
+    private Pool pool;
+
+    public interface PoolMBean {
+        int getActive();
+        boolean isEnabled();
+        String getName();
+        CompositeData getUsage();
+    }
+
+    public static class Pool implements PoolMBean {
+        private static final CompositeType USAGE;
+        static {
+            try {
+                USAGE = new CompositeType("Usage", "Usage",
+                    new String [] {"used", "max"},
+                    new String [] {"used", "max"},
+                    new OpenType [] {SimpleType.LONG, SimpleType.LONG});
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private int active = 5;
+
+        public synchronized int getActive() {
+            return this.active;
+        }
+
+        synchronized void setActive(final int active) {
+            this.active = active;
+        }
+
+        public boolean isEnabled() {
+            return true;
+        }
+
+        public String getName() {
+            return "pool";
+        }
+
+        public CompositeData getUsage() {
+            try {
+                return new CompositeDataSupport(USAGE,
+                    new String [] {"used", "max"},
+                    new Object [] {Long.valueOf(10), Long.valueOf(100)});
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (System.getProperty("java.rmi.server.hostname") == null) {
+            System.setProperty("java.rmi.server.hostname", "localhost");
+        }
+        this.mbs = MBeanServerFactory.newMBeanServer();
+        this.pool = new Pool();
+        this.mbs.registerMBean(this.pool,
+            new ObjectName("test.app:type=Pool,name=\"a \\\"b\\\"\""));
+        ServerSocket s = new ServerSocket(0);
+        int port = s.getLocalPort();
+        s.close();
+        this.registry = LocateRegistry.createRegistry(port);
+        this.server = JMXConnectorServerFactory.newJMXConnectorServer(
+            new JMXServiceURL("service:jmx:rmi:///jndi/rmi://localhost:" +
+                port + "/jmxrmi"), null, this.mbs);
+        this.server.start();
+        this.hostport = "localhost:" + port;
+    }
+
+    protected void tearDown() throws Exception {
+        this.server.stop();
+        UnicastRemoteObject.unexportObject(this.registry, true);
+        super.tearDown();
+    }
+
+    protected Exporter newExporter(final List hosts, final long ttl)
+    throws Exception {
+        List metrics = new ArrayList();
+        metrics.add(new Object [] {new ObjectName("test.app:type=Pool,*"),
+            new String [] {"Active", "Enabled", "Name", "Usage"}});
+        return new Exporter(new Client(), hosts, null, null, metrics, ttl, 2);
+    }
+
+    protected Exporter newExporter(final long ttl) throws Exception {
+        return newExporter(Arrays.asList(new String [] {this.hostport}), ttl);
+    }
+
+    /**
+     * @return Page less the scrape duration, which varies.
+     */
+    protected static String getSamples(final byte [] page) throws Exception {
+        String s = new String(page, "UTF-8");
+        return s.substring(0, s.indexOf(SCRAPE)) +
+            s.substring(s.indexOf("# TYPE jmx_scrape_errors"));
+    }
+
+    public void testPage() throws Exception {
+        // Strings are not exported.  Quoted key values are unquoted.
+        String labels = "name=\"a \\\"b\\\"\",type=\"Pool\"";
+        assertEquals("# TYPE test_app_Active untyped\n" +
+            "test_app_Active{" + labels + "} 5\n" +
+            "# TYPE test_app_Enabled untyped\n" +
+            "test_app_Enabled{" + labels + "} 1\n" +
+            "# TYPE test_app_Usage untyped\n" +
+            "test_app_Usage{" + labels + ",field=\"max\"} 100\n" +
+            "test_app_Usage{" + labels + ",field=\"used\"} 10\n" +
+            "# TYPE jmx_scrape_errors gauge\n" +
+            "jmx_scrape_errors 0\n",
+            getSamples(newExporter(0).getPage()));
+    }
+
+    public void testHostsAreLabelledAndErrorsCounted() throws Exception {
+        ServerSocket s = new ServerSocket(0);
+        String dead = "localhost:" + s.getLocalPort();
+        s.close();
+        String page = getSamples(newExporter(Arrays.asList(new String [] {
+            this.hostport, dead}), 0).getPage());
+        assertTrue(page, page.indexOf("test_app_Active{host=\"" +
+            this.hostport + "\",name=") > 0);
+        assertTrue(page, page.indexOf("host=\"" + dead + "\"") < 0);
+        assertTrue(page, page.endsWith("jmx_scrape_errors 1\n"));
+    }
+
+    public void testCache() throws Exception {
+        Exporter cached = newExporter(60000);
+        Exporter uncached = newExporter(0);
+        byte [] page = cached.getPage();
+        uncached.getPage();
+        this.pool.setActive(6);
+        assertSame(page, cached.getPage());
+        String fresh = getSamples(uncached.getPage());
+        assertTrue(fresh, fresh.indexOf("} 6\n") > 0);
+    }
+
+    public void testNames() throws Exception {
+        assertEquals("java_lang_HeapMemoryUsage",
+            Exporter.getMetricName("java.lang", "HeapMemoryUsage"));
+        assertEquals("_a_b_", Exporter.sanitize("9a-b:"));
+        assertEquals("a9", Exporter.sanitize("a9"));
+        assertEquals("a\\\\b\\\"c\\n", Exporter.escape("a\\b\"c\n"));
+        assertEquals("plain", Exporter.escape("plain"));
+    }
+}
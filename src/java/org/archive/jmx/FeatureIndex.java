@@ -0,0 +1,300 @@
+/*
+ * FeatureIndex
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+
+/**
+ * Index of a bean's attributes by name and of its operations by name and
+ * by name plus arity.
+ * <p>Lookups are hashed rather than a scan of the MBeanInfo arrays so
+ * beans with hundreds of features resolve as fast as beans with few.
+ * Overloaded operations are resolved by arity, then by which candidate
+ * signatures the passed arguments convert to, then by which of those is
+ * most specific (e.g. 'long' over 'java.lang.String' or 'long[]' for
+ * argument '1').  If still ambiguous, the caller must name the signature
+ * explicitly:
+ * 'operation(int,java.lang.String)=1,two'.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class FeatureIndex {
+    private final MBeanInfo info;
+    
+    private final Map attributes;
+    
+    /**
+     * Lists of operations keyed by name.
+     */
+    private final Map operations;
+    
+    /**
+     * Lists of operations keyed by name plus '/' plus arity.
+     */
+    private final Map operationsByArity;
+    
+    public FeatureIndex(final MBeanInfo info) {
+        super();
+        this.info = info;
+        MBeanAttributeInfo [] ais = info.getAttributes();
+        this.attributes = new HashMap(ais.length * 2);
+        for (int i = 0; i < ais.length; i++) {
+            if (!this.attributes.containsKey(ais[i].getName())) {
+                this.attributes.put(ais[i].getName(), ais[i]);
+            }
+        }
+        MBeanOperationInfo [] ois = info.getOperations();
+        this.operations = new HashMap(ois.length * 2);
+        this.operationsByArity = new HashMap(ois.length * 2);
+        for (int i = 0; i < ois.length; i++) {
+            add(this.operations, ois[i].getName(), ois[i]);
+            add(this.operationsByArity,
+                getArityKey(ois[i].getName(), getArity(ois[i])), ois[i]);
+        }
+    }
+    
+    private static void add(final Map map, final String key,
+            final Object value) {
+        List l = (List)map.get(key);
+        if (l == null) {
+            l = new ArrayList(1);
+            map.put(key, l);
+        }
+        l.add(value);
+    }
+    
+    protected static String getArityKey(final String name, final int arity) {
+        return name + "/" + arity;
+    }
+    
+    protected static int getArity(final MBeanOperationInfo op) {
+        MBeanParameterInfo [] params = op.getSignature();
+        return (params == null)? 0: params.length;
+    }
+    
+    /**
+     * @param cmd Command that may be carrying arguments ('=...') and a
+     * signature ('(...)').
+     * @return Name of the feature <code>cmd</code> refers to.
+     */
+    public static String getName(final String cmd) {
+        int index = cmd.indexOf('=');
+        String name = (index > 0)? cmd.substring(0, index): cmd;
+        index = name.indexOf('(');
+        return (index > 0)? name.substring(0, index): name;
+    }
+    
+    public MBeanInfo getMBeanInfo() {
+        return this.info;
+    }
+    
+    /**
+     * @param name Attribute name.
+     * @return Info on named attribute or null if no such attribute.
+     */
+    public MBeanAttributeInfo getAttribute(final String name) {
+        return (MBeanAttributeInfo)this.attributes.get(name);
+    }
+    
+    public boolean hasOperation(final String name) {
+        return this.operations.containsKey(name);
+    }
+    
+    /**
+     * @param name Operation name.
+     * @return All operations of passed name.  Empty if none.
+     */
+    public List getOperations(final String name) {
+        List l = (List)this.operations.get(name);
+        return (l == null)? Collections.EMPTY_LIST: l;
+    }
+    
+    /**
+     * @param name Operation name.
+     * @param arity Count of parameters.
+     * @return Operations of passed name and arity.  Empty if none.
+     */
+    public List getOperations(final String name, final int arity) {
+        List l = (List)this.operationsByArity.get(getArityKey(name, arity));
+        return (l == null)? Collections.EMPTY_LIST: l;
+    }
+    
+    /**
+     * Find the operation to invoke.
+     * @param name Operation name.
+     * @param args Arguments to pass (May be null).
+     * @param signature Explicit signature to match (May be null).  Types
+     * may be given as full class names or as the name after the last '.'.
+     * @return Matching operation or null if none of passed name and arity
+     * (or signature if passed).
+     * @throws IllegalArgumentException If the arguments convert to the
+     * signature of more than one operation, or of none when overloaded.
+     */
+    public MBeanOperationInfo getOperation(final String name,
+            final String [] args, final String [] signature) {
+        int arity = (args == null)? 0: args.length;
+        List candidates = getOperations(name, arity);
+        if (signature != null) {
+            for (int i = 0; i < candidates.size(); i++) {
+                MBeanOperationInfo op = (MBeanOperationInfo)candidates.get(i);
+                if (isSignature(op, signature)) {
+                    return op;
+                }
+            }
+            return null;
+        }
+        if (candidates.size() <= 1) {
+            return (candidates.size() == 0)? null:
+                (MBeanOperationInfo)candidates.get(0);
+        }
+        // Overloaded.  Keep those whose signature the arguments convert to.
+        List matches = new ArrayList(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            MBeanOperationInfo op = (MBeanOperationInfo)candidates.get(i);
+            if (isConvertible(op, args)) {
+                matches.add(op);
+            }
+        }
+        if (matches.size() == 1) {
+            return (MBeanOperationInfo)matches.get(0);
+        }
+        // More than one.  Go with the most specific if there is one.
+        MBeanOperationInfo best = null;
+        int bestCost = Integer.MAX_VALUE;
+        boolean tie = false;
+        for (int i = 0; i < matches.size(); i++) {
+            MBeanOperationInfo op = (MBeanOperationInfo)matches.get(i);
+            int cost = getCost(op, args);
+            if (cost < bestCost) {
+                best = op;
+                bestCost = cost;
+                tie = false;
+            } else if (cost == bestCost) {
+                tie = true;
+            }
+        }
+        if (best != null && !tie) {
+            return best;
+        }
+        StringBuffer buffer = new StringBuffer();
+        List listed = (matches.size() == 0)? candidates: matches;
+        for (int i = 0; i < listed.size(); i++) {
+            buffer.append(' ');
+            buffer.append(toString((MBeanOperationInfo)listed.get(i)));
+        }
+        if (matches.size() == 0) {
+            throw new IllegalArgumentException("No " + name +
+                " operation matches these arguments; have:" +
+                buffer.toString());
+        }
+        throw new IllegalArgumentException("Cannot tell which " + name +
+            " to invoke; pass signature, one of:" + buffer.toString());
+    }
+    
+    protected static boolean isSignature(final MBeanOperationInfo op,
+            final String [] signature) {
+        MBeanParameterInfo [] params = op.getSignature();
+        int length = (params == null)? 0: params.length;
+        if (length != signature.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            String type = params[i].getType();
+            String wanted = signature[i].trim();
+            if (!type.equals(wanted) && !type.endsWith("." + wanted)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    protected static boolean isConvertible(final MBeanOperationInfo op,
+            final String [] args) {
+        MBeanParameterInfo [] params = op.getSignature();
+        for (int i = 0; params != null && i < params.length; i++) {
+            try {
+                ArgumentConverter.convert(params[i].getType(), args[i]);
+            } catch (Exception e) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Cost of converting <code>args</code> to the signature of
+     * <code>op</code>.  A String parameter costs more than a typed one since
+     * anything converts to a String.  An array parameter costs more again
+     * if the argument is not delimited as an array.  Lower is more
+     * specific.
+     * @param op Operation.
+     * @param args Arguments.
+     * @return Cost.
+     */
+    protected static int getCost(final MBeanOperationInfo op,
+            final String [] args) {
+        MBeanParameterInfo [] params = op.getSignature();
+        int cost = 0;
+        for (int i = 0; params != null && i < params.length; i++) {
+            String type = params[i].getType();
+            if (type.startsWith("[")) {
+                cost += (args[i].indexOf(ArgumentConverter.ARRAY_DELIMITER)
+                    >= 0)? 1: 2;
+            } else if (type.equals(String.class.getName())) {
+                cost += 1;
+            }
+        }
+        return cost;
+    }
+    
+    /**
+     * @param op Operation.
+     * @return Operation as 'name(type,type)'.
+     */
+    public static String toString(final MBeanOperationInfo op) {
+        StringBuffer buffer = new StringBuffer(op.getName());
+        buffer.append('(');
+        MBeanParameterInfo [] params = op.getSignature();
+        for (int i = 0; params != null && i < params.length; i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            buffer.append(params[i].getType());
+        }
+        buffer.append(')');
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * FeatureIndexTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of {@link FeatureIndex} lookups and overload resolution.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class FeatureIndexTest extends TestCase {
+    private FeatureIndex index;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.index = new FeatureIndex(new MBeanInfo("Test", "Test",
+            new MBeanAttributeInfo [] {
+                new MBeanAttributeInfo("Count", "int", "", true, true,
+                    false)},
+            null,
+            new MBeanOperationInfo [] {
+                op("reset", new String [0]),
+                op("reset", new String [] {"int"}),
+                op("find", new String [] {"long"}),
+                op("find", new String [] {"java.lang.String"}),
+                op("find", new String [] {"[J"}),
+                op("add", new String [] {"int", "int"}),
+                op("add", new String [] {"long", "long"}),
+                op("scale", new String [] {"int"}),
+                op("scale", new String [] {"javax.management.ObjectName"}),
+                op("echo", new String [] {"int"})},
+            null));
+    }
+
+    protected static MBeanOperationInfo op(final String name,
+            final String [] types) {
+        MBeanParameterInfo [] params = new MBeanParameterInfo[types.length];
+        for (int i = 0; i < types.length; i++) {
+            params[i] = new MBeanParameterInfo("p" + i, types[i], "");
+        }
+        return new MBeanOperationInfo(name, "", params, "void",
+            MBeanOperationInfo.ACTION);
+    }
+
+    /**
+     * @return Resolved operation as 'name(type,...)' or null if none.
+     */
+    protected String resolve(final String name, final String [] args,
+            final String [] signature) {
+        MBeanOperationInfo op = this.index.getOperation(name, args,
+            signature);
+        return (op == null)? null: FeatureIndex.toString(op);
+    }
+
+    protected String resolve(final String name, final String [] args) {
+        return resolve(name, args, null);
+    }
+
+    protected void assertFails(final String name, final String [] args,
+            final String message) {
+        try {
+            resolve(name, args);
+            fail(name);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    public void testLookups() throws Exception {
+        assertEquals("int", this.index.getAttribute("Count").getType());
+        assertNull(this.index.getAttribute("count"));
+        assertTrue(this.index.hasOperation("find"));
+        assertFalse(this.index.hasOperation("Count"));
+        assertEquals(3, this.index.getOperations("find").size());
+        assertEquals(2, this.index.getOperations("add", 2).size());
+        assertEquals(0, this.index.getOperations("add", 1).size());
+        assertEquals("op", FeatureIndex.getName("op(int)=1"));
+        assertEquals("Count", FeatureIndex.getName("Count=2"));
+    }
+
+    public void testArity() throws Exception {
+        assertEquals("reset()", resolve("reset", null));
+        assertEquals("reset(int)", resolve("reset", new String [] {"3"}));
+        assertNull(resolve("reset", new String [] {"3", "4"}));
+        assertNull(resolve("missing", null));
+        // One candidate is taken without trying the arguments.
+        assertEquals("echo(int)", resolve("echo", new String [] {"x"}));
+    }
+
+    public void testConvertibility() throws Exception {
+        assertEquals("find(long)", resolve("find", new String [] {"5"}));
+        assertEquals("find(java.lang.String)",
+            resolve("find", new String [] {"five"}));
+        assertEquals("scale(int)", resolve("scale", new String [] {"2"}));
+        assertEquals("scale(javax.management.ObjectName)",
+            resolve("scale", new String [] {"d:type=T"}));
+    }
+
+    public void testAmbiguous() throws Exception {
+        assertFails("add", new String [] {"1", "2"},
+            "Cannot tell which add to invoke; pass signature, one of: " +
+            "add(int,int) add(long,long)");
+        // Both a String and a long[].
+        assertFails("find", new String [] {"1;2"},
+            "Cannot tell which find to invoke");
+    }
+
+    public void testNoneMatch() throws Exception {
+        assertFails("add", new String [] {"1", "two"},
+            "No add operation matches these arguments; have: " +
+            "add(int,int) add(long,long)");
+        assertFails("scale", new String [] {"x"},
+            "No scale operation matches these arguments");
+    }
+
+    public void testSignature() throws Exception {
+        assertEquals("add(long,long)", resolve("add",
+            new String [] {"1", "2"}, new String [] {"long", " long"}));
+        assertEquals("find([J)", resolve("find", new String [] {"1;2"},
+            new String [] {"[J"}));
+        // Short class names do too.
+        assertEquals("find(java.lang.String)", resolve("find",
+            new String [] {"1"}, new String [] {"String"}));
+        assertNull(resolve("find", new String [] {"1"},
+            new String [] {"int"}));
+        assertNull(resolve("find", new String [] {"1"},
+            new String [] {"long", "long"}));
+    }
+}
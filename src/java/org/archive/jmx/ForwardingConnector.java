@@ -0,0 +1,151 @@
+/*
+ * ForwardingConnector
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanServerConnection;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.remote.JMXConnector;
+import javax.security.auth.Subject;
+
+/**
+ * Connector that hands out a proxy of the server connection of the
+ * connector it wraps and passes all else through.  Subclasses say what is
+ * done with calls on the proxy.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+abstract class ForwardingConnector implements JMXConnector {
+    protected final JMXConnector delegate;
+    protected final String name;
+    private final MBeanServerConnection mbsc;
+    
+    /**
+     * @param delegate Connector to wrap.
+     * @param name Name to use in messages (E.g. 'host:port').
+     * @throws IOException
+     */
+    ForwardingConnector(final JMXConnector delegate, final String name)
+    throws IOException {
+        super();
+        this.delegate = delegate;
+        this.name = name;
+        final MBeanServerConnection target =
+            delegate.getMBeanServerConnection();
+        this.mbsc = (MBeanServerConnection)Proxy.newProxyInstance(
+            MBeanServerConnection.class.getClassLoader(),
+            new Class [] {MBeanServerConnection.class},
+            new InvocationHandler() {
+                public Object invoke(Object proxy, Method method,
+                        Object[] args)
+                throws Throwable {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return invokeObjectMethod(proxy, method, args);
+                    }
+                    return call(target, method, args);
+                }
+            });
+    }
+    
+    /**
+     * Called for each MBeanServerConnection method called on the proxy.
+     * @param target Server connection of the wrapped connector.
+     * @param method Method called.
+     * @param args Arguments passed.
+     * @return What <code>method</code> returns.
+     * @throws Throwable What <code>method</code> throws.
+     */
+    protected abstract Object call(final MBeanServerConnection target,
+            final Method method, final Object [] args)
+    throws Throwable;
+    
+    protected Object invokeObjectMethod(final Object proxy,
+            final Method method, final Object [] args) {
+        // Proxies key per-connection caches so must be equal only to
+        // themselves.
+        if (method.getName().equals("equals")) {
+            return Boolean.valueOf(proxy == args[0]);
+        } else if (method.getName().equals("hashCode")) {
+            return Integer.valueOf(System.identityHashCode(proxy));
+        }
+        return getClass().getName() + "(" + this.name + ")";
+    }
+    
+    public MBeanServerConnection getMBeanServerConnection() {
+        return this.mbsc;
+    }
+    
+    public MBeanServerConnection getMBeanServerConnection(
+            final Subject delegationSubject)
+    throws IOException {
+        // Not proxied: we only ever use the no-arg flavor.
+        return this.delegate.getMBeanServerConnection(delegationSubject);
+    }
+    
+    public void connect() throws IOException {
+        this.delegate.connect();
+    }
+    
+    public void connect(final Map env) throws IOException {
+        this.delegate.connect(env);
+    }
+    
+    public void close() throws IOException {
+        this.delegate.close();
+    }
+    
+    public void addConnectionNotificationListener(
+            final NotificationListener listener,
+            final NotificationFilter filter, final Object handback) {
+        this.delegate.addConnectionNotificationListener(listener, filter,
+            handback);
+    }
+    
+    public void removeConnectionNotificationListener(
+            final NotificationListener listener)
+    throws ListenerNotFoundException {
+        this.delegate.removeConnectionNotificationListener(listener);
+    }
+    
+    public void removeConnectionNotificationListener(
+            final NotificationListener l, final NotificationFilter f,
+            final Object handback)
+    throws ListenerNotFoundException {
+        this.delegate.removeConnectionNotificationListener(l, f, handback);
+    }
+    
+    public String getConnectionId() throws IOException {
+        return this.delegate.getConnectionId();
+    }
+}
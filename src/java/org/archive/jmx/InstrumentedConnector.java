@@ -0,0 +1,77 @@
+/*
+ * InstrumentedConnector
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+
+/**
+ * Connector whose server connection records the count and latency of
+ * each call, by method and bean, into a {@link CallStats}.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class InstrumentedConnector extends ForwardingConnector {
+    private final CallStats stats;
+    
+    /**
+     * @param delegate Connector to wrap.
+     * @param name Name to use in messages (E.g. 'host:port').
+     * @param stats Where to record calls.
+     * @throws IOException
+     */
+    InstrumentedConnector(final JMXConnector delegate, final String name,
+            final CallStats stats)
+    throws IOException {
+        super(delegate, name);
+        this.stats = stats;
+    }
+    
+    protected Object call(final MBeanServerConnection target,
+            final Method method, final Object [] args)
+    throws Throwable {
+        ObjectName bean = (args != null && args.length > 0 &&
+            args[0] instanceof ObjectName)? (ObjectName)args[0]: null;
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = method.invoke(target, args);
+            failed = false;
+            return result;
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        } finally {
+            this.stats.record(method.getName(), bean,
+                System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Listing
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.QueryExp;
+
+/**
+ * List bean names, sorted, a page at a time.
+ * <p>Names are fetched with one queryNames -- no class names as with
+ * queryMBeans -- and written as they are walked rather than gathered into
+ * one string.  Listed flat, a canonical name a line; or as a tree, beans
+ * grouped by domain then by key property, each group headed once with its
+ * count of beans, e.g.
+ * <pre>
+ * java.lang (20)
+ *   type=GarbageCollector (2)
+ *     name=Copy
+ *     name=MarkSweepCompact
+ *   type=Memory
+ * </pre>
+ * Names come over the wire in canonical form, keys sorted, so the order
+ * they were registered with is lost.  Instead, in each domain, keys with
+ * fewer distinct values -- 'type' before 'name' -- group first.
+ * Pages are counted in beans.  A summary of domains, from getDomains,
+ * with a count of beans in each can be listed instead.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class Listing {
+    private static final Logger logger =
+        Logger.getLogger(Listing.class.getName());
+    
+    private static final String INDENT = "  ";
+    
+    /**
+     * Orders paths segment by segment, shorter first.
+     */
+    private static final Comparator PATH_ORDER = new Comparator() {
+        public int compare(Object o1, Object o2) {
+            String [] p1 = (String [])o1;
+            String [] p2 = (String [])o2;
+            for (int i = 0; i < p1.length && i < p2.length; i++) {
+                int c = p1[i].compareTo(p2[i]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return p1.length - p2.length;
+        }
+    };
+    
+    private final MBeanServerConnection mbsc;
+    private final QueryExp query;
+    
+    /**
+     * @param mbsc Server connection.
+     * @param query Filter the server applies or null.
+     */
+    Listing(final MBeanServerConnection mbsc, final QueryExp query) {
+        super();
+        this.mbsc = mbsc;
+        this.query = query;
+    }
+    
+    /**
+     * @param pattern Beans to list (Null for all).
+     * @param tree True to list grouped by domain and key properties, else
+     * a canonical name a line.
+     * @param offset Count of beans to skip.
+     * @param limit Most beans to list.  If <= 0, no limit.
+     * @param writer Where to write.
+     * @throws IOException
+     */
+    void names(final ObjectName pattern, final boolean tree,
+            final int offset, final int limit, final Writer writer)
+    throws IOException {
+        long start = System.nanoTime();
+        Set names = this.mbsc.queryNames(pattern, this.query);
+        String [][] paths = new String[names.size()][];
+        Map keys = tree? getKeyOrder(names): null;
+        Map counts = tree? new HashMap(): null;
+        int n = 0;
+        for (Iterator i = names.iterator(); i.hasNext();) {
+            ObjectName name = (ObjectName)i.next();
+            if (tree) {
+                paths[n] = getPath(name, (List)keys.get(name.getDomain()));
+                count(paths[n], counts);
+            } else {
+                paths[n] = new String [] {name.getCanonicalName()};
+            }
+            n++;
+        }
+        Arrays.sort(paths, PATH_ORDER);
+        int end = (limit <= 0)? paths.length:
+            (int)Math.min((long)offset + limit, paths.length);
+        String [] previous = null;
+        for (int i = Math.max(0, offset); i < end; i++) {
+            if (!tree) {
+                writer.write(paths[i][0]);
+                writer.write('\n');
+                continue;
+            }
+            // Head only the groups the previous bean was not in.
+            int common = 0;
+            while (previous != null && common < previous.length &&
+                    common < paths[i].length &&
+                    previous[common].equals(paths[i][common])) {
+                common++;
+            }
+            for (int depth = common; depth < paths[i].length; depth++) {
+                for (int j = 0; j < depth; j++) {
+                    writer.write(INDENT);
+                }
+                writer.write(paths[i][depth]);
+                Integer count = (depth == paths[i].length - 1)? null:
+                    (Integer)counts.get(getPrefix(paths[i], depth));
+                if (count != null) {
+                    writer.write(" (" + count + ")");
+                }
+                writer.write('\n');
+            }
+            previous = paths[i];
+        }
+        writer.flush();
+        int first = Math.min(Math.max(0, offset), end);
+        logger.info("Listed " + ((end > first)? (first + 1) + "-" + end:
+            "none") + " of " + paths.length + " beans in " +
+            Client.formatMillis(System.nanoTime() - start));
+    }
+    
+    /**
+     * List each domain that has beans that match <code>pattern</code>
+     * with its count of matching beans.
+     * @param pattern Beans to count (Null for all).
+     * @param writer Where to write.
+     * @throws IOException
+     */
+    void domains(final ObjectName pattern, final Writer writer)
+    throws IOException {
+        long start = System.nanoTime();
+        Map counts = new TreeMap();
+        String [] domains = this.mbsc.getDomains();
+        for (int i = 0; i < domains.length; i++) {
+            if (pattern == null || pattern.isDomainPattern() ||
+                    pattern.getDomain().equals(domains[i])) {
+                counts.put(domains[i], new int [] {0});
+            }
+        }
+        // Count with one queryNames rather than one per domain.
+        int total = 0;
+        for (Iterator i = this.mbsc.queryNames(pattern,
+                this.query).iterator(); i.hasNext();) {
+            String domain = ((ObjectName)i.next()).getDomain();
+            int [] count = (int [])counts.get(domain);
+            if (count == null) {
+                // Registered since getDomains.
+                count = new int [] {0};
+                counts.put(domain, count);
+            }
+            count[0]++;
+            total++;
+        }
+        int listed = 0;
+        for (Iterator i = counts.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry)i.next();
+            int count = ((int [])e.getValue())[0];
+            if (count == 0 && (pattern != null || this.query != null)) {
+                // Nothing in this domain matches.
+                continue;
+            }
+            writer.write(e.getKey() + "\t" + count + "\n");
+            listed++;
+        }
+        writer.flush();
+        logger.info("Listed " + listed + " domains of " + total +
+            " beans in " + Client.formatMillis(System.nanoTime() - start));
+    }
+    
+    /**
+     * @param names ObjectNames.
+     * @return Map of domain to List of the keys used in the domain, those
+     * with fewest distinct values first.
+     */
+    protected static Map getKeyOrder(final Set names) {
+        // Domain to Map of key to Set of values.
+        Map domains = new HashMap();
+        for (Iterator i = names.iterator(); i.hasNext();) {
+            ObjectName name = (ObjectName)i.next();
+            Map keys = (Map)domains.get(name.getDomain());
+            if (keys == null) {
+                keys = new HashMap();
+                domains.put(name.getDomain(), keys);
+            }
+            for (Iterator j = name.getKeyPropertyList().entrySet().iterator();
+                    j.hasNext();) {
+                Map.Entry e = (Map.Entry)j.next();
+                Set values = (Set)keys.get(e.getKey());
+                if (values == null) {
+                    values = new HashSet();
+                    keys.put(e.getKey(), values);
+                }
+                values.add(e.getValue());
+            }
+        }
+        Map order = new HashMap();
+        for (Iterator i = domains.entrySet().iterator(); i.hasNext();) {
+            Map.Entry e = (Map.Entry)i.next();
+            final Map keys = (Map)e.getValue();
+            List sorted = new ArrayList(keys.keySet());
+            Collections.sort(sorted, new Comparator() {
+                public int compare(Object o1, Object o2) {
+                    int c = ((Set)keys.get(o1)).size() -
+                        ((Set)keys.get(o2)).size();
+                    return (c != 0)? c: ((String)o1).compareTo((String)o2);
+                }
+            });
+            order.put(e.getKey(), sorted);
+        }
+        return order;
+    }
+    
+    /**
+     * @param name Bean name.
+     * @param keys Keys in the order to group by.
+     * @return Domain then 'key=value' of each of <code>keys</code> that
+     * <code>name</code> has.
+     */
+    protected static String [] getPath(final ObjectName name,
+            final List keys) {
+        List path = new ArrayList(keys.size() + 1);
+        path.add(name.getDomain());
+        for (Iterator i = keys.iterator(); i.hasNext();) {
+            String key = (String)i.next();
+            String value = name.getKeyProperty(key);
+            if (value != null) {
+                path.add(key + "=" + value);
+            }
+        }
+        return (String [])path.toArray(new String[path.size()]);
+    }
+    
+    /**
+     * Count <code>path</code> in each group it is under.
+     */
+    protected static void count(final String [] path, final Map counts) {
+        for (int depth = 0; depth < path.length - 1; depth++) {
+            String prefix = getPrefix(path, depth);
+            Integer count = (Integer)counts.get(prefix);
+            counts.put(prefix, Integer.valueOf((count == null)? 1:
+                count.intValue() + 1));
+        }
+    }
+    
+    protected static String getPrefix(final String [] path, final int depth) {
+        StringBuffer buffer = new StringBuffer();
+        for (int i = 0; i <= depth; i++) {
+            buffer.append(path[i]).append('\n');
+        }
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * ListingTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.StringWriter;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of {@link Listing} flat, as a tree, a page at a time and by domain
+ * against an in-process MBeanServer.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class ListingTest extends TestCase {
+    private MBeanServer mbs;
+
+    public interface ThingMBean {
+        int getValue();
+    }
+
+    public static class Thing implements ThingMBean {
+        public int getValue() {
+            return 1;
+        }
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mbs = MBeanServerFactory.newMBeanServer();
+        register("test:type=Pool,name=c");
+        register("test:type=Pool,name=a");
+        register("test:type=Pool,name=b");
+        register("test:type=Other");
+        register("more:type=Thing");
+    }
+
+    protected void register(final String name) throws Exception {
+        this.mbs.registerMBean(new Thing(), new ObjectName(name));
+    }
+
+    protected String names(final String pattern, final boolean tree,
+            final int offset, final int limit)
+    throws Exception {
+        StringWriter writer = new StringWriter();
+        new Listing(this.mbs, null).names(new ObjectName(pattern), tree,
+            offset, limit, writer);
+        return writer.toString();
+    }
+
+    public void testFlat() throws Exception {
+        assertEquals("test:name=a,type=Pool\n" +
+            "test:name=b,type=Pool\n" +
+            "test:name=c,type=Pool\n" +
+            "test:type=Other\n", names("test:*", false, 0, 0));
+    }
+
+    public void testTree() throws Exception {
+        // 'type' has fewer values than 'name' so groups first.
+        assertEquals("JMImplementation (1)\n" +
+            "  type=MBeanServerDelegate\n" +
+            "more (1)\n" +
+            "  type=Thing\n" +
+            "test (4)\n" +
+            "  type=Other\n" +
+            "  type=Pool (3)\n" +
+            "    name=a\n" +
+            "    name=b\n" +
+            "    name=c\n", names("*:type=*,*", true, 0, 0));
+    }
+
+    public void testPages() throws Exception {
+        // Groups a page starts inside of are headed again.
+        assertEquals("test (4)\n" +
+            "  type=Pool (3)\n" +
+            "    name=b\n" +
+            "    name=c\n", names("test:*", true, 2, 2));
+        assertEquals("test:type=Other\n", names("test:*", false, 3, 10));
+        assertEquals("", names("test:*", false, 4, 10));
+        assertEquals("", names("test:*", false, 10, 0));
+    }
+
+    public void testDomains() throws Exception {
+        StringWriter writer = new StringWriter();
+        Listing listing = new Listing(this.mbs, null);
+        listing.domains(null, writer);
+        assertEquals("JMImplementation\t1\nmore\t1\ntest\t4\n",
+            writer.toString());
+        writer = new StringWriter();
+        listing.domains(new ObjectName("test:type=Pool,*"), writer);
+        assertEquals("test\t3\n", writer.toString());
+    }
+
+    public void testFilter() throws Exception {
+        StringWriter writer = new StringWriter();
+        Listing listing = new Listing(this.mbs, QueryFilter.compile(
+            "instanceof \"" + Thing.class.getName() + "\""));
+        listing.domains(null, writer);
+        assertEquals("more\t1\ntest\t4\n", writer.toString());
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * LocalAttach
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Find the local connector address of a JVM on this box by attaching to
+ * it by process id.
+ * <p>Uses the Attach API (<code>com.sun.tools.attach</code>).  It is
+ * reached by reflection so the client builds and runs without it -- it is
+ * in tools.jar before JDK 9 -- and only fails if asked to attach.  If the
+ * target has no local management agent running, we start one.  Addresses
+ * are kept per pid so a pool or session attaches once.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class LocalAttach {
+    private static final Logger logger =
+        Logger.getLogger(LocalAttach.class.getName());
+    
+    /**
+     * Agent property the local management agent publishes its address in.
+     */
+    private static final String LOCAL_CONNECTOR_ADDRESS =
+        "com.sun.management.jmxremote.localConnectorAddress";
+    
+    private static final String VIRTUAL_MACHINE =
+        "com.sun.tools.attach.VirtualMachine";
+    
+    /**
+     * Connector address keyed by pid.
+     */
+    private static final Map addresses = new ConcurrentHashMap();
+    
+    private LocalAttach() {
+        super();
+    }
+    
+    /**
+     * @param pid Process id of a JVM on this box run as the same user.
+     * @return JMX service URL of the local connector of <code>pid</code>.
+     * @throws IOException If we cannot attach or get an address.
+     */
+    static String getConnectorAddress(final String pid) throws IOException {
+        String address = (String)addresses.get(pid);
+        if (address == null) {
+            address = attach(pid);
+            addresses.put(pid, address);
+        }
+        return address;
+    }
+    
+    protected static String attach(final String pid) throws IOException {
+        Class vmClass = null;
+        try {
+            vmClass = Class.forName(VIRTUAL_MACHINE);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("No Attach API (" + VIRTUAL_MACHINE +
+                "): run on a JDK, with tools.jar on the classpath if" +
+                " before JDK 9");
+        }
+        long start = System.nanoTime();
+        Object vm = invoke(vmClass, null, "attach",
+            new Class [] {String.class}, new Object [] {pid});
+        try {
+            Properties props = (Properties)invoke(vmClass, vm,
+                "getAgentProperties", new Class [0], new Object [0]);
+            String address = props.getProperty(LOCAL_CONNECTOR_ADDRESS);
+            if (address == null) {
+                address = startAgent(vmClass, vm);
+            }
+            if (address == null) {
+                throw new IOException(pid + ": No local connector address");
+            }
+            logger.fine(pid + ": Attached in " +
+                Client.formatMillis(System.nanoTime() - start) + ": " +
+                address);
+            return address;
+        } finally {
+            invoke(vmClass, vm, "detach", new Class [0], new Object [0]);
+        }
+    }
+    
+    /**
+     * Start the management agent in the attached JVM.
+     * @return Address of the agent's local connector.
+     * @throws IOException
+     */
+    protected static String startAgent(final Class vmClass, final Object vm)
+    throws IOException {
+        try {
+            // JDK 8u60+ and 9+.
+            vmClass.getMethod("startLocalManagementAgent", new Class [0]);
+            return (String)invoke(vmClass, vm, "startLocalManagementAgent",
+                new Class [0], new Object [0]);
+        } catch (NoSuchMethodException e) {
+            // Older: load the agent jar from the target's java.home.
+            Properties props = (Properties)invoke(vmClass, vm,
+                "getSystemProperties", new Class [0], new Object [0]);
+            String agent = props.getProperty("java.home") + File.separator +
+                "lib" + File.separator + "management-agent.jar";
+            invoke(vmClass, vm, "loadAgent", new Class [] {String.class},
+                new Object [] {agent});
+            props = (Properties)invoke(vmClass, vm, "getAgentProperties",
+                new Class [0], new Object [0]);
+            return props.getProperty(LOCAL_CONNECTOR_ADDRESS);
+        }
+    }
+    
+    /**
+     * Call a VirtualMachine method, unwrapping what it throws.
+     * @throws IOException
+     */
+    protected static Object invoke(final Class vmClass, final Object vm,
+            final String name, final Class [] types, final Object [] args)
+    throws IOException {
+        try {
+            Method method = vmClass.getMethod(name, types);
+            return method.invoke(vm, args);
+        } catch (InvocationTargetException e) {
+            Throwable t = e.getTargetException();
+            if (t instanceof IOException) {
+                throw (IOException)t;
+            }
+            throw (IOException)new IOException(name + " failed: " + t).
+                initCause(t);
+        } catch (Exception e) {
+            throw (IOException)new IOException(name + " failed: " + e).
+                initCause(e);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * MBeanInfoCache
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.IntrospectionException;
+import javax.management.ListenerNotFoundException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Cache of {@link MBeanInfo}, and the {@link FeatureIndex} made from it,
+ * keyed by {@link ObjectName} for a single {@link MBeanServerConnection}.
+ * <p>MBeanInfo is one of the bigger payloads that comes over the wire so
+ * fetch it once per bean.  A cache for a connection that is used for one
+ * command and closed just keeps what it fetches.  One for a connection that
+ * stays open is {@link #watch()}ed: entries are then dropped when the
+ * remote MBeanServerDelegate reports a bean registered or unregistered
+ * under the entry's name.  If we cannot subscribe to the delegate, we stop
+ * caching.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class MBeanInfoCache implements NotificationListener {
+    private static final Logger logger =
+        Logger.getLogger(MBeanInfoCache.class.getName());
+    
+    private final MBeanServerConnection mbsc;
+    
+    private final Map infos = new ConcurrentHashMap();
+    
+    /**
+     * Set if we are subscribed to the delegate.
+     */
+    private boolean listening = false;
+    
+    /**
+     * Cleared if a watch fails.  We then pass through every request to the
+     * remote side.
+     */
+    private volatile boolean caching = true;
+    
+    /**
+     * Bumped on every delegate notification.  A fetch that straddles a
+     * notification is not cached.
+     */
+    private volatile long generation = 0;
+    
+    public MBeanInfoCache(final MBeanServerConnection mbsc) {
+        super();
+        this.mbsc = mbsc;
+    }
+    
+    /**
+     * Subscribe to the delegate so entries are dropped when their bean is
+     * registered or unregistered.  Does nothing if already subscribed.
+     */
+    public synchronized void watch() {
+        if (this.listening || !this.caching) {
+            return;
+        }
+        try {
+            this.mbsc.addNotificationListener(
+                MBeanServerDelegate.DELEGATE_NAME, this, null, null);
+            this.listening = true;
+        } catch (Exception e) {
+            logger.fine("Not caching MBeanInfo; failed subscribe to " +
+                MBeanServerDelegate.DELEGATE_NAME + ": " + e);
+            this.caching = false;
+            this.infos.clear();
+        }
+    }
+    
+    MBeanServerConnection getMBeanServerConnection() {
+        return this.mbsc;
+    }
+    
+    /**
+     * @param name Name of bean to get info on.
+     * @return MBeanInfo for <code>name</code>, from cache if we have it.
+     * @throws InstanceNotFoundException
+     * @throws IntrospectionException
+     * @throws ReflectionException
+     * @throws IOException
+     */
+    public MBeanInfo getMBeanInfo(final ObjectName name)
+    throws InstanceNotFoundException, IntrospectionException,
+            ReflectionException, IOException {
+        return getFeatureIndex(name).getMBeanInfo();
+    }
+    
+    /**
+     * @param name Name of bean to get index of.
+     * @return Index of features of <code>name</code>, from cache if we have
+     * it.
+     * @throws InstanceNotFoundException
+     * @throws IntrospectionException
+     * @throws ReflectionException
+     * @throws IOException
+     */
+    public FeatureIndex getFeatureIndex(final ObjectName name)
+    throws InstanceNotFoundException, IntrospectionException,
+            ReflectionException, IOException {
+        FeatureIndex index = (FeatureIndex)this.infos.get(name);
+        if (index != null) {
+            return index;
+        }
+        long before = this.generation;
+        index = new FeatureIndex(this.mbsc.getMBeanInfo(name));
+        if (this.caching && before == this.generation) {
+            this.infos.put(name, index);
+        }
+        return index;
+    }
+    
+    public void handleNotification(Notification notification,
+            Object handback) {
+        if (!(notification instanceof MBeanServerNotification)) {
+            return;
+        }
+        this.generation++;
+        this.infos.remove(
+            ((MBeanServerNotification)notification).getMBeanName());
+    }
+    
+    /**
+     * Unsubscribe from the delegate and clear the cache.  Call before
+     * closing the connection.
+     */
+    public synchronized void close() {
+        this.infos.clear();
+        if (!this.listening) {
+            return;
+        }
+        this.listening = false;
+        try {
+            this.mbsc.removeNotificationListener(
+                MBeanServerDelegate.DELEGATE_NAME, this);
+        } catch (ListenerNotFoundException e) {
+            // Already gone.
+        } catch (Exception e) {
+            logger.fine("Failed unsubscribe from " +
+                MBeanServerDelegate.DELEGATE_NAME + ": " + e);
+        }
+    }
+}
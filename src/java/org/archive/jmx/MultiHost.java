@@ -0,0 +1,282 @@
+/*
+ * MultiHost
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+
+/**
+ * Run the same command against many hosts at once.
+ * <p>Each host gets a connect and run on a bounded pool of workers.
+ * Results are printed as each host finishes.  A host's deadline is counted
+ * from when a worker picks it up, so hosts queued behind others get their
+ * full time.  A host that has not finished inside its deadline is reported
+ * as timed out: its connect is bounded by what is left of the deadline and
+ * its worker is interrupted, which abandons any stuck call and tears down
+ * the connection.  If given a sweep deadline, counted from the start, hosts
+ * still running or queued when it passes are timed out too, so hung hosts
+ * cannot hold up the sweep past it.  A summary of failed and slow hosts is
+ * logged at the end.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class MultiHost {
+    private static final Logger logger =
+        Logger.getLogger(MultiHost.class.getName());
+    
+    private final Client client;
+    private final String login;
+    private final String password;
+    private final String beanname;
+    private final String [] command;
+    private final int threads;
+    private final long deadline;
+    private final long sweepDeadline;
+    private final long slow;
+    
+    /**
+     * @param client Client to run commands with.
+     * @param login RMI login to use.
+     * @param password RMI password to use.
+     * @param beanname Name of bean to run command against.
+     * @param command Commands to run (May be null).
+     * @param threads Count of hosts to work on concurrently.
+     * @param deadline Milliseconds a host has to connect and run commands,
+     * from when a worker picks it up.
+     * @param sweepDeadline Milliseconds all hosts have, from the start.  If
+     * <= 0, no limit beyond each host's deadline.
+     * @param slow Hosts that take longer than this many milliseconds are
+     * listed as slow in the summary.
+     */
+    MultiHost(final Client client, final String login,
+            final String password, final String beanname,
+            final String [] command, final int threads, final long deadline,
+            final long sweepDeadline, final long slow) {
+        super();
+        this.client = client;
+        this.login = login;
+        this.password = password;
+        this.beanname = beanname;
+        this.command = command;
+        this.threads = threads;
+        this.deadline = deadline;
+        this.sweepDeadline = sweepDeadline;
+        this.slow = slow;
+    }
+    
+    /**
+     * Run against all <code>hosts</code>.
+     * @param hosts List of 'host:port' strings.
+     * @return Count of hosts that failed or timed out.
+     * @throws InterruptedException
+     */
+    int run(final List hosts) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(this.threads, hosts.size())),
+            new DaemonThreadFactory("host"));
+        final ScheduledExecutorService watchdog =
+            Executors.newScheduledThreadPool(1,
+                new DaemonThreadFactory("host-watchdog"));
+        // Tasks add themselves here when done, whether they completed,
+        // failed or were cancelled by the watchdog.
+        BlockingQueue completed = new LinkedBlockingQueue();
+        List failed = new ArrayList();
+        List slowHosts = new ArrayList();
+        long sweepExpires = (this.sweepDeadline > 0)?
+            System.currentTimeMillis() + this.sweepDeadline: Long.MAX_VALUE;
+        try {
+            final List calls = new ArrayList(hosts.size());
+            for (Iterator i = hosts.iterator(); i.hasNext();) {
+                HostCall call = new HostCall((String)i.next(), sweepExpires,
+                    watchdog);
+                call.task = new HostTask(call, completed);
+                calls.add(call);
+            }
+            if (this.sweepDeadline > 0) {
+                watchdog.schedule(new Runnable() {
+                    public void run() {
+                        for (Iterator i = calls.iterator(); i.hasNext();) {
+                            ((HostCall)i.next()).timeout();
+                        }
+                    }
+                }, this.sweepDeadline, TimeUnit.MILLISECONDS);
+            }
+            for (Iterator i = calls.iterator(); i.hasNext();) {
+                pool.execute(((HostCall)i.next()).task);
+            }
+            for (int i = 0; i < hosts.size(); i++) {
+                HostTask task = (HostTask)completed.take();
+                String hostport = task.call.hostport;
+                long elapsed = task.call.getElapsed();
+                if (task.isCancelled()) {
+                    String reason = (task.call.started == 0)?
+                        "not run inside sweep deadline of " +
+                            this.sweepDeadline + "ms":
+                        "timed out after " + elapsed + "ms";
+                    failed.add(hostport + " (" + reason + ")");
+                    logger.severe(hostport + ": " + reason);
+                    continue;
+                }
+                try {
+                    this.client.printResults(hostport, this.beanname,
+                        this.command, task.get());
+                } catch (ExecutionException e) {
+                    failed.add(hostport + " (" + e.getCause() + ")");
+                    logger.severe(hostport + ": " + e.getCause());
+                    continue;
+                }
+                if (elapsed > this.slow) {
+                    slowHosts.add(hostport + " (" + elapsed + "ms)");
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            watchdog.shutdownNow();
+        }
+        logger.info("Hosts: " + hosts.size() + ", ok: " +
+            (hosts.size() - failed.size()) + ", failed: " + failed.size() +
+            ", slow (>" + this.slow + "ms): " + slowHosts.size());
+        if (failed.size() > 0) {
+            logger.info("Failed hosts: " + failed);
+        }
+        if (slowHosts.size() > 0) {
+            logger.info("Slow hosts: " + slowHosts);
+        }
+        return failed.size();
+    }
+    
+    /**
+     * Future for one host.  Queues itself on completion.
+     */
+    private static class HostTask extends FutureTask {
+        private final HostCall call;
+        private final BlockingQueue completed;
+        
+        HostTask(final HostCall call, final BlockingQueue completed) {
+            super(call);
+            this.call = call;
+            this.completed = completed;
+        }
+        
+        protected void done() {
+            this.completed.add(this);
+        }
+    }
+    
+    /**
+     * Connect to one host and run the command.
+     */
+    private class HostCall implements Callable {
+        private final String hostport;
+        
+        /**
+         * When the sweep deadline passes, in milliseconds since the epoch.
+         */
+        private final long sweepExpires;
+        private final ScheduledExecutorService watchdog;
+        private volatile HostTask task;
+        private volatile long started = 0;
+        private volatile long finished = 0;
+        
+        HostCall(final String hostport, final long sweepExpires,
+                final ScheduledExecutorService watchdog) {
+            this.hostport = hostport;
+            this.sweepExpires = sweepExpires;
+            this.watchdog = watchdog;
+        }
+        
+        long getElapsed() {
+            long end = (this.finished == 0)?
+                System.currentTimeMillis(): this.finished;
+            return (this.started == 0)? 0: end - this.started;
+        }
+        
+        public Object call() throws Exception {
+            this.started = System.currentTimeMillis();
+            // Our deadline runs from now, not from when we were queued.
+            ScheduledFuture timer = this.watchdog.schedule(new Runnable() {
+                public void run() {
+                    timeout();
+                }
+            }, deadline, TimeUnit.MILLISECONDS);
+            try {
+                long remaining = Math.min(this.started + deadline,
+                    this.sweepExpires) - this.started;
+                if (remaining <= 0) {
+                    throw new InterruptedIOException(this.hostport +
+                        ": Deadline passed before connect");
+                }
+                long connectTimeout = client.getConnectTimeout();
+                // Abortable so the watchdog's interrupt lets go of a stuck
+                // call and tears down its connection.
+                JMXConnector jmxc = client.getJMXConnector(this.hostport,
+                    login, password, true, (connectTimeout > 0)?
+                        Math.min(connectTimeout, remaining): remaining);
+                try {
+                    if (this.task.isCancelled()) {
+                        // Timed out while we were connecting.
+                        return null;
+                    }
+                    MBeanServerConnection mbsc =
+                        jmxc.getMBeanServerConnection();
+                    return client.doCommand(mbsc, beanname, command);
+                } finally {
+                    client.close(jmxc);
+                }
+            } finally {
+                this.finished = System.currentTimeMillis();
+                timer.cancel(false);
+            }
+        }
+        
+        /**
+         * Called by the watchdog when our deadline, or the sweep's, passes.
+         * Cancel the task: if not yet started, it never is; if running, its
+         * worker is interrupted, which abandons any connect or call in
+         * progress.  The worker then closes the connection.
+         */
+        void timeout() {
+            this.task.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * MultiHostTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.management.MBeanServerFactory;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of {@link MultiHost} against a JMXConnectorServer on loopback, a
+ * port nothing listens on, and a port that accepts connections but never
+ * answers.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class MultiHostTest extends TestCase {
+    private static final String BEAN =
+        "JMImplementation:type=MBeanServerDelegate";
+    private static final String [] COMMAND = {"MBeanServerId"};
+    private static final long DEADLINE = 2000;
+    
+    private Registry registry;
+    private JMXConnectorServer server;
+    private String live;
+    private String dead;
+    private ServerSocket hung;
+    private final List accepted = new ArrayList();
+    
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (System.getProperty("java.rmi.server.hostname") == null) {
+            System.setProperty("java.rmi.server.hostname", "localhost");
+        }
+        int port = getFreePort();
+        this.registry = LocateRegistry.createRegistry(port);
+        this.server = JMXConnectorServerFactory.newJMXConnectorServer(
+            new JMXServiceURL("service:jmx:rmi:///jndi/rmi://localhost:" +
+                port + "/jmxrmi"), null, MBeanServerFactory.newMBeanServer());
+        this.server.start();
+        this.live = "localhost:" + port;
+        this.dead = "localhost:" + getFreePort();
+        // Accepts and then says nothing.
+        this.hung = new ServerSocket(0, 50, InetAddress.getByName(null));
+        Thread acceptor = new Thread("hung-acceptor") {
+            public void run() {
+                try {
+                    while (true) {
+                        Socket s = hung.accept();
+                        synchronized (accepted) {
+                            accepted.add(s);
+                        }
+                    }
+                } catch (IOException e) {
+                    // Closed.
+                }
+            }
+        };
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+    
+    protected void tearDown() throws Exception {
+        this.hung.close();
+        synchronized (this.accepted) {
+            for (int i = 0; i < this.accepted.size(); i++) {
+                ((Socket)this.accepted.get(i)).close();
+            }
+        }
+        this.server.stop();
+        UnicastRemoteObject.unexportObject(this.registry, true);
+        super.tearDown();
+    }
+    
+    protected static int getFreePort() throws IOException {
+        ServerSocket s = new ServerSocket(0);
+        try {
+            return s.getLocalPort();
+        } finally {
+            s.close();
+        }
+    }
+    
+    protected String getHung() {
+        return "localhost:" + this.hung.getLocalPort();
+    }
+    
+    protected int run(final List hosts, final int threads) throws Exception {
+        return run(hosts, threads, 0);
+    }
+    
+    protected int run(final List hosts, final int threads,
+            final long sweepDeadline)
+    throws Exception {
+        return new MultiHost(new Client(), null, null, BEAN, COMMAND, threads,
+            DEADLINE, sweepDeadline, DEADLINE / 2).run(hosts);
+    }
+    
+    public void testLiveHost() throws Exception {
+        assertEquals(0, run(Arrays.asList(new String [] {this.live}), 4));
+    }
+    
+    public void testDeadAndHungHostsFail() throws Exception {
+        long start = System.currentTimeMillis();
+        int failed = run(Arrays.asList(new String [] {this.live, this.dead,
+            getHung()}), 4);
+        long elapsed = System.currentTimeMillis() - start;
+        assertEquals(2, failed);
+        assertTrue("Took " + elapsed + "ms", elapsed >= DEADLINE);
+        assertTrue("Took " + elapsed + "ms", elapsed < DEADLINE + 1000);
+    }
+    
+    public void testQueuedHostsGetTheirOwnDeadline() throws Exception {
+        // More hosts than workers: the live hosts queue behind the hung
+        // ones and are only picked up as those time out.  Their deadline
+        // runs from then, so they still succeed.
+        long start = System.currentTimeMillis();
+        int failed = run(Arrays.asList(new String [] {getHung(), getHung(),
+            this.live, this.live, this.dead}), 2);
+        long elapsed = System.currentTimeMillis() - start;
+        assertEquals(3, failed);
+        assertTrue("Took " + elapsed + "ms", elapsed >= DEADLINE);
+        assertTrue("Took " + elapsed + "ms", elapsed < 2 * DEADLINE);
+    }
+    
+    public void testHungHostsCannotStallSweep() throws Exception {
+        // One worker: every host queues behind the hung ones.  The sweep
+        // still ends at the sweep deadline; hosts it never got to fail.
+        long start = System.currentTimeMillis();
+        int failed = run(Arrays.asList(new String [] {getHung(), getHung(),
+            getHung(), this.live}), 1, DEADLINE + DEADLINE / 2);
+        long elapsed = System.currentTimeMillis() - start;
+        assertEquals(4, failed);
+        assertTrue("Took " + elapsed + "ms", elapsed >= DEADLINE);
+        assertTrue("Took " + elapsed + "ms", elapsed < 2 * DEADLINE + 500);
+    }
+}
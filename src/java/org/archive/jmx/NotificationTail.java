@@ -0,0 +1,291 @@
+/*
+ * NotificationTail
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServerConnection;
+import javax.management.Notification;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnectionNotification;
+import javax.management.remote.JMXConnector;
+
+/**
+ * Subscribe to notifications from a bean, or all beans that match a
+ * pattern, and print them as they come in.  If results have a format, each
+ * notification is a result whose command is the notification type and
+ * whose value holds its sequence number, time, message and user data.
+ * <p>Notifications are put on a bounded queue that a writer thread drains.
+ * If the queue is full, we either drop the notification or block the
+ * notification-fetching thread until there is room.  Blocking pushes back
+ * on the remote side: it stops being asked for notifications and will
+ * itself drop when its buffer fills.  We count both kinds of loss and
+ * report them along with the queue depth.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class NotificationTail implements NotificationListener {
+    private static final Logger logger =
+        Logger.getLogger(NotificationTail.class.getName());
+    
+    private final Client client;
+    private final JMXConnector jmxc;
+    private final ObjectName objName;
+    private final NotificationFilter filter;
+    private final BlockingQueue queue;
+    private final int capacity;
+    private final boolean block;
+    
+    /**
+     * Format to write notifications in or null to write text.  Only used
+     * by the writer thread.
+     */
+    private final ResultFormat format;
+    
+    private final AtomicLong received = new AtomicLong(0);
+    private final AtomicLong written = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+    private final AtomicLong lost = new AtomicLong(0);
+    private volatile int maxDepth = 0;
+    
+    /**
+     * Listens for word from the connector that the remote side dropped
+     * notifications before we got to them.
+     */
+    private final NotificationListener lostListener =
+            new NotificationListener() {
+        public void handleNotification(Notification n, Object handback) {
+            if (JMXConnectionNotification.NOTIFS_LOST.equals(n.getType()) &&
+                    n.getUserData() instanceof Long) {
+                lost.addAndGet(((Long)n.getUserData()).longValue());
+            }
+        }
+    };
+    
+    /**
+     * @param client Client to use rendering notification user data.
+     * @param jmxc Connector to subscribe over.
+     * @param objName Bean name or pattern.
+     * @param filter Filter to pass when subscribing (May be null).
+     * @param capacity Size of queue between listener and writer.
+     * @param block If true, block listener when queue full, else drop.
+     */
+    NotificationTail(final Client client, final JMXConnector jmxc,
+            final ObjectName objName, final NotificationFilter filter,
+            final int capacity, final boolean block) {
+        super();
+        this.client = client;
+        this.jmxc = jmxc;
+        this.objName = objName;
+        this.filter = filter;
+        this.capacity = capacity;
+        this.queue = new ArrayBlockingQueue(capacity);
+        this.block = block;
+        this.format = client.newResultFormat();
+    }
+    
+    /**
+     * Subscribe and print notifications.
+     * @param count Stop after this many notifications written.  If <= 0,
+     * run until killed.
+     * @param reportInterval Milliseconds between reports of counts.
+     * @throws IOException
+     * @throws InstanceNotFoundException
+     * @throws InterruptedException
+     */
+    void run(final int count, final long reportInterval)
+    throws IOException, InstanceNotFoundException, InterruptedException {
+        MBeanServerConnection mbsc = this.jmxc.getMBeanServerConnection();
+        Set names = new TreeSet(mbsc.queryNames(this.objName,
+            this.client.getQuery()));
+        if (names.size() == 0) {
+            throw new RuntimeException(Client.getNoBeanMessage(this.objName,
+                this.client.getQuery()));
+        }
+        // Only beans that are NotificationBroadcasters can be listened to.
+        // Rather than ask each if it is one -- a round trip per bean -- try
+        // and skip those that refuse.
+        List subscribed = new ArrayList(names.size());
+        for (Iterator i = names.iterator(); i.hasNext();) {
+            ObjectName name = (ObjectName)i.next();
+            try {
+                mbsc.addNotificationListener(name, this, this.filter, name);
+                subscribed.add(name);
+            } catch (InstanceNotFoundException e) {
+                logger.fine(name + ": Unregistered before subscribe");
+            } catch (RuntimeException e) {
+                logger.fine(name + ": Skipped; not a notification" +
+                    " broadcaster: " + e);
+            }
+        }
+        if (subscribed.size() == 0) {
+            throw new RuntimeException(((this.objName == null)? "":
+                this.objName.getCanonicalName() + ": ") +
+                "No bean emits notifications.");
+        }
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread writer = new Thread(new Runnable() {
+            public void run() {
+                drain(count, done);
+            }
+        }, "notification-writer");
+        writer.setDaemon(true);
+        writer.start();
+        this.jmxc.addConnectionNotificationListener(this.lostListener, null,
+            null);
+        logger.info("Subscribed to " + subscribed.size() + " bean(s) of " +
+            names.size() + " matched");
+        try {
+            while (!done.await(reportInterval, TimeUnit.MILLISECONDS)) {
+                report();
+            }
+        } finally {
+            for (Iterator i = subscribed.iterator(); i.hasNext();) {
+                try {
+                    mbsc.removeNotificationListener((ObjectName)i.next(),
+                        this);
+                } catch (Exception e) {
+                    logger.fine("Failed unsubscribe: " + e);
+                }
+            }
+            try {
+                this.jmxc.removeConnectionNotificationListener(
+                    this.lostListener);
+            } catch (Exception e) {
+                logger.fine("Failed remove of connection listener: " + e);
+            }
+            writer.interrupt();
+            report();
+        }
+    }
+    
+    public void handleNotification(Notification notification,
+            Object handback) {
+        this.received.incrementAndGet();
+        Object [] event = new Object [] {handback, notification};
+        if (this.block) {
+            try {
+                this.queue.put(event);
+            } catch (InterruptedException e) {
+                this.dropped.incrementAndGet();
+                Thread.currentThread().interrupt();
+                return;
+            }
+        } else if (!this.queue.offer(event)) {
+            this.dropped.incrementAndGet();
+            return;
+        }
+        int depth = this.queue.size();
+        if (depth > this.maxDepth) {
+            this.maxDepth = depth;
+        }
+    }
+    
+    /**
+     * Writer thread body.  Takes notifications off the queue and prints
+     * them.
+     * @param count Count of notifications to write before we are done.
+     * @param done Latch to count down when done.
+     */
+    protected void drain(final int count, final CountDownLatch done) {
+        try {
+            while (count <= 0 || this.written.get() < count) {
+                Object [] event = (Object [])this.queue.take();
+                write((ObjectName)event[0], (Notification)event[1]);
+                this.written.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            // Asked to stop.
+        } finally {
+            done.countDown();
+        }
+    }
+    
+    protected void write(final ObjectName name, final Notification n) {
+        if (this.format != null) {
+            Map value = new LinkedHashMap();
+            value.put("seq", Long.valueOf(n.getSequenceNumber()));
+            value.put("time", Long.valueOf(n.getTimeStamp()));
+            if (n.getMessage() != null && n.getMessage().length() > 0) {
+                value.put("message", n.getMessage());
+            }
+            if (n.getUserData() != null) {
+                value.put("userData", n.getUserData());
+            }
+            try {
+                try {
+                    this.format.write(null, name.getCanonicalName(),
+                        n.getType(), value);
+                } finally {
+                    this.format.flush();
+                }
+            } catch (IOException e) {
+                logger.severe("Failed write of results: " + e);
+            }
+            return;
+        }
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(name.getCanonicalName());
+        buffer.append(" type=").append(n.getType());
+        buffer.append(" seq=").append(n.getSequenceNumber());
+        buffer.append(" time=").append(n.getTimeStamp());
+        if (n.getMessage() != null && n.getMessage().length() > 0) {
+            buffer.append(" message=").append(n.getMessage());
+        }
+        if (n.getUserData() != null) {
+            buffer.append(" userData: ");
+            buffer.append(this.client.renderResult(n.getUserData()));
+        }
+        ResultSink.print(this.client.getResultSink(), logger,
+            buffer.toString());
+    }
+    
+    protected void report() {
+        logger.info("Notifications received=" + this.received.get() +
+            " written=" + this.written.get() +
+            " dropped=" + this.dropped.get() +
+            " lost remotely=" + this.lost.get() +
+            " queue depth=" + this.queue.size() + "/" + this.capacity +
+            " max depth=" + this.maxDepth);
+    }
+}
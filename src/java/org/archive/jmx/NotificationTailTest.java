@@ -0,0 +1,223 @@
+/*
+ * NotificationTailTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.Notification;
+import javax.management.NotificationBroadcasterSupport;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of {@link NotificationTail} subscribing over a JMXConnectorServer
+ * on loopback, and of what it does when its queue is full.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class NotificationTailTest extends TestCase {
+    private static final String BEAN = "test:type=Ticker";
+
+    private MBeanServer mbs;
+    private Registry registry;
+    private JMXConnectorServer server;
+    private String hostport;
+    private Ticker ticker;
+
+    public interface TickerMBean {
+        long getSent();
+    }
+
+    public static class Ticker extends NotificationBroadcasterSupport
+    implements TickerMBean {
+        private long sent = 0;
+
+        public synchronized long getSent() {
+            return this.sent;
+        }
+
+        void send(final String type) {
+            long seq;
+            synchronized (this) {
+                seq = ++this.sent;
+            }
+            sendNotification(new Notification(type, BEAN, seq, type + seq));
+        }
+    }
+
+    /**
+     * Bean that is not a notification broadcaster.
+     */
+    public interface QuietMBean {
+        int getValue();
+    }
+
+    public static class Quiet implements QuietMBean {
+        public int getValue() {
+            return 1;
+        }
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        if (System.getProperty("java.rmi.server.hostname") == null) {
+            System.setProperty("java.rmi.server.hostname", "localhost");
+        }
+        this.mbs = MBeanServerFactory.newMBeanServer();
+        this.ticker = new Ticker();
+        this.mbs.registerMBean(this.ticker, new ObjectName(BEAN));
+        this.mbs.registerMBean(new Quiet(), new ObjectName("test:type=Quiet"));
+        ServerSocket s = new ServerSocket(0);
+        int port = s.getLocalPort();
+        s.close();
+        this.registry = LocateRegistry.createRegistry(port);
+        this.server = JMXConnectorServerFactory.newJMXConnectorServer(
+            new JMXServiceURL("service:jmx:rmi:///jndi/rmi://localhost:" +
+                port + "/jmxrmi"), null, this.mbs);
+        this.server.start();
+        this.hostport = "localhost:" + port;
+    }
+
+    protected void tearDown() throws Exception {
+        this.server.stop();
+        UnicastRemoteObject.unexportObject(this.registry, true);
+        super.tearDown();
+    }
+
+    /**
+     * Subscribe with <code>args</code> while notifications of type 'tick'
+     * and 'tock' are sent until the subscription is done.
+     * @return What was written to stdout.
+     */
+    protected String subscribe(final String [] args) throws Exception {
+        Thread sender = new Thread("sender") {
+            public void run() {
+                try {
+                    while (true) {
+                        ticker.send("tick");
+                        ticker.send("tock");
+                        Thread.sleep(10);
+                    }
+                } catch (InterruptedException e) {
+                    // Done.
+                }
+            }
+        };
+        sender.setDaemon(true);
+        sender.start();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            new Client().execute(args);
+        } finally {
+            System.setOut(out);
+            sender.interrupt();
+            sender.join();
+        }
+        return bytes.toString();
+    }
+
+    protected static int count(final String s, final String of) {
+        int count = 0;
+        for (int i = s.indexOf(of); i >= 0; i = s.indexOf(of, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    public void testSubscribe() throws Exception {
+        // Quiet is skipped since it is not a broadcaster.
+        String output = subscribe(new String [] {"--subscribe",
+            "--format=flat", "--count=5", "--types=tick", "-",
+            this.hostport, "test:*"});
+        assertEquals(output, 5, count(output, BEAN + ".tick.seq="));
+        assertEquals(output, 5, count(output, BEAN + ".tick.message=tick"));
+        assertEquals(output, 0, count(output, ".tock."));
+    }
+
+    public void testNoBroadcaster() throws Exception {
+        try {
+            subscribe(new String [] {"--subscribe", "--count=1", "-",
+                this.hostport, "test:type=Quiet"});
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("test:type=Quiet: No bean emits notifications.",
+                e.getMessage());
+        }
+    }
+
+    public void testDropWhenFull() throws Exception {
+        final List messages = new ArrayList();
+        Handler handler = new Handler() {
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            public void flush() {
+                // Nothing to do.
+            }
+
+            public void close() {
+                // Nothing to do.
+            }
+        };
+        Logger logger = Logger.getLogger(NotificationTail.class.getName());
+        logger.addHandler(handler);
+        try {
+            // Nothing drains the queue.
+            NotificationTail tail = new NotificationTail(new Client(), null,
+                new ObjectName(BEAN), null, 2, false);
+            for (int i = 1; i <= 5; i++) {
+                tail.handleNotification(new Notification("tick", BEAN, i),
+                    new ObjectName(BEAN));
+            }
+            tail.report();
+        } finally {
+            logger.removeHandler(handler);
+        }
+        assertEquals("Notifications received=5 written=0 dropped=3" +
+            " lost remotely=0 queue depth=2/2 max depth=2",
+            messages.get(messages.size() - 1));
+    }
+}
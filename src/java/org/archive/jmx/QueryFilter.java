@@ -0,0 +1,327 @@
+/*
+ * QueryFilter
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.AttributeValueExp;
+import javax.management.Query;
+import javax.management.QueryExp;
+import javax.management.StringValueExp;
+import javax.management.ValueExp;
+
+/**
+ * Compiles a filter expression into a {@link QueryExp} the MBean server
+ * evaluates, so a pattern query returns only the beans that pass rather
+ * than every bean for us to inspect, e.g.
+ * <pre>
+ * ActiveCount > 50 && Name like "http-*"
+ * State in ("RUNNING", "STARTING") || !Enabled
+ * HeapUsed * 100 / HeapMax >= 90
+ * instanceof "java.util.concurrent.ThreadPoolExecutor"
+ * </pre>
+ * Expressions have attribute names, numbers, "strings", true and false,
+ * <code>+ - * /</code>, comparisons <code>== != &lt; &lt;= &gt;
+ * &gt;=</code>, <code>NAME like "GLOB"</code> (Wildcards '*', '?' and
+ * '[...]'), <code>VALUE in (VALUE, ...)</code>, <code>instanceof
+ * "CLASS"</code>, <code>&& || !</code> and parentheses.  A bare attribute
+ * name is true if the attribute is true.
+ * <p>The server reads only top-level attributes so names cannot be paths
+ * into composites.  A bean that lacks an attribute the expression reads,
+ * or whose attribute fails to read, does not pass.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class QueryFilter {
+    private static final String [] COMPARISONS =
+        {"==", "!=", "<=", ">=", "<", ">", "="};
+    
+    private final String text;
+    private int pos = 0;
+    
+    private QueryFilter(final String text) {
+        super();
+        this.text = text;
+    }
+    
+    /**
+     * @param text Filter expression.
+     * @return <code>text</code> compiled into a QueryExp.
+     * @throws IllegalArgumentException If <code>text</code> does not
+     * parse.
+     */
+    static QueryExp compile(final String text) {
+        QueryFilter parser = new QueryFilter(text);
+        QueryExp query = parser.toQuery(parser.parseOr());
+        parser.skipSpace();
+        if (parser.pos < text.length()) {
+            throw parser.error("Unexpected '" + text.substring(parser.pos) +
+                "'");
+        }
+        return query;
+    }
+    
+    /*
+     * Parse methods return either a QueryExp or a ValueExp; which is
+     * checked where they are combined.
+     */
+    
+    protected Object parseOr() {
+        Object exp = parseAnd();
+        while (matchOperator(new String [] {"||"}) != null) {
+            exp = Query.or(toQuery(exp), toQuery(parseAnd()));
+        }
+        return exp;
+    }
+    
+    protected Object parseAnd() {
+        Object exp = parseNot();
+        while (matchOperator(new String [] {"&&"}) != null) {
+            exp = Query.and(toQuery(exp), toQuery(parseNot()));
+        }
+        return exp;
+    }
+    
+    protected Object parseNot() {
+        skipSpace();
+        if (peek() == '!' && !this.text.startsWith("!=", this.pos)) {
+            this.pos++;
+            return Query.not(toQuery(parseNot()));
+        }
+        return parseComparison();
+    }
+    
+    protected Object parseComparison() {
+        Object left = parseSum();
+        String op = matchOperator(COMPARISONS);
+        if (op != null) {
+            ValueExp l = toValue(left);
+            ValueExp r = toValue(parseSum());
+            if (op.equals("==") || op.equals("=")) {
+                return Query.eq(l, r);
+            } else if (op.equals("!=")) {
+                return Query.not(Query.eq(l, r));
+            } else if (op.equals("<=")) {
+                return Query.leq(l, r);
+            } else if (op.equals(">=")) {
+                return Query.geq(l, r);
+            } else if (op.equals("<")) {
+                return Query.lt(l, r);
+            }
+            return Query.gt(l, r);
+        }
+        if (matchWord("like")) {
+            if (!(left instanceof AttributeValueExp)) {
+                throw error("Expected an attribute name before 'like'");
+            }
+            Object pattern = parsePrimary();
+            if (!(pattern instanceof StringValueExp)) {
+                throw error("Expected a \"pattern\" after 'like'");
+            }
+            return Query.match((AttributeValueExp)left,
+                (StringValueExp)pattern);
+        }
+        if (matchWord("in")) {
+            skipSpace();
+            if (peek() != '(') {
+                throw error("Expected '(' after 'in'");
+            }
+            this.pos++;
+            List values = new ArrayList();
+            do {
+                values.add(toValue(parseSum()));
+            } while (matchOperator(new String [] {","}) != null);
+            skipSpace();
+            if (peek() != ')') {
+                throw error("Expected ')'");
+            }
+            this.pos++;
+            return Query.in(toValue(left),
+                (ValueExp [])values.toArray(new ValueExp[values.size()]));
+        }
+        return left;
+    }
+    
+    protected Object parseSum() {
+        Object exp = parseProduct();
+        for (String op = matchOperator(new String [] {"+", "-"}); op != null;
+                op = matchOperator(new String [] {"+", "-"})) {
+            ValueExp r = toValue(parseProduct());
+            exp = op.equals("+")? Query.plus(toValue(exp), r):
+                Query.minus(toValue(exp), r);
+        }
+        return exp;
+    }
+    
+    protected Object parseProduct() {
+        Object exp = parsePrimary();
+        for (String op = matchOperator(new String [] {"*", "/"}); op != null;
+                op = matchOperator(new String [] {"*", "/"})) {
+            ValueExp r = toValue(parsePrimary());
+            exp = op.equals("*")? Query.times(toValue(exp), r):
+                Query.div(toValue(exp), r);
+        }
+        return exp;
+    }
+    
+    protected Object parsePrimary() {
+        skipSpace();
+        char c = peek();
+        if (c == '(') {
+            this.pos++;
+            Object exp = parseOr();
+            skipSpace();
+            if (peek() != ')') {
+                throw error("Expected ')'");
+            }
+            this.pos++;
+            return exp;
+        } else if (c == '"') {
+            int end = this.text.indexOf('"', this.pos + 1);
+            if (end < 0) {
+                throw error("No closing '\"'");
+            }
+            String s = this.text.substring(this.pos + 1, end);
+            this.pos = end + 1;
+            return Query.value(s);
+        } else if (Character.isDigit(c) || c == '.' || c == '-') {
+            return parseNumber();
+        } else if (Character.isJavaIdentifierStart(c)) {
+            int start = this.pos;
+            while (this.pos < this.text.length() &&
+                    Character.isJavaIdentifierPart(peek())) {
+                this.pos++;
+            }
+            String name = this.text.substring(start, this.pos);
+            if (peek() == '.' || peek() == '[') {
+                throw error("Filters take attribute names, not paths");
+            }
+            if (name.equals("true") || name.equals("false")) {
+                return Query.value(Boolean.valueOf(name).booleanValue());
+            }
+            if (name.equals("instanceof")) {
+                Object cls = parsePrimary();
+                if (!(cls instanceof StringValueExp)) {
+                    throw error("Expected a \"class name\" after" +
+                        " 'instanceof'");
+                }
+                return Query.isInstanceOf((StringValueExp)cls);
+            }
+            return Query.attr(name);
+        }
+        throw error((c == 0)? "Unexpected end": "Unexpected '" + c + "'");
+    }
+    
+    protected ValueExp parseNumber() {
+        int start = this.pos;
+        if (peek() == '-') {
+            this.pos++;
+        }
+        while (this.pos < this.text.length() &&
+                (Character.isLetterOrDigit(peek()) || peek() == '.' ||
+                    ((peek() == '+' || peek() == '-') &&
+                        (this.text.charAt(this.pos - 1) == 'e' ||
+                         this.text.charAt(this.pos - 1) == 'E')))) {
+            this.pos++;
+        }
+        String number = this.text.substring(start, this.pos);
+        try {
+            return Query.value(Long.parseLong(number));
+        } catch (NumberFormatException e) {
+            // Not an integer.
+        }
+        try {
+            return Query.value(Double.parseDouble(number));
+        } catch (NumberFormatException e) {
+            throw error("Bad number '" + number + "'");
+        }
+    }
+    
+    /**
+     * @return <code>exp</code> as a condition.  A bare attribute is true
+     * if the attribute is true.
+     */
+    protected QueryExp toQuery(final Object exp) {
+        if (exp instanceof QueryExp) {
+            return (QueryExp)exp;
+        } else if (exp instanceof AttributeValueExp) {
+            return Query.eq((AttributeValueExp)exp, Query.value(true));
+        }
+        throw error("Expected a condition");
+    }
+    
+    protected ValueExp toValue(final Object exp) {
+        if (exp instanceof ValueExp) {
+            return (ValueExp)exp;
+        }
+        throw error("Expected a value");
+    }
+    
+    protected String matchOperator(final String [] ops) {
+        skipSpace();
+        for (int i = 0; i < ops.length; i++) {
+            if (this.text.startsWith(ops[i], this.pos)) {
+                this.pos += ops[i].length();
+                return ops[i];
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Match <code>word</code> if it is not the start of a longer name.
+     */
+    protected boolean matchWord(final String word) {
+        skipSpace();
+        int end = this.pos + word.length();
+        if (this.text.startsWith(word, this.pos) &&
+                (end == this.text.length() ||
+                    !Character.isJavaIdentifierPart(this.text.charAt(end)))) {
+            this.pos = end;
+            return true;
+        }
+        return false;
+    }
+    
+    protected void skipSpace() {
+        while (this.pos < this.text.length() &&
+                Character.isWhitespace(peek())) {
+            this.pos++;
+        }
+    }
+    
+    protected char peek() {
+        return (this.pos < this.text.length())?
+            this.text.charAt(this.pos): 0;
+    }
+    
+    protected IllegalArgumentException error(final String message) {
+        return new IllegalArgumentException(message + " at " +
+            (this.pos + 1) + " in " + this.text);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * QueryFilterTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.Query;
+import javax.management.QueryExp;
+import javax.management.ValueExp;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the {@link QueryFilter} grammar, the Query expressions it
+ * compiles to and how an MBeanServer applies them.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class QueryFilterTest extends TestCase {
+    private MBeanServer mbs;
+
+    public interface PoolMBean {
+        int getActiveCount();
+        String getName();
+        String getState();
+        boolean isEnabled();
+        long getHeapUsed();
+        long getHeapMax();
+    }
+
+    public static class Pool implements PoolMBean {
+        private final String name;
+        private final int active;
+        private final String state;
+        private final boolean enabled;
+
+        public Pool(final String name, final int active, final String state,
+                final boolean enabled) {
+            this.name = name;
+            this.active = active;
+            this.state = state;
+            this.enabled = enabled;
+        }
+
+        public int getActiveCount() {
+            return this.active;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public String getState() {
+            return this.state;
+        }
+
+        public boolean isEnabled() {
+            return this.enabled;
+        }
+
+        public long getHeapUsed() {
+            return this.active * 10L;
+        }
+
+        public long getHeapMax() {
+            return 1000;
+        }
+    }
+
+    /**
+     * Bean without the Pool attributes.
+     */
+    public interface OtherMBean {
+        String getName();
+    }
+
+    public static class Other implements OtherMBean {
+        public String getName() {
+            return "http-other";
+        }
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mbs = MBeanServerFactory.newMBeanServer();
+        register("http-1", 60, "RUNNING", true);
+        register("http-2", 95, "STARTING", true);
+        register("ajp-1", 10, "STOPPED", false);
+        this.mbs.registerMBean(new Other(),
+            new ObjectName("test:type=Other"));
+    }
+
+    protected void register(final String name, final int active,
+            final String state, final boolean enabled)
+    throws Exception {
+        this.mbs.registerMBean(new Pool(name, active, state, enabled),
+            new ObjectName("test:type=Pool,name=" + name));
+    }
+
+    /**
+     * @return Sorted 'name' key, or 'type' if no name, of beans that pass
+     * <code>filter</code>, comma separated.
+     */
+    protected String select(final String filter) throws Exception {
+        Set names = this.mbs.queryNames(new ObjectName("test:*"),
+            QueryFilter.compile(filter));
+        Set keys = new TreeSet();
+        for (Iterator i = names.iterator(); i.hasNext();) {
+            ObjectName n = (ObjectName)i.next();
+            keys.add((n.getKeyProperty("name") != null)?
+                n.getKeyProperty("name"): n.getKeyProperty("type"));
+        }
+        StringBuffer buffer = new StringBuffer();
+        for (Iterator i = keys.iterator(); i.hasNext();) {
+            buffer.append((buffer.length() == 0)? "": ",").append(i.next());
+        }
+        return buffer.toString();
+    }
+
+    protected void assertCompiles(final QueryExp expected,
+            final String filter) {
+        assertEquals(filter, expected.toString(),
+            QueryFilter.compile(filter).toString());
+    }
+
+    protected void assertError(final String filter, final String message) {
+        try {
+            QueryFilter.compile(filter);
+            fail(filter);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message + " in " + filter, e.getMessage());
+        }
+    }
+
+    protected static ValueExp value(final long l) {
+        return Query.value(l);
+    }
+
+    public void testCompiledComparisons() throws Exception {
+        assertCompiles(Query.gt(Query.attr("A"), value(50)), "A > 50");
+        assertCompiles(Query.geq(Query.attr("A"), value(50)), "A>=50");
+        assertCompiles(Query.lt(Query.attr("A"), value(-5)), "A < -5");
+        assertCompiles(Query.leq(Query.attr("A"), Query.value(0.5d)),
+            "A <= .5");
+        assertCompiles(Query.eq(Query.attr("A"), Query.value("x")),
+            "A == \"x\"");
+        assertCompiles(Query.eq(Query.attr("A"), Query.value("x")),
+            "A = \"x\"");
+        assertCompiles(Query.not(Query.eq(Query.attr("A"), value(1))),
+            "A != 1");
+        assertCompiles(Query.eq(Query.attr("A"), Query.value(true)), "A");
+        assertCompiles(Query.eq(Query.attr("A"), Query.value(false)),
+            "A == false");
+        assertCompiles(Query.gt(Query.attr("likeCount"), value(1)),
+            "likeCount > 1");
+    }
+
+    public void testCompiledPrecedence() throws Exception {
+        assertCompiles(Query.geq(
+            Query.div(Query.times(Query.attr("U"), value(100)),
+                Query.attr("M")),
+            Query.plus(value(80), Query.times(value(2), value(5)))),
+            "U * 100 / M >= 80 + 2 * 5");
+        assertCompiles(Query.eq(Query.minus(Query.minus(value(10),
+            Query.attr("A")), value(3)), value(0)), "10 - A - 3 == 0");
+        assertCompiles(Query.or(Query.eq(Query.attr("A"), Query.value(true)),
+            Query.and(Query.eq(Query.attr("B"), Query.value(true)),
+                Query.not(Query.eq(Query.attr("C"), Query.value(true))))),
+            "A || B && !C");
+        assertCompiles(Query.and(Query.or(
+            Query.eq(Query.attr("A"), Query.value(true)),
+            Query.eq(Query.attr("B"), Query.value(true))),
+            Query.eq(Query.attr("C"), Query.value(true))),
+            "(A || B) && C");
+        assertCompiles(Query.eq(Query.times(Query.plus(Query.attr("A"),
+            value(1)), value(2)), value(4)), "(A + 1) * 2 == 4");
+    }
+
+    public void testCompiledMatchInAndInstanceOf() throws Exception {
+        assertCompiles(Query.match(Query.attr("Name"),
+            Query.value("http-*")), "Name like \"http-*\"");
+        assertCompiles(Query.in(Query.attr("State"), new ValueExp [] {
+            Query.value("RUNNING"), Query.value("STARTING")}),
+            "State in (\"RUNNING\", \"STARTING\")");
+        assertCompiles(Query.in(Query.attr("A"), new ValueExp [] {
+            value(1)}), "A in (1)");
+        assertCompiles(Query.isInstanceOf(Query.value("a.B")),
+            "instanceof \"a.B\"");
+    }
+
+    public void testSelect() throws Exception {
+        assertEquals("http-1,http-2", select("ActiveCount > 50"));
+        assertEquals("Other,http-1,http-2", select("Name like \"http-*\""));
+        assertEquals("http-2", select("ActiveCount > 50 && " +
+            "Name like \"http-[2-9]\""));
+        assertEquals("ajp-1,http-2",
+            select("State in (\"STARTING\") || !Enabled"));
+        assertEquals("http-2", select("HeapUsed * 100 / HeapMax >= 90"));
+        assertEquals("ajp-1,http-1,http-2", select("instanceof \"" +
+            Pool.class.getName() + "\""));
+        assertEquals("ajp-1,http-1,http-2", select("Enabled || !Enabled"));
+    }
+
+    public void testMissingAttributeDoesNotPass() throws Exception {
+        // Other has no ActiveCount and does not pass either way.
+        assertEquals("ajp-1", select("ActiveCount < 50"));
+        assertEquals("http-1,http-2", select("!(ActiveCount < 50)"));
+    }
+
+    public void testErrorPositions() throws Exception {
+        assertError("A >", "Unexpected end at 4");
+        assertError("A > 1 )", "Unexpected ')' at 7");
+        assertError("(A > 1", "Expected ')' at 7");
+        assertError("A > B > C", "Unexpected '> C' at 7");
+        assertError("A.b > 1", "Filters take attribute names, not paths at 2");
+        assertError("A[0] > 1", "Filters take attribute names, not paths at 2");
+        assertError("A > 1x", "Bad number '1x' at 7");
+        assertError("-A > 1", "Bad number '-A' at 3");
+        assertError("A == \"x", "No closing '\"' at 6");
+        assertError("1 like \"x\"", "Expected an attribute name before" +
+            " 'like' at 7");
+        assertError("A like 1", "Expected a \"pattern\" after 'like' at 9");
+        assertError("A in 1", "Expected '(' after 'in' at 6");
+        assertError("A in (1, 2", "Expected ')' at 11");
+        assertError("instanceof A", "Expected a \"class name\" after" +
+            " 'instanceof' at 13");
+        assertError("A && 1", "Expected a condition at 7");
+        assertError("A + (B > 1) > 2", "Expected a value at 13");
+    }
+}
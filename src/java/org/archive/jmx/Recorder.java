@@ -0,0 +1,264 @@
+/*
+ * Recorder
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append samples to a compact binary file through a memory-mapped channel.
+ * <p>The file is a header -- magic and version ints -- followed by records,
+ * each led by a type byte:
+ * <dl>
+ * <dt>NAME</dt><dd>Adds a string to the dictionary.  Two-byte length then
+ * UTF-8 bytes.  Its id is its index in the order names were added.</dd>
+ * <dt>TICK</dt><dd>Time of the samples that follow.  Varint zigzagged
+ * milliseconds since the previous tick (Since the epoch for the first).
+ * </dd>
+ * <dt>LONG, DOUBLE</dt><dd>One sample: varint bean name id, varint
+ * attribute path id then an eight-byte value.</dd>
+ * </dl>
+ * The file is mapped a region at a time and the unwritten tail of the last
+ * region is zeros, so the reader stops at the first END (zero) type byte.
+ * A record's type byte is written after the rest of it, so a record we
+ * are killed part way through still reads as END.  If we are killed
+ * before {@link #close()}, the file keeps its zero tail; it is still
+ * readable, and when it is reopened anything past the last whole record
+ * is trimmed and we append after it.  A last record cut short, by a full
+ * disk say, is dropped the same way.
+ * <p>Not safe for use by more than one thread at a time.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ * @see Replay
+ */
+public class Recorder {
+    static final int MAGIC = 0x4a4d5852;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    
+    static final byte END = 0;
+    static final byte NAME = 'N';
+    static final byte TICK = 'T';
+    static final byte LONG = 'L';
+    static final byte DOUBLE = 'D';
+    
+    /**
+     * Bytes mapped at a time.
+     */
+    static final int REGION_SIZE = 16 * 1024 * 1024;
+    
+    /**
+     * Longest record: type, length and longest name.
+     */
+    static final int MAX_RECORD_SIZE = 1 + 2 + 0xffff;
+    
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    
+    /**
+     * Mapped region we write to and its offset in the file.
+     */
+    private MappedByteBuffer buffer;
+    private long base;
+    
+    /**
+     * Dictionary ids keyed by name.
+     */
+    private final Map ids = new HashMap();
+    
+    private long lastTime = 0;
+    
+    /**
+     * @param f File to record to.  If it already holds a recording, we
+     * append to it.
+     * @throws IOException
+     */
+    public Recorder(final File f) throws IOException {
+        super();
+        long end = HEADER_SIZE;
+        if (f.exists() && f.length() > 0) {
+            // Recover the dictionary, last tick and end of records.
+            Replay replay = new Replay(f);
+            try {
+                replay.read();
+            } finally {
+                replay.close();
+            }
+            List names = replay.getNames();
+            for (int i = 0; i < names.size(); i++) {
+                this.ids.put(names.get(i), Integer.valueOf(i));
+            }
+            this.lastTime = replay.getTime();
+            end = replay.getEnd();
+        }
+        this.file = new RandomAccessFile(f, "rw");
+        this.channel = this.file.getChannel();
+        if (this.channel.size() > end) {
+            // Drop any part-written record so none of it is left past
+            // what we write next.
+            this.channel.truncate(end);
+        }
+        map(0);
+        if (end == HEADER_SIZE) {
+            this.buffer.putInt(MAGIC);
+            this.buffer.putInt(VERSION);
+        }
+        map(end);
+    }
+    
+    /**
+     * @param name Bean name or attribute path.
+     * @return Dictionary id for <code>name</code>.  Adds it if new.
+     * @throws IOException
+     */
+    public int getId(final String name) throws IOException {
+        Integer id = (Integer)this.ids.get(name);
+        if (id != null) {
+            return id.intValue();
+        }
+        byte [] bytes = getBytes(name);
+        if (bytes.length > 0xffff) {
+            throw new IllegalArgumentException("Name too long: " +
+                name.substring(0, 64) + "...");
+        }
+        int start = begin(MAX_RECORD_SIZE);
+        this.buffer.putShort((short)bytes.length);
+        this.buffer.put(bytes);
+        commit(start, NAME);
+        id = Integer.valueOf(this.ids.size());
+        this.ids.put(name, id);
+        return id.intValue();
+    }
+    
+    /**
+     * Start a new set of samples.
+     * @param time Time samples were taken (Milliseconds since the epoch).
+     * @throws IOException
+     */
+    public void tick(final long time) throws IOException {
+        int start = begin(1 + 10);
+        long delta = time - this.lastTime;
+        putVarLong((delta << 1) ^ (delta >> 63));
+        commit(start, TICK);
+        this.lastTime = time;
+    }
+    
+    public void write(final int bean, final int path, final long value)
+    throws IOException {
+        int start = begin(1 + 5 + 5 + 8);
+        putVarLong(bean);
+        putVarLong(path);
+        this.buffer.putLong(value);
+        commit(start, LONG);
+    }
+    
+    public void write(final int bean, final int path, final double value)
+    throws IOException {
+        int start = begin(1 + 5 + 5 + 8);
+        putVarLong(bean);
+        putVarLong(path);
+        this.buffer.putDouble(value);
+        commit(start, DOUBLE);
+    }
+    
+    /**
+     * Write out what is mapped and trim the zero tail off the file.
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        try {
+            this.buffer.force();
+            this.channel.truncate(this.base + this.buffer.position());
+        } finally {
+            this.file.close();
+        }
+    }
+    
+    /**
+     * Start a record, leaving its type byte, which reads as END until
+     * {@link #commit(int, byte)}, for last.
+     * @param size Most bytes the record takes.
+     * @return Position of the record's type byte.
+     * @throws IOException
+     */
+    protected int begin(final int size) throws IOException {
+        ensure(size);
+        int start = this.buffer.position();
+        this.buffer.position(start + 1);
+        return start;
+    }
+    
+    /**
+     * Finish a record by writing its type byte.
+     * @param start Position of the type byte.
+     * @param type Record type.
+     */
+    protected void commit(final int start, final byte type) {
+        this.buffer.put(start, type);
+    }
+    
+    protected void ensure(final int size) throws IOException {
+        if (this.buffer.remaining() < size) {
+            map(this.base + this.buffer.position());
+        }
+    }
+    
+    /**
+     * Map the region that starts at <code>offset</code>.  Grows the file
+     * to fit.
+     * @param offset Offset into the file.
+     * @throws IOException
+     */
+    protected void map(final long offset) throws IOException {
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE,
+            offset, REGION_SIZE);
+        this.base = offset;
+    }
+    
+    protected void putVarLong(long value) {
+        while ((value & ~0x7fL) != 0) {
+            this.buffer.put((byte)((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        this.buffer.put((byte)value);
+    }
+    
+    protected static byte [] getBytes(final String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
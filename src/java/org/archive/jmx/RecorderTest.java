@@ -0,0 +1,247 @@
+/*
+ * RecorderTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * Round trips through {@link Recorder} and {@link Replay.Query}.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class RecorderTest extends TestCase {
+    private static final String BEAN = "test:type=Sampled";
+    private static final String OTHER = "other:type=Sampled";
+    private static final long T0 = 1000000L;
+
+    private File f;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.f = File.createTempFile("recorder", ".rec");
+        this.f.delete();
+    }
+
+    protected void tearDown() throws Exception {
+        this.f.delete();
+        super.tearDown();
+    }
+
+    /**
+     * Record two ticks of samples.  Leaves the recorder open.
+     */
+    protected Recorder record() throws IOException {
+        Recorder r = new Recorder(this.f);
+        int bean = r.getId(BEAN);
+        int count = r.getId("Count");
+        int load = r.getId("Usage.load");
+        r.tick(T0);
+        r.write(bean, count, 1L);
+        r.write(bean, load, 0.5d);
+        r.tick(T0 + 1000);
+        r.write(bean, count, 2L);
+        r.write(r.getId(OTHER), count, -7L);
+        return r;
+    }
+
+    protected String query(final long from, final long to,
+            final String pattern, final String [] attributes)
+    throws Exception {
+        StringWriter writer = new StringWriter();
+        Replay.Query q = new Replay.Query(this.f, from, to,
+            (pattern == null)? null: new ObjectName(pattern), attributes,
+            true, writer);
+        try {
+            q.read();
+        } finally {
+            q.close();
+        }
+        return writer.toString();
+    }
+
+    protected String queryAll() throws Exception {
+        return query(0, Long.MAX_VALUE, null, null);
+    }
+
+    protected Replay replay() throws IOException {
+        Replay replay = new Replay(this.f);
+        try {
+            replay.read();
+        } finally {
+            replay.close();
+        }
+        return replay;
+    }
+
+    public void testRoundTrip() throws Exception {
+        record().close();
+        assertEquals("time,bean,path,value\n" +
+            T0 + "," + BEAN + ",Count,1\n" +
+            T0 + "," + BEAN + ",Usage.load,0.5\n" +
+            (T0 + 1000) + "," + BEAN + ",Count,2\n" +
+            (T0 + 1000) + "," + OTHER + ",Count,-7\n", queryAll());
+        // Closing trims the mapped zero tail.
+        assertEquals(this.f.length(), replay().getEnd());
+    }
+
+    public void testQueryFilters() throws Exception {
+        record().close();
+        assertEquals("time,bean,path,value\n" +
+            (T0 + 1000) + "," + BEAN + ",Count,2\n" +
+            (T0 + 1000) + "," + OTHER + ",Count,-7\n",
+            query(T0 + 1, T0 + 1000, null, null));
+        assertEquals("time,bean,path,value\n" +
+            T0 + "," + BEAN + ",Usage.load,0.5\n",
+            query(0, Long.MAX_VALUE, "test:*", new String [] {"Usage"}));
+        assertEquals("time,bean,path,value\n" +
+            (T0 + 1000) + "," + OTHER + ",Count,-7\n",
+            query(0, Long.MAX_VALUE, "other:*", null));
+    }
+
+    public void testReopenAppends() throws Exception {
+        record().close();
+        Recorder r = new Recorder(this.f);
+        // Ids are recovered so no names are added again.
+        assertEquals(0, r.getId(BEAN));
+        assertEquals(1, r.getId("Count"));
+        r.tick(T0 + 2000);
+        r.write(r.getId(BEAN), r.getId("Count"), 3L);
+        r.close();
+        assertEquals(4, replay().getNames().size());
+        assertEquals(T0 + 2000, replay().getTime());
+        assertTrue(queryAll().endsWith(
+            (T0 + 1000) + "," + OTHER + ",Count,-7\n" +
+            (T0 + 2000) + "," + BEAN + ",Count,3\n"));
+    }
+
+    public void testUnclosedRecordingReopens() throws Exception {
+        // As though killed: the file keeps the zero tail of the region.
+        record();
+        assertTrue(this.f.length() >= Recorder.REGION_SIZE);
+        Recorder r = new Recorder(this.f);
+        r.tick(T0 + 2000);
+        r.write(r.getId(BEAN), r.getId("Count"), 3L);
+        r.close();
+        String result = queryAll();
+        assertTrue(result, result.endsWith(
+            (T0 + 1000) + "," + OTHER + ",Count,-7\n" +
+            (T0 + 2000) + "," + BEAN + ",Count,3\n"));
+        assertEquals(this.f.length(), replay().getEnd());
+    }
+
+    public void testTruncatedRecordIsDropped() throws Exception {
+        record().close();
+        // Cut the last sample in half.
+        truncate(this.f.length() - 4);
+        assertEquals("time,bean,path,value\n" +
+            T0 + "," + BEAN + ",Count,1\n" +
+            T0 + "," + BEAN + ",Usage.load,0.5\n" +
+            (T0 + 1000) + "," + BEAN + ",Count,2\n", queryAll());
+        // The partial record is written over when reopened.
+        Recorder r = new Recorder(this.f);
+        r.write(r.getId(OTHER), r.getId("Count"), -8L);
+        r.close();
+        assertTrue(queryAll().endsWith(
+            (T0 + 1000) + "," + BEAN + ",Count,2\n" +
+            (T0 + 1000) + "," + OTHER + ",Count,-8\n"));
+    }
+
+    public void testKilledMidRecord() throws Exception {
+        record();
+        long end = replay().getEnd();
+        // Killed part way through a sample: all but its type byte is out.
+        // Were the type byte written first, this would read as a sample.
+        byte [] stale = new byte[18];
+        Arrays.fill(stale, Recorder.LONG);
+        RandomAccessFile raf = new RandomAccessFile(this.f, "rw");
+        try {
+            raf.seek(end + 1);
+            raf.write(stale);
+        } finally {
+            raf.close();
+        }
+        String before = queryAll();
+        assertTrue(before, before.endsWith(
+            (T0 + 1000) + "," + OTHER + ",Count,-7\n"));
+        assertEquals(end, replay().getEnd());
+        // Reopen and be killed again after a tick.  None of the stale
+        // sample is left to be read after it.
+        Recorder r = new Recorder(this.f);
+        r.tick(T0 + 2000);
+        assertEquals(before, queryAll());
+        assertEquals(end + 3, replay().getEnd());
+        assertEquals(T0 + 2000, replay().getTime());
+        r.write(r.getId(BEAN), r.getId("Count"), 3L);
+        r.close();
+        assertEquals(before + (T0 + 2000) + "," + BEAN + ",Count,3\n",
+            queryAll());
+    }
+
+    public void testBadNameId() throws Exception {
+        Recorder r = record();
+        r.write(r.getId(BEAN), 99, 1L);
+        r.close();
+        try {
+            replay();
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().indexOf(
+                "Bad name id 99") > 0);
+        }
+    }
+
+    public void testNotARecording() throws Exception {
+        FileOutputStream out = new FileOutputStream(this.f);
+        out.write("not a recording".getBytes());
+        out.close();
+        try {
+            replay();
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(),
+                e.getMessage().endsWith("is not a recording."));
+        }
+    }
+
+    protected void truncate(final long length) throws IOException {
+        FileOutputStream out = new FileOutputStream(this.f, true);
+        try {
+            out.getChannel().truncate(length);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Replay
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Read back a file written by {@link Recorder}.
+ * <p>{@link #read()} walks the records calling
+ * {@link #sample(long, String, String, long)} or
+ * {@link #sample(long, String, String, double)} for each sample.  These do
+ * nothing here; see {@link Query} for a subclass that prints a time range.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ * @see Recorder
+ */
+class Replay {
+    private final File f;
+    private final FileInputStream in;
+    private final FileChannel channel;
+    private final long size;
+    
+    private MappedByteBuffer buffer;
+    private long base;
+    
+    /**
+     * Dictionary in id order.
+     */
+    private final List names = new ArrayList();
+    
+    private long time = 0;
+    
+    Replay(final File f) throws IOException {
+        super();
+        this.f = f;
+        this.in = new FileInputStream(f);
+        this.channel = this.in.getChannel();
+        this.size = this.channel.size();
+    }
+    
+    /**
+     * Read all records.
+     * @throws IOException
+     */
+    void read() throws IOException {
+        map(0);
+        if (this.size < Recorder.HEADER_SIZE ||
+                this.buffer.getInt() != Recorder.MAGIC) {
+            throw new IOException(this.f + " is not a recording.");
+        }
+        int version = this.buffer.getInt();
+        if (version != Recorder.VERSION) {
+            throw new IOException(this.f + " is unsupported version " +
+                version);
+        }
+        while (true) {
+            if (this.buffer.remaining() < Recorder.MAX_RECORD_SIZE &&
+                    this.base + this.buffer.position() < this.size) {
+                map(this.base + this.buffer.position());
+            }
+            if (!this.buffer.hasRemaining()) {
+                break;
+            }
+            int start = this.buffer.position();
+            try {
+                if (!readRecord()) {
+                    this.buffer.position(start);
+                    break;
+                }
+            } catch (BufferUnderflowException e) {
+                // Last record was cut short, by a crash or a full disk.
+                // Stop before it so a Recorder reopening us writes over it.
+                this.buffer.position(start);
+                break;
+            }
+        }
+    }
+    
+    /**
+     * Read one record.
+     * @return False if we hit the END byte.
+     * @throws IOException
+     */
+    protected boolean readRecord() throws IOException {
+        byte type = this.buffer.get();
+        if (type == Recorder.END) {
+            return false;
+        } else if (type == Recorder.NAME) {
+            byte [] bytes = new byte[this.buffer.getShort() & 0xffff];
+            this.buffer.get(bytes);
+            this.names.add(new String(bytes, "UTF-8"));
+        } else if (type == Recorder.TICK) {
+            long delta = getVarLong();
+            this.time += (delta >>> 1) ^ -(delta & 1);
+        } else if (type == Recorder.LONG) {
+            int bean = getId();
+            int path = getId();
+            long value = this.buffer.getLong();
+            if (accept(this.time, bean, path)) {
+                sample(this.time, (String)this.names.get(bean),
+                    (String)this.names.get(path), value);
+            }
+        } else if (type == Recorder.DOUBLE) {
+            int bean = getId();
+            int path = getId();
+            double value = this.buffer.getDouble();
+            if (accept(this.time, bean, path)) {
+                sample(this.time, (String)this.names.get(bean),
+                    (String)this.names.get(path), value);
+            }
+        } else {
+            throw new IOException(this.f + ": Bad record type " + type +
+                " at " + (getEnd() - 1));
+        }
+        return true;
+    }
+    
+    /**
+     * @return Dictionary id.
+     * @throws IOException If not the id of a name we have read.
+     */
+    protected int getId() throws IOException {
+        long id = getVarLong();
+        if (id < 0 || id >= this.names.size()) {
+            throw new IOException(this.f + ": Bad name id " + id + " at " +
+                getEnd());
+        }
+        return (int)id;
+    }
+    
+    void close() throws IOException {
+        this.in.close();
+    }
+    
+    /**
+     * @return Dictionary in id order.
+     */
+    List getNames() {
+        return this.names;
+    }
+    
+    /**
+     * @return Time of last tick read.
+     */
+    long getTime() {
+        return this.time;
+    }
+    
+    /**
+     * @return Offset of end of last record read.
+     */
+    long getEnd() {
+        return this.base + this.buffer.position();
+    }
+    
+    /**
+     * @param time Sample time.
+     * @param bean Bean name id.
+     * @param path Attribute path id.
+     * @return True if sample should be passed to <code>sample</code>.
+     */
+    protected boolean accept(final long time, final int bean,
+            final int path) {
+        return false;
+    }
+    
+    protected void sample(final long time, final String bean,
+            final String path, final long value)
+    throws IOException {
+        // Nothing to do.
+    }
+    
+    protected void sample(final long time, final String bean,
+            final String path, final double value)
+    throws IOException {
+        // Nothing to do.
+    }
+    
+    protected void map(final long offset) throws IOException {
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY,
+            offset, Math.min(Recorder.REGION_SIZE, this.size - offset));
+        this.base = offset;
+    }
+    
+    protected long getVarLong() {
+        long value = 0;
+        for (int shift = 0;; shift += 7) {
+            byte b = this.buffer.get();
+            value |= (long)(b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+    
+    /**
+     * Print samples in a time range, and optionally of only some beans and
+     * attributes, as text or CSV.
+     */
+    static class Query extends Replay {
+        private static final int UNKNOWN = 0;
+        private static final int YES = 1;
+        private static final int NO = 2;
+        
+        private final long from;
+        private final long to;
+        private final ObjectName pattern;
+        private final String [] attributes;
+        private final boolean csv;
+        private final Writer writer;
+        private final SimpleDateFormat timeFormat =
+            new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+        private final Date date = new Date();
+        
+        /**
+         * Whether each dictionary id matches our bean pattern or attributes,
+         * indexed by id.  We work it out the first time we see an id.
+         */
+        private byte [] matches = new byte[256];
+        
+        /**
+         * @param f Recording to read.
+         * @param from Earliest sample time to print (Milliseconds).
+         * @param to Latest sample time to print (Milliseconds).
+         * @param pattern Only print beans matching (May be null).
+         * @param attributes Only print these attributes and their fields
+         * (May be null).
+         * @param csv If true, print 'time,bean,path,value' CSV rows.
+         * @param writer Where to print.
+         * @throws IOException
+         */
+        Query(final File f, final long from, final long to,
+                final ObjectName pattern, final String [] attributes,
+                final boolean csv, final Writer writer)
+        throws IOException {
+            super(f);
+            this.from = from;
+            this.to = to;
+            this.pattern = pattern;
+            this.attributes = attributes;
+            this.csv = csv;
+            this.writer = writer;
+        }
+        
+        void read() throws IOException {
+            if (this.csv) {
+                this.writer.write("time,bean,path,value\n");
+            }
+            super.read();
+            this.writer.flush();
+        }
+        
+        protected boolean accept(final long time, final int bean,
+                final int path) {
+            return time >= this.from && time <= this.to &&
+                matches(bean, true) && matches(path, false);
+        }
+        
+        protected boolean matches(final int id, final boolean isBean) {
+            if (id >= this.matches.length) {
+                byte [] bigger = new byte[Math.max(id + 1,
+                    this.matches.length * 2)];
+                System.arraycopy(this.matches, 0, bigger, 0,
+                    this.matches.length);
+                this.matches = bigger;
+            }
+            if (this.matches[id] == UNKNOWN) {
+                String name = (String)getNames().get(id);
+                this.matches[id] = (isBean? matchesBean(name):
+                    matchesAttribute(name))? (byte)YES: (byte)NO;
+            }
+            return this.matches[id] == YES;
+        }
+        
+        protected boolean matchesBean(final String name) {
+            if (this.pattern == null) {
+                return true;
+            }
+            try {
+                return this.pattern.apply(new ObjectName(name));
+            } catch (MalformedObjectNameException e) {
+                return false;
+            }
+        }
+        
+        protected boolean matchesAttribute(final String path) {
+            if (this.attributes == null) {
+                return true;
+            }
+            for (int i = 0; i < this.attributes.length; i++) {
+                if (path.equals(this.attributes[i]) ||
+                        path.startsWith(this.attributes[i] + ".")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        protected void sample(final long time, final String bean,
+                final String path, final long value)
+        throws IOException {
+            print(time, bean, path, Long.toString(value));
+        }
+        
+        protected void sample(final long time, final String bean,
+                final String path, final double value)
+        throws IOException {
+            print(time, bean, path, Double.toString(value));
+        }
+        
+        protected void print(final long time, final String bean,
+                final String path, final String value)
+        throws IOException {
+            if (this.csv) {
+                this.writer.write(Long.toString(time));
+                this.writer.write(',');
+                ResultFormat.writeCsvField(this.writer, bean);
+                this.writer.write(',');
+                ResultFormat.writeCsvField(this.writer, path);
+                this.writer.write(',');
+                this.writer.write(value);
+            } else {
+                this.date.setTime(time);
+                this.writer.write(this.timeFormat.format(this.date));
+                this.writer.write(' ');
+                this.writer.write(bean);
+                this.writer.write(' ');
+                this.writer.write(path);
+                this.writer.write(": ");
+                this.writer.write(value);
+            }
+            this.writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * ResultFormat
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+/**
+ * Writes command results in a structured format that is easy to ingest.
+ * <p>Formats walk the result -- CompositeData, TabularData, arrays -- and
+ * write straight to the passed Writer.  No intermediate String of the whole
+ * result is built up.  Pass a buffered Writer.  Instances are not
+ * thread-safe; give each thread its own from
+ * {@link #newInstance(Writer)}.
+ * <p>Formats are:
+ * <ul>
+ * <li>jsonl: A JSON object per result, one per line. CompositeData and Maps
+ * become JSON objects, TabularData and arrays become JSON arrays.</li>
+ * <li>csv: A 'host,bean,path,value' row per leaf value.</li>
+ * <li>flat: A 'bean.path=value' line per leaf value.</li>
+ * </ul>
+ * Leaf paths are the command followed by '.KEY' for a field of a
+ * CompositeData or an entry of a Map, '[KEY,...]' for a row of a TabularData -- the row's index
+ * values -- and '[INDEX]' for an array element.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public abstract class ResultFormat {
+    public static final String TEXT = "text";
+    public static final String JSONL = "jsonl";
+    public static final String CSV = "csv";
+    public static final String FLAT = "flat";
+    
+    protected final Writer writer;
+    
+    protected ResultFormat(final Writer writer) {
+        super();
+        this.writer = writer;
+    }
+    
+    /**
+     * @param name Name of format.
+     * @param writer Where to write.
+     * @return Format or null if <code>name</code> is null, empty or
+     * 'text' (Results are logged as text).
+     */
+    public static ResultFormat getInstance(final String name,
+            final Writer writer) {
+        if (name == null || name.length() == 0 || name.equals(TEXT)) {
+            return null;
+        } else if (name.equals(JSONL)) {
+            return new JsonLines(writer);
+        } else if (name.equals(CSV)) {
+            return new Csv(writer);
+        } else if (name.equals(FLAT)) {
+            return new Flat(writer);
+        }
+        throw new IllegalArgumentException("Unknown format: " + name);
+    }
+    
+    /**
+     * Write one result.
+     * @param host Host result came from (May be null).
+     * @param bean Name of bean result came from (May be null).
+     * @param command Command that produced result (May be null).
+     * @param value The result.
+     * @throws IOException
+     */
+    public abstract void write(String host, String bean, String command,
+        Object value)
+    throws IOException;
+    
+    /**
+     * @param writer Where to write.
+     * @return Format of our kind that writes to <code>writer</code>.  It
+     * shares with us what is written once per output, such as a header.
+     */
+    public abstract ResultFormat newInstance(Writer writer);
+    
+    public void flush() throws IOException {
+        this.writer.flush();
+    }
+    
+    /**
+     * Write <code>s</code> as a CSV field, quoted if it holds a comma,
+     * quote or line break.
+     * @param writer Where to write.
+     * @param s Field value (Null writes an empty field).
+     * @throws IOException
+     */
+    static void writeCsvField(final Writer writer, final String s)
+    throws IOException {
+        if (s == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(s);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+    
+    /**
+     * @param data Tabular data.
+     * @param row Row of <code>data</code>.
+     * @return Row's index values as '[KEY,...]'.
+     */
+    protected static String getRowKey(final TabularData data,
+            final CompositeData row) {
+        List indexNames = data.getTabularType().getIndexNames();
+        StringBuffer buffer = new StringBuffer();
+        buffer.append('[');
+        for (int i = 0; i < indexNames.size(); i++) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+            buffer.append(row.get((String)indexNames.get(i)));
+        }
+        buffer.append(']');
+        return buffer.toString();
+    }
+    
+    /**
+     * Base for formats that write a line per leaf value.
+     */
+    abstract static class Flattening extends ResultFormat {
+        protected Flattening(final Writer writer) {
+            super(writer);
+        }
+        
+        public void write(String host, String bean, String command,
+                Object value)
+        throws IOException {
+            walk(host, bean, (command == null)? "": command, value);
+        }
+        
+        protected void walk(final String host, final String bean,
+                final String path, final Object value)
+        throws IOException {
+            if (value instanceof CompositeData) {
+                CompositeData data = (CompositeData)value;
+                for (Iterator i = data.getCompositeType().keySet().iterator();
+                        i.hasNext();) {
+                    String key = (String)i.next();
+                    walk(host, bean, path + "." + key, data.get(key));
+                }
+            } else if (value instanceof TabularData) {
+                TabularData data = (TabularData)value;
+                for (Iterator i = data.values().iterator(); i.hasNext();) {
+                    CompositeData row = (CompositeData)i.next();
+                    walk(host, bean, path + getRowKey(data, row), row);
+                }
+            } else if (value instanceof Map) {
+                for (Iterator i = ((Map)value).entrySet().iterator();
+                        i.hasNext();) {
+                    Map.Entry e = (Map.Entry)i.next();
+                    walk(host, bean, path + "." + e.getKey(), e.getValue());
+                }
+            } else if (value != null && value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                for (int i = 0; i < length; i++) {
+                    walk(host, bean, path + "[" + i + "]",
+                        Array.get(value, i));
+                }
+            } else {
+                leaf(host, bean, path, value);
+            }
+        }
+        
+        protected abstract void leaf(String host, String bean, String path,
+            Object value)
+        throws IOException;
+    }
+    
+    /**
+     * 'bean.path=value' per leaf.  Prefixed by host if one.  Newlines in
+     * values are escaped.
+     */
+    static class Flat extends Flattening {
+        Flat(final Writer writer) {
+            super(writer);
+        }
+        
+        public ResultFormat newInstance(final Writer w) {
+            return new Flat(w);
+        }
+        
+        protected void leaf(String host, String bean, String path,
+                Object value)
+        throws IOException {
+            if (host != null) {
+                this.writer.write(host);
+                this.writer.write(' ');
+            }
+            if (bean != null) {
+                this.writer.write(bean);
+                if (path.length() > 0) {
+                    this.writer.write('.');
+                }
+            }
+            this.writer.write(path);
+            this.writer.write('=');
+            String s = String.valueOf(value);
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '\n') {
+                    this.writer.write("\\n");
+                } else if (c == '\r') {
+                    this.writer.write("\\r");
+                } else {
+                    this.writer.write(c);
+                }
+            }
+            this.writer.write('\n');
+        }
+    }
+    
+    /**
+     * 'host,bean,path,value' row per leaf.  Header row first.
+     */
+    static class Csv extends Flattening {
+        /**
+         * True once the header is written.  Shared by our instances.
+         */
+        private final AtomicBoolean header;
+        
+        Csv(final Writer writer) {
+            this(writer, new AtomicBoolean(false));
+        }
+        
+        protected Csv(final Writer writer, final AtomicBoolean header) {
+            super(writer);
+            this.header = header;
+        }
+        
+        public ResultFormat newInstance(final Writer w) {
+            return new Csv(w, this.header);
+        }
+        
+        protected void leaf(String host, String bean, String path,
+                Object value)
+        throws IOException {
+            if (!this.header.get()) {
+                synchronized (this.header) {
+                    if (!this.header.get()) {
+                        this.writer.write("host,bean,path,value\n");
+                        // Out ahead of rows our other instances write.
+                        this.writer.flush();
+                        this.header.set(true);
+                    }
+                }
+            }
+            writeField(host);
+            this.writer.write(',');
+            writeField(bean);
+            this.writer.write(',');
+            writeField(path);
+            this.writer.write(',');
+            writeField((value == null)? null: value.toString());
+            this.writer.write('\n');
+        }
+        
+        protected void writeField(final String s) throws IOException {
+            writeCsvField(this.writer, s);
+        }
+    }
+    
+    /**
+     * A JSON object per result, one per line.
+     */
+    static class JsonLines extends ResultFormat {
+        JsonLines(final Writer writer) {
+            super(writer);
+        }
+        
+        public ResultFormat newInstance(final Writer w) {
+            return new JsonLines(w);
+        }
+        
+        public void write(String host, String bean, String command,
+                Object value)
+        throws IOException {
+            this.writer.write('{');
+            if (host != null) {
+                writeString("host");
+                this.writer.write(':');
+                writeString(host);
+                this.writer.write(',');
+            }
+            if (bean != null) {
+                writeString("bean");
+                this.writer.write(':');
+                writeString(bean);
+                this.writer.write(',');
+            }
+            if (command != null) {
+                writeString("command");
+                this.writer.write(':');
+                writeString(command);
+                this.writer.write(',');
+            }
+            writeString("value");
+            this.writer.write(':');
+            writeValue(value);
+            this.writer.write("}\n");
+        }
+        
+        protected void writeValue(final Object value) throws IOException {
+            if (value == null) {
+                this.writer.write("null");
+            } else if (value instanceof Boolean) {
+                this.writer.write(value.toString());
+            } else if (value instanceof Number) {
+                double d = ((Number)value).doubleValue();
+                if (Double.isNaN(d) || Double.isInfinite(d)) {
+                    writeString(value.toString());
+                } else {
+                    this.writer.write(value.toString());
+                }
+            } else if (value instanceof CompositeData) {
+                CompositeData data = (CompositeData)value;
+                this.writer.write('{');
+                boolean first = true;
+                for (Iterator i = data.getCompositeType().keySet().iterator();
+                        i.hasNext();) {
+                    String key = (String)i.next();
+                    if (!first) {
+                        this.writer.write(',');
+                    }
+                    first = false;
+                    writeString(key);
+                    this.writer.write(':');
+                    writeValue(data.get(key));
+                }
+                this.writer.write('}');
+            } else if (value instanceof TabularData) {
+                writeValues(((TabularData)value).values().iterator());
+            } else if (value instanceof Collection) {
+                writeValues(((Collection)value).iterator());
+            } else if (value instanceof Map) {
+                this.writer.write('{');
+                boolean first = true;
+                for (Iterator i = ((Map)value).entrySet().iterator();
+                        i.hasNext();) {
+                    Map.Entry e = (Map.Entry)i.next();
+                    if (!first) {
+                        this.writer.write(',');
+                    }
+                    first = false;
+                    writeString(String.valueOf(e.getKey()));
+                    this.writer.write(':');
+                    writeValue(e.getValue());
+                }
+                this.writer.write('}');
+            } else if (value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                this.writer.write('[');
+                for (int i = 0; i < length; i++) {
+                    if (i > 0) {
+                        this.writer.write(',');
+                    }
+                    writeValue(Array.get(value, i));
+                }
+                this.writer.write(']');
+            } else {
+                writeString(value.toString());
+            }
+        }
+        
+        protected void writeValues(final Iterator i) throws IOException {
+            this.writer.write('[');
+            for (boolean first = true; i.hasNext(); first = false) {
+                if (!first) {
+                    this.writer.write(',');
+                }
+                writeValue(i.next());
+            }
+            this.writer.write(']');
+        }
+        
+        protected void writeString(final String s) throws IOException {
+            this.writer.write('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"':
+                        this.writer.write("\\\"");
+                        break;
+                    case '\\':
+                        this.writer.write("\\\\");
+                        break;
+                    case '\n':
+                        this.writer.write("\\n");
+                        break;
+                    case '\r':
+                        this.writer.write("\\r");
+                        break;
+                    case '\t':
+                        this.writer.write("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            this.writer.write(String.format("\\u%04x",
+                                new Object [] {Integer.valueOf(c)}));
+                        } else {
+                            this.writer.write(c);
+                        }
+                }
+            }
+            this.writer.write('"');
+        }
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * ResultSink
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Writes results on a thread of its own so workers producing results do
+ * not wait on output or on one another.
+ * <p>Producers add records to a lock-free queue and go on; a single
+ * consumer drains it into a buffered writer.  The writer is flushed once
+ * <code>flushSize</code> characters are waiting or, when the queue runs
+ * dry, once the oldest unflushed record is <code>flushInterval</code>
+ * old.  Diagnostics stay on the logging path.
+ * <p>Each record is written as a line.  If <code>stamp</code>, the line is
+ * laid out as {@link Client.OneLineSimpleLogger} lays out log records --
+ * date, source, message -- so text output looks as it did when results
+ * were logged; else the record is written as it comes.  Structured formats
+ * write through a {@link RecordWriter} per producer, which adds a record
+ * per result.  A result too big to hold, a large TabularData say, is
+ * passed on in parts as it is written: the consumer writes the parts out
+ * as they come, holding back other records until the last part so
+ * records are not mixed.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class ResultSink {
+    private static final Logger logger =
+        Logger.getLogger(ResultSink.class.getName());
+    
+    private static final String LINE_SEPARATOR =
+        System.getProperty("line.separator");
+    
+    static final int DEFAULT_FLUSH_SIZE = 32 * 1024;
+    
+    static final long DEFAULT_FLUSH_INTERVAL = 100;
+    
+    /**
+     * Records that may wait on the consumer before producers are held up.
+     * Stops us filling the heap if whatever reads our output is slow.
+     */
+    private static final long MAX_BACKLOG = 64 * 1024;
+    
+    /**
+     * Parts of a record that may wait on the consumer before its producer
+     * is held up.
+     */
+    private static final int MAX_PARTS = 4;
+    
+    /**
+     * Marks the last part of a record.
+     */
+    private static final Object END = new Object();
+    
+    /**
+     * Strings to write, BlockingQueues of the parts of a record to write
+     * as they come, or CountDownLatches to count down once all before them
+     * is flushed.
+     */
+    private final ConcurrentLinkedQueue queue = new ConcurrentLinkedQueue();
+    
+    private final Writer writer;
+    private final boolean stamp;
+    private final int flushSize;
+    private final long flushInterval;
+    private final Thread consumer;
+    
+    /**
+     * True while the consumer is parked waiting on records.
+     */
+    private volatile boolean waiting = false;
+    private volatile boolean closed = false;
+    
+    private final AtomicLong added = new AtomicLong(0);
+    private volatile long written = 0;
+    private volatile long flushes = 0;
+    private volatile long first = 0;
+    private volatile long last = 0;
+    
+    /**
+     * Date stamp of the current second and the second it is for.  Only
+     * touched by the consumer.
+     */
+    private String date = null;
+    private long second = 0;
+    
+    /**
+     * @param writer Where to write.  Is wrapped in a buffer.
+     * @param stamp If true, write each record as a stamped line.
+     * @param flushSize Characters to let wait before a flush.
+     * @param flushInterval Milliseconds a record may wait before a flush.
+     */
+    ResultSink(final Writer writer, final boolean stamp, final int flushSize,
+            final long flushInterval) {
+        super();
+        this.writer = new BufferedWriter(writer, flushSize * 2);
+        this.stamp = stamp;
+        this.flushSize = flushSize;
+        this.flushInterval = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        this.consumer = new DaemonThreadFactory("result-sink").newThread(
+            new Runnable() {
+                public void run() {
+                    consume();
+                }
+            });
+        this.consumer.start();
+    }
+    
+    /**
+     * Print a result through <code>sink</code> or, if null, log it.
+     * @param sink Sink to use (May be null).
+     * @param source Logger of the class the result comes from; named as
+     * the source of stamped lines.
+     * @param message Result.
+     */
+    static void print(final ResultSink sink, final Logger source,
+            final String message) {
+        if (sink == null) {
+            source.info(message);
+        } else {
+            sink.add(sink.stamp? source.getName() + " " + message: message);
+        }
+    }
+    
+    /**
+     * Queue a record.  Does not block unless the backlog is full.
+     * @param record Record to write.
+     */
+    void add(final String record) {
+        enqueue(record);
+    }
+    
+    /**
+     * Queue a record whose parts are to follow.  Does not block unless the
+     * backlog is full.
+     * @return Queue to put the parts on, then {@link #END}.
+     */
+    protected BlockingQueue addParts() {
+        BlockingQueue parts = new ArrayBlockingQueue(MAX_PARTS);
+        enqueue(parts);
+        return parts;
+    }
+    
+    protected void enqueue(final Object record) {
+        if (this.closed) {
+            throw new IllegalStateException("Sink closed");
+        }
+        while (this.added.get() - this.written > MAX_BACKLOG) {
+            LockSupport.unpark(this.consumer);
+            LockSupport.parkNanos(100000);
+        }
+        this.queue.offer(record);
+        this.added.incrementAndGet();
+        if (this.waiting) {
+            LockSupport.unpark(this.consumer);
+        }
+    }
+    
+    /**
+     * Wait until all records added so far are written and flushed.
+     * @throws InterruptedException
+     */
+    void sync() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        this.queue.offer(latch);
+        LockSupport.unpark(this.consumer);
+        latch.await();
+    }
+    
+    /**
+     * Write all queued records, flush and stop the consumer.
+     */
+    void close() {
+        this.closed = true;
+        LockSupport.unpark(this.consumer);
+        try {
+            this.consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    protected void consume() {
+        int pending = 0;
+        long oldest = 0;
+        while (true) {
+            Object o = this.queue.poll();
+            try {
+                if (o instanceof String) {
+                    if (pending == 0) {
+                        oldest = System.nanoTime();
+                    }
+                    pending += write((String)o);
+                    if (pending >= this.flushSize) {
+                        flush();
+                        pending = 0;
+                    }
+                    continue;
+                }
+                if (o instanceof BlockingQueue) {
+                    if (pending == 0) {
+                        oldest = System.nanoTime();
+                    }
+                    pending += write((BlockingQueue)o);
+                    if (pending >= this.flushSize) {
+                        flush();
+                        pending = 0;
+                    }
+                    continue;
+                }
+                if (o instanceof CountDownLatch) {
+                    flush();
+                    pending = 0;
+                    ((CountDownLatch)o).countDown();
+                    continue;
+                }
+                // Queue is dry.
+                if (this.closed && this.queue.isEmpty()) {
+                    flush();
+                    return;
+                }
+                long wait = 0;
+                if (pending > 0) {
+                    wait = oldest + this.flushInterval - System.nanoTime();
+                    if (wait <= 0) {
+                        flush();
+                        pending = 0;
+                        wait = 0;
+                    }
+                }
+                this.waiting = true;
+                if (this.queue.isEmpty() && !this.closed) {
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    } else {
+                        LockSupport.park();
+                    }
+                }
+                this.waiting = false;
+            } catch (IOException e) {
+                logger.severe("Failed write of results: " + e);
+                pending = 0;
+            }
+        }
+    }
+    
+    /**
+     * @return Characters written.
+     */
+    protected int write(final String record) throws IOException {
+        int length = writeStamp();
+        this.writer.write(record);
+        this.writer.write(LINE_SEPARATOR);
+        return length + record.length() + LINE_SEPARATOR.length();
+    }
+    
+    /**
+     * Write the parts of a record as they come, until {@link #END}.
+     * @return Characters written.
+     */
+    protected int write(final BlockingQueue parts) throws IOException {
+        int length = writeStamp();
+        while (true) {
+            Object part;
+            try {
+                part = parts.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (part == END) {
+                break;
+            }
+            this.writer.write((String)part);
+            length += ((String)part).length();
+        }
+        this.writer.write(LINE_SEPARATOR);
+        return length + LINE_SEPARATOR.length();
+    }
+    
+    /**
+     * Count a record written and, if we stamp, write the stamp.
+     * @return Characters written.
+     */
+    protected int writeStamp() throws IOException {
+        long now = System.currentTimeMillis();
+        if (this.first == 0) {
+            this.first = now;
+        }
+        this.last = now;
+        this.written++;
+        if (!this.stamp) {
+            return 0;
+        }
+        if (this.date == null || now < this.second ||
+                now - this.second >= 1000) {
+            this.second = now - (((now % 1000) + 1000) % 1000);
+            this.date = Client.formatDate(this.second);
+        }
+        this.writer.write(this.date);
+        this.writer.write(' ');
+        return this.date.length() + 1;
+    }
+    
+    protected void flush() throws IOException {
+        this.writer.flush();
+        this.flushes++;
+    }
+    
+    /**
+     * @return Records added and written, flushes and rate of writes.
+     */
+    String getStats() {
+        long n = this.written;
+        long millis = this.last - this.first;
+        return "Results: added=" + this.added.get() + " written=" + n +
+            " flushes=" + this.flushes + " rate=" +
+            ((millis <= 0)? "n/a": Math.round(n * 1000.0d / millis) + "/s");
+    }
+    
+    /**
+     * Writer that adds what was written to a sink as one record on each
+     * flush.  A trailing line break is dropped since the sink ends each
+     * record with one.  Once more than the sink's flush size is written
+     * without a flush, it is passed on in parts so we never hold more than
+     * that of a record.  Give each producer its own; not thread-safe.
+     */
+    static class RecordWriter extends Writer {
+        private final ResultSink sink;
+        private final StringBuffer buffer = new StringBuffer();
+        
+        /**
+         * Parts of the record being written or null if none passed on yet.
+         */
+        private BlockingQueue parts = null;
+        
+        RecordWriter(final ResultSink sink) {
+            super();
+            this.sink = sink;
+        }
+        
+        public void write(final char [] cbuf, final int off, final int len)
+        throws IOException {
+            this.buffer.append(cbuf, off, len);
+            checkSize();
+        }
+        
+        public void write(final int c) throws IOException {
+            this.buffer.append((char)c);
+            checkSize();
+        }
+        
+        public void write(final String str) throws IOException {
+            this.buffer.append(str);
+            checkSize();
+        }
+        
+        /**
+         * Pass what we hold on as a part if it is more than the sink
+         * flushes at.  A trailing line break is kept back in case it ends
+         * the record.
+         */
+        protected void checkSize() throws IOException {
+            int length = this.buffer.length();
+            if (length <= this.sink.flushSize) {
+                return;
+            }
+            if (this.buffer.charAt(length - 1) == '\n') {
+                length--;
+            }
+            if (this.parts == null) {
+                this.parts = this.sink.addParts();
+            }
+            put(this.buffer.substring(0, length));
+            this.buffer.delete(0, length);
+        }
+        
+        protected void put(final Object part) throws IOException {
+            try {
+                this.parts.put(part);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted writing " +
+                    "result");
+            }
+        }
+        
+        public void flush() throws IOException {
+            int length = this.buffer.length();
+            if (length > 0 && this.buffer.charAt(length - 1) == '\n') {
+                length--;
+            }
+            if (this.parts != null) {
+                try {
+                    if (length > 0) {
+                        put(this.buffer.substring(0, length));
+                    }
+                } finally {
+                    end();
+                }
+                return;
+            }
+            if (length == 0 && this.buffer.length() == 0) {
+                return;
+            }
+            this.sink.add(this.buffer.substring(0, length));
+            this.buffer.setLength(0);
+        }
+        
+        /**
+         * Put {@link #END} on our parts.  The consumer waits on them until
+         * it comes so it must, even if we are interrupted.
+         */
+        protected void end() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    this.parts.put(END);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            this.parts = null;
+            this.buffer.setLength(0);
+        }
+        
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
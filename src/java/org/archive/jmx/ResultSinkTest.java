@@ -0,0 +1,146 @@
+/*
+ * ResultSinkTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of {@link ResultSink} records and formats writing to it.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class ResultSinkTest extends TestCase {
+    private static final String NL = System.getProperty("line.separator");
+
+    private StringWriter out;
+    private ResultSink sink;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.out = new StringWriter();
+        this.sink = new ResultSink(this.out, false,
+            ResultSink.DEFAULT_FLUSH_SIZE, ResultSink.DEFAULT_FLUSH_INTERVAL);
+    }
+
+    protected void tearDown() throws Exception {
+        this.sink.close();
+        super.tearDown();
+    }
+
+    protected String written() throws Exception {
+        this.sink.sync();
+        return this.out.toString();
+    }
+
+    public void testRecordsAreLines() throws Exception {
+        this.sink.add("a");
+        this.sink.add("");
+        this.sink.add("b");
+        assertEquals("a" + NL + NL + "b" + NL, written());
+    }
+
+    public void testRecordWriter() throws Exception {
+        ResultSink.RecordWriter writer = new ResultSink.RecordWriter(
+            this.sink);
+        writer.write("x=1\n");
+        assertEquals("", written());
+        writer.flush();
+        writer.flush();
+        writer.write("y=2\nz=3");
+        writer.close();
+        assertEquals("x=1" + NL + "y=2\nz=3" + NL, written());
+    }
+
+    public void testLargeRecordIsPassedOnInParts() throws Exception {
+        ResultSink small = new ResultSink(this.out, false, 16,
+            ResultSink.DEFAULT_FLUSH_INTERVAL);
+        try {
+            ResultSink.RecordWriter writer = new ResultSink.RecordWriter(
+                small);
+            StringBuffer expected = new StringBuffer();
+            for (int i = 0; i < 20; i++) {
+                writer.write("row " + i + "\n");
+                expected.append("row " + i + "\n");
+            }
+            // Out before the record is done.
+            for (int i = 0; i < 100 && this.out.getBuffer().length() == 0;
+                    i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(this.out.getBuffer().length() > 0);
+            assertTrue(this.out.toString(),
+                expected.toString().startsWith(this.out.toString()));
+            // Held back until the record in parts is done.
+            small.add("other");
+            writer.write("end");
+            writer.flush();
+            writer.write("next\n");
+            writer.flush();
+            small.sync();
+            assertEquals(expected + "end" + NL + "other" + NL + "next" + NL,
+                this.out.toString());
+        } finally {
+            small.close();
+        }
+    }
+
+    public void testFormatsShareOneHeader() throws Exception {
+        ResultFormat csv = ResultFormat.getInstance(ResultFormat.CSV, null);
+        ResultFormat a = csv.newInstance(
+            new ResultSink.RecordWriter(this.sink));
+        ResultFormat b = csv.newInstance(
+            new ResultSink.RecordWriter(this.sink));
+        b.write("h", "bean", "A", Long.valueOf(1));
+        // Not flushed yet but the header is out ahead of it.
+        a.write("h", "bean", "B", Long.valueOf(2));
+        a.flush();
+        b.flush();
+        assertEquals("host,bean,path,value" + NL + "h,bean,B,2" + NL +
+            "h,bean,A,1" + NL, written());
+    }
+
+    public void testMapsAreWalked() throws Exception {
+        Map value = new LinkedHashMap();
+        value.put("seq", Long.valueOf(3));
+        value.put("message", "hi");
+        ResultFormat flat = ResultFormat.getInstance(ResultFormat.FLAT, null).
+            newInstance(new ResultSink.RecordWriter(this.sink));
+        flat.write(null, "d:type=T", "event", value);
+        flat.flush();
+        ResultFormat json = ResultFormat.getInstance(ResultFormat.JSONL,
+            null).newInstance(new ResultSink.RecordWriter(this.sink));
+        json.write(null, "d:type=T", "event", value);
+        json.flush();
+        assertEquals("d:type=T.event.seq=3\nd:type=T.event.message=hi" + NL +
+            "{\"bean\":\"d:type=T\",\"command\":\"event\"," +
+            "\"value\":{\"seq\":3,\"message\":\"hi\"}}" + NL, written());
+    }
+}
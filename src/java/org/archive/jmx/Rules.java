@@ -0,0 +1,697 @@
+/*
+ * Rules
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+
+/**
+ * Threshold rules over bean attributes, checked Nagios-style.
+ * <p>Rules are read a line at a time as 'LEVEL BEAN EXPRESSION' where
+ * LEVEL is 'warn' or 'crit', BEAN is a bean name or pattern and EXPRESSION
+ * is true when the rule fires, e.g.
+ * <pre>
+ * crit java.lang:type=Memory HeapMemoryUsage.used / HeapMemoryUsage.max > 0.9
+ * warn java.lang:type=Threading ThreadCount >= 500 && DaemonThreadCount < 10
+ * </pre>
+ * Expressions have attribute paths (As on the command line), numbers,
+ * "strings", true and false, <code>+ - * / %</code>, comparisons,
+ * <code>&& || !</code> and parentheses.  Each is compiled once into a tree
+ * of evaluators.
+ * <p>Bean patterns are resolved once.  A check is then one pass: one
+ * getAttributes per bean for just the attributes its rules use, and each
+ * path is projected once however many rules use it.  Status is that of the
+ * worst check: {@link #OK}, {@link #WARNING} or {@link #CRITICAL}, else
+ * {@link #UNKNOWN} if a check could not be made.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class Rules {
+    static final int OK = 0;
+    static final int WARNING = 1;
+    static final int CRITICAL = 2;
+    static final int UNKNOWN = 3;
+    
+    static final String [] STATUS = {"OK", "WARNING", "CRITICAL", "UNKNOWN"};
+    
+    /**
+     * List of Rule in file order.
+     */
+    private final List rules;
+    
+    /**
+     * @param rules List of Rule.
+     */
+    protected Rules(final List rules) {
+        super();
+        this.rules = rules;
+    }
+    
+    /**
+     * @param file File of 'LEVEL BEAN EXPRESSION' lines (Blank lines and
+     * lines that begin with '#' are skipped).
+     * @return Compiled rules.
+     * @throws IOException
+     */
+    static Rules parse(final String file) throws IOException {
+        List rules = new ArrayList();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            int lineno = 0;
+            for (String line = reader.readLine(); line != null;
+                    line = reader.readLine()) {
+                lineno++;
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    rules.add(parseRule(line));
+                } catch (Exception e) {
+                    throw new IllegalArgumentException(file + ":" + lineno +
+                        ": " + e.getMessage());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return new Rules(rules);
+    }
+    
+    protected static Rule parseRule(final String line) throws Exception {
+        String [] tokens = line.split("\\s+", 3);
+        if (tokens.length < 3) {
+            throw new IllegalArgumentException("Need LEVEL BEAN EXPRESSION");
+        }
+        int level = 0;
+        if (tokens[0].equals("warn") || tokens[0].equals("warning")) {
+            level = WARNING;
+        } else if (tokens[0].equals("crit") || tokens[0].equals("critical")) {
+            level = CRITICAL;
+        } else {
+            throw new IllegalArgumentException("Level is 'warn' or 'crit': " +
+                tokens[0]);
+        }
+        Parser parser = new Parser(tokens[2]);
+        Expr expr = parser.parse();
+        return new Rule(level, new ObjectName(tokens[1]), tokens[2], expr,
+            parser.paths);
+    }
+    
+    /**
+     * Check rules against <code>mbsc</code>.  If <code>interval</code>,
+     * check every <code>interval</code> and write only checks whose status
+     * changed; else check once and write the status line followed by
+     * checks that are not OK.
+     * @param mbsc Server connection.
+     * @param interval Milliseconds between checks or 0 to check once.
+     * @param count Checks to make if <code>interval</code>; if 0, run until
+     * killed.
+     * @param writer Where to write.
+     * @return Status of last check.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    int run(final MBeanServerConnection mbsc, final long interval,
+            final int count, final Writer writer)
+    throws IOException, InterruptedException {
+        List checks = new ArrayList();
+        Map targets = resolve(mbsc, checks);
+        int status = OK;
+        if (interval <= 0) {
+            status = check(mbsc, targets, checks);
+            writer.write(getStatusLine(status, checks));
+            writer.write('\n');
+            for (Iterator i = checks.iterator(); i.hasNext();) {
+                Check c = (Check)i.next();
+                if (c.status != OK) {
+                    writer.write(c.toString());
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+            return status;
+        }
+        long period = TimeUnit.MILLISECONDS.toNanos(interval);
+        long start = System.nanoTime();
+        long tick = 0;
+        for (int n = 0; count <= 0 || n < count; n++) {
+            long wait = start + (tick * period) - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            status = check(mbsc, targets, checks);
+            long now = System.currentTimeMillis();
+            for (Iterator i = checks.iterator(); i.hasNext();) {
+                Check c = (Check)i.next();
+                if (c.status != c.previous) {
+                    writer.write(now + " " + STATUS[c.previous] + " -> " +
+                        c.toString());
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+            tick = ((System.nanoTime() - start) / period) + 1;
+        }
+        writer.write(getStatusLine(status, checks));
+        writer.write('\n');
+        writer.flush();
+        return status;
+    }
+    
+    /**
+     * Resolve rule bean patterns.
+     * @param mbsc Server connection.
+     * @param checks List to add a Check per rule and matching bean to.
+     * Rules that match no bean get a Check that is always UNKNOWN.
+     * @return Map of ObjectName to Target, in bean name order.
+     * @throws IOException
+     */
+    protected Map resolve(final MBeanServerConnection mbsc,
+            final List checks)
+    throws IOException {
+        Map targets = new TreeMap();
+        Map matches = new HashMap();
+        for (Iterator i = this.rules.iterator(); i.hasNext();) {
+            Rule rule = (Rule)i.next();
+            Set names = (Set)matches.get(rule.pattern);
+            if (names == null) {
+                names = mbsc.queryNames(rule.pattern, null);
+                matches.put(rule.pattern, names);
+            }
+            if (names.isEmpty()) {
+                Check c = new Check(rule, rule.pattern);
+                c.unmatched = true;
+                checks.add(c);
+                continue;
+            }
+            for (Iterator j = names.iterator(); j.hasNext();) {
+                ObjectName name = (ObjectName)j.next();
+                Target t = (Target)targets.get(name);
+                if (t == null) {
+                    t = new Target(name);
+                    targets.put(name, t);
+                }
+                for (Iterator k = rule.paths.iterator(); k.hasNext();) {
+                    t.attributes.add(((AttributePath)k.next()).
+                        getAttribute());
+                }
+                Check c = new Check(rule, name);
+                t.checks.add(c);
+                checks.add(c);
+            }
+        }
+        return targets;
+    }
+    
+    /**
+     * Fetch each target's attributes and evaluate its checks.
+     * @return Worst status.
+     */
+    protected int check(final MBeanServerConnection mbsc, final Map targets,
+            final List checks) {
+        for (Iterator i = checks.iterator(); i.hasNext();) {
+            Check c = (Check)i.next();
+            c.previous = c.status;
+            if (c.unmatched) {
+                c.status = UNKNOWN;
+                c.detail = "No bean matches";
+            }
+        }
+        for (Iterator i = targets.values().iterator(); i.hasNext();) {
+            Target t = (Target)i.next();
+            Map values = new HashMap();
+            String failure = null;
+            try {
+                AttributeList list = mbsc.getAttributes(t.name,
+                    (String [])t.attributes.toArray(
+                        new String[t.attributes.size()]));
+                for (Iterator j = list.iterator(); j.hasNext();) {
+                    Attribute a = (Attribute)j.next();
+                    values.put(a.getName(), a.getValue());
+                }
+            } catch (Exception e) {
+                failure = e.toString();
+            }
+            for (Iterator j = t.checks.iterator(); j.hasNext();) {
+                Check c = (Check)j.next();
+                if (failure != null) {
+                    c.status = UNKNOWN;
+                    c.detail = failure;
+                } else {
+                    c.evaluate(values);
+                }
+            }
+        }
+        int worst = OK;
+        boolean unknown = false;
+        for (Iterator i = checks.iterator(); i.hasNext();) {
+            Check c = (Check)i.next();
+            if (c.status == UNKNOWN) {
+                unknown = true;
+            } else {
+                worst = Math.max(worst, c.status);
+            }
+        }
+        return (worst == OK && unknown)? UNKNOWN: worst;
+    }
+    
+    protected String getStatusLine(final int status, final List checks) {
+        int [] counts = new int[STATUS.length];
+        for (Iterator i = checks.iterator(); i.hasNext();) {
+            counts[((Check)i.next()).status]++;
+        }
+        return "JMX " + STATUS[status] + " - " + counts[CRITICAL] +
+            " critical, " + counts[WARNING] + " warning, " +
+            counts[UNKNOWN] + " unknown of " + checks.size() + " checks";
+    }
+    
+    /**
+     * A compiled rule line.
+     */
+    private static class Rule {
+        private final int level;
+        private final ObjectName pattern;
+        private final String text;
+        private final Expr expr;
+        
+        /**
+         * Paths the expression reads, in order first used.
+         */
+        private final List paths;
+        
+        Rule(final int level, final ObjectName pattern, final String text,
+                final Expr expr, final List paths) {
+            this.level = level;
+            this.pattern = pattern;
+            this.text = text;
+            this.expr = expr;
+            this.paths = paths;
+        }
+    }
+    
+    /**
+     * A bean, the attributes its rules read and its checks.
+     */
+    private static class Target {
+        private final ObjectName name;
+        private final Set attributes = new LinkedHashSet();
+        private final List checks = new ArrayList();
+        
+        Target(final ObjectName name) {
+            this.name = name;
+        }
+    }
+    
+    /**
+     * A rule applied to one bean and the status it last came to.
+     */
+    private static class Check {
+        private final Rule rule;
+        private final ObjectName name;
+        private int status = OK;
+        private int previous = OK;
+        private String detail = null;
+        
+        /**
+         * True if no bean matched the rule's pattern.
+         */
+        private boolean unmatched = false;
+        
+        Check(final Rule rule, final ObjectName name) {
+            this.rule = rule;
+            this.name = name;
+        }
+        
+        /**
+         * @param values Attribute values and, as they are projected, path
+         * values of our bean keyed by name or path.
+         */
+        void evaluate(final Map values) {
+            this.detail = null;
+            try {
+                Object result = this.rule.expr.eval(values);
+                if (!(result instanceof Boolean)) {
+                    throw new IllegalArgumentException("Not true or false: " +
+                        result);
+                }
+                this.status = ((Boolean)result).booleanValue()?
+                    this.rule.level: OK;
+                if (this.status != OK) {
+                    StringBuffer buffer = new StringBuffer();
+                    for (Iterator i = this.rule.paths.iterator();
+                            i.hasNext();) {
+                        String path = i.next().toString();
+                        buffer.append((buffer.length() == 0)? "": ", ");
+                        buffer.append(path).append('=').
+                            append(values.get(path));
+                    }
+                    this.detail = buffer.toString();
+                }
+            } catch (Exception e) {
+                this.status = UNKNOWN;
+                this.detail = e.getMessage();
+            }
+        }
+        
+        public String toString() {
+            return STATUS[this.status] + " " + this.name.getCanonicalName() +
+                ": " + this.rule.text +
+                ((this.detail == null)? "": " (" + this.detail + ")");
+        }
+    }
+    
+    /**
+     * Compiled expression.
+     */
+    private interface Expr {
+        /**
+         * @param values Attribute values keyed by name.  Projected path
+         * values are added keyed by path.
+         * @return Double, Boolean or String.
+         * @throws Exception
+         */
+        Object eval(Map values) throws Exception;
+    }
+    
+    private static class Constant implements Expr {
+        private final Object value;
+        
+        Constant(final Object value) {
+            this.value = value;
+        }
+        
+        public Object eval(final Map values) {
+            return this.value;
+        }
+    }
+    
+    private static class Path implements Expr {
+        private final AttributePath path;
+        private final String key;
+        
+        Path(final AttributePath path) {
+            this.path = path;
+            this.key = path.toString();
+        }
+        
+        public Object eval(final Map values) throws Exception {
+            Object v = values.get(this.key);
+            if (v == null && !values.containsKey(this.key)) {
+                if (!values.containsKey(this.path.getAttribute())) {
+                    throw new IllegalArgumentException("No attribute " +
+                        this.path.getAttribute());
+                }
+                v = this.path.project(values.get(this.path.getAttribute()));
+                values.put(this.key, v);
+            }
+            if (v instanceof Number) {
+                return Double.valueOf(((Number)v).doubleValue());
+            } else if (v instanceof Boolean || v instanceof String) {
+                return v;
+            } else if (v instanceof Character) {
+                return v.toString();
+            }
+            throw new IllegalArgumentException(this.key + " is " +
+                ((v == null)? "null": "a " + v.getClass().getName()));
+        }
+    }
+    
+    private static class Unary implements Expr {
+        private final char op;
+        private final Expr operand;
+        
+        Unary(final char op, final Expr operand) {
+            this.op = op;
+            this.operand = operand;
+        }
+        
+        public Object eval(final Map values) throws Exception {
+            Object v = this.operand.eval(values);
+            if (this.op == '!') {
+                return Boolean.valueOf(!toBoolean(v));
+            }
+            return Double.valueOf(-toDouble(v));
+        }
+    }
+    
+    private static class Binary implements Expr {
+        private final String op;
+        private final Expr left;
+        private final Expr right;
+        
+        Binary(final String op, final Expr left, final Expr right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+        
+        public Object eval(final Map values) throws Exception {
+            Object l = this.left.eval(values);
+            // Short-circuit so guards like 'Max > 0 && Used / Max > 0.9'
+            // work.
+            if (this.op.equals("&&")) {
+                return Boolean.valueOf(toBoolean(l) &&
+                    toBoolean(this.right.eval(values)));
+            } else if (this.op.equals("||")) {
+                return Boolean.valueOf(toBoolean(l) ||
+                    toBoolean(this.right.eval(values)));
+            }
+            Object r = this.right.eval(values);
+            if (this.op.equals("==")) {
+                return Boolean.valueOf(l.equals(r));
+            } else if (this.op.equals("!=")) {
+                return Boolean.valueOf(!l.equals(r));
+            }
+            double x = toDouble(l);
+            double y = toDouble(r);
+            switch (this.op.charAt(0)) {
+                case '+': return Double.valueOf(x + y);
+                case '-': return Double.valueOf(x - y);
+                case '*': return Double.valueOf(x * y);
+                case '/': return Double.valueOf(x / y);
+                case '%': return Double.valueOf(x % y);
+                case '<': return Boolean.valueOf((this.op.length() == 1)?
+                    x < y: x <= y);
+                default: return Boolean.valueOf((this.op.length() == 1)?
+                    x > y: x >= y);
+            }
+        }
+    }
+    
+    protected static double toDouble(final Object v) {
+        if (!(v instanceof Double)) {
+            throw new IllegalArgumentException("Not a number: " + v);
+        }
+        return ((Double)v).doubleValue();
+    }
+    
+    protected static boolean toBoolean(final Object v) {
+        if (!(v instanceof Boolean)) {
+            throw new IllegalArgumentException("Not true or false: " + v);
+        }
+        return ((Boolean)v).booleanValue();
+    }
+    
+    /**
+     * Recursive descent parser of rule expressions.
+     */
+    private static class Parser {
+        private static final String [][] LEVELS = {
+            {"||"}, {"&&"}, {"==", "!=", "<=", ">=", "<", ">"},
+            {"+", "-"}, {"*", "/", "%"}};
+        
+        private final String text;
+        private int pos = 0;
+        
+        /**
+         * AttributePaths in order first used.
+         */
+        private final List paths = new ArrayList();
+        private final Map seen = new HashMap();
+        
+        Parser(final String text) {
+            this.text = text;
+        }
+        
+        Expr parse() {
+            Expr expr = parse(0);
+            skipSpace();
+            if (this.pos < this.text.length()) {
+                throw error("Unexpected '" + this.text.substring(this.pos) +
+                    "'");
+            }
+            return expr;
+        }
+        
+        /**
+         * @param level Index into LEVELS of operators to parse.
+         */
+        protected Expr parse(final int level) {
+            if (level == LEVELS.length) {
+                return parseUnary();
+            }
+            Expr expr = parse(level + 1);
+            for (String op = matchOperator(LEVELS[level]); op != null;
+                    op = matchOperator(LEVELS[level])) {
+                expr = new Binary(op, expr, parse(level + 1));
+                if (level == 2) {
+                    // Comparisons don't chain.
+                    break;
+                }
+            }
+            return expr;
+        }
+        
+        protected Expr parseUnary() {
+            skipSpace();
+            if (peek() == '!' && !this.text.startsWith("!=", this.pos)) {
+                this.pos++;
+                return new Unary('!', parseUnary());
+            } else if (peek() == '-') {
+                this.pos++;
+                return new Unary('-', parseUnary());
+            }
+            return parsePrimary();
+        }
+        
+        protected Expr parsePrimary() {
+            skipSpace();
+            char c = peek();
+            if (c == '(') {
+                this.pos++;
+                Expr expr = parse(0);
+                skipSpace();
+                if (peek() != ')') {
+                    throw error("Expected ')'");
+                }
+                this.pos++;
+                return expr;
+            } else if (c == '"') {
+                int end = this.text.indexOf('"', this.pos + 1);
+                if (end < 0) {
+                    throw error("No closing '\"'");
+                }
+                String s = this.text.substring(this.pos + 1, end);
+                this.pos = end + 1;
+                return new Constant(s);
+            } else if (Character.isDigit(c) || c == '.') {
+                int start = this.pos;
+                while (this.pos < this.text.length() &&
+                        (Character.isLetterOrDigit(peek()) || peek() == '.' ||
+                            ((peek() == '+' || peek() == '-') &&
+                                (this.text.charAt(this.pos - 1) == 'e' ||
+                                 this.text.charAt(this.pos - 1) == 'E')))) {
+                    this.pos++;
+                }
+                try {
+                    return new Constant(Double.valueOf(
+                        this.text.substring(start, this.pos)));
+                } catch (NumberFormatException e) {
+                    throw error("Bad number '" +
+                        this.text.substring(start, this.pos) + "'");
+                }
+            } else if (Character.isJavaIdentifierStart(c)) {
+                return parsePath();
+            }
+            throw error((c == 0)? "Unexpected end": "Unexpected '" + c + "'");
+        }
+        
+        protected Expr parsePath() {
+            int start = this.pos;
+            while (this.pos < this.text.length()) {
+                char c = peek();
+                if (c == '[') {
+                    int end = this.text.indexOf(']', this.pos);
+                    if (end < 0) {
+                        throw error("No closing ']'");
+                    }
+                    this.pos = end + 1;
+                } else if (Character.isJavaIdentifierPart(c) || c == '.') {
+                    this.pos++;
+                } else {
+                    break;
+                }
+            }
+            String path = this.text.substring(start, this.pos);
+            if (path.equals("true") || path.equals("false")) {
+                return new Constant(Boolean.valueOf(path));
+            }
+            AttributePath p = (AttributePath)this.seen.get(path);
+            if (p == null) {
+                p = AttributePath.parse(path);
+                this.seen.put(path, p);
+                this.paths.add(p);
+            }
+            return new Path(p);
+        }
+        
+        protected String matchOperator(final String [] ops) {
+            skipSpace();
+            for (int i = 0; i < ops.length; i++) {
+                if (this.text.startsWith(ops[i], this.pos)) {
+                    this.pos += ops[i].length();
+                    return ops[i];
+                }
+            }
+            return null;
+        }
+        
+        protected void skipSpace() {
+            while (this.pos < this.text.length() &&
+                    Character.isWhitespace(peek())) {
+                this.pos++;
+            }
+        }
+        
+        protected char peek() {
+            return (this.pos < this.text.length())?
+                this.text.charAt(this.pos): 0;
+        }
+        
+        protected IllegalArgumentException error(final String message) {
+            return new IllegalArgumentException(message + " at " +
+                (this.pos + 1) + " in " + this.text);
+        }
+    }
+}
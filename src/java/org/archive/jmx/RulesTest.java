@@ -0,0 +1,226 @@
+/*
+ * RulesTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the {@link Rules} expression parser and of checking rules
+ * against an in-process MBeanServer.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class RulesTest extends TestCase {
+    private static final String BEAN = "test:type=Gauge";
+
+    private MBeanServer mbs;
+
+    /**
+     * Output of the last {@link #check(String [])}.
+     */
+    private String output;
+
+    public interface GaugeMBean {
+        long getUsed();
+        long getMax();
+        String getName();
+        boolean isUp();
+    }
+
+    public static class Gauge implements GaugeMBean {
+        private final long used;
+
+        public Gauge(final long used) {
+            this.used = used;
+        }
+
+        public long getUsed() {
+            return this.used;
+        }
+
+        public long getMax() {
+            return 100;
+        }
+
+        public String getName() {
+            return "gauge";
+        }
+
+        public boolean isUp() {
+            return true;
+        }
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mbs = MBeanServerFactory.newMBeanServer();
+        this.mbs.registerMBean(new Gauge(95), new ObjectName(BEAN));
+        this.mbs.registerMBean(new Gauge(10),
+            new ObjectName("test:type=Gauge,name=low"));
+    }
+
+    /**
+     * Check rule lines once.
+     * @return Status.
+     */
+    protected int check(final String [] lines) throws Exception {
+        List rules = new ArrayList();
+        for (int i = 0; i < lines.length; i++) {
+            rules.add(Rules.parseRule(lines[i]));
+        }
+        StringWriter writer = new StringWriter();
+        int status = new Rules(rules).run(this.mbs, 0, 0, writer);
+        this.output = writer.toString();
+        return status;
+    }
+
+    /**
+     * @return Status of a 'crit' rule of <code>expr</code> on our bean.
+     */
+    protected int check(final String expr) throws Exception {
+        return check(new String [] {"crit " + BEAN + " " + expr});
+    }
+
+    protected void assertFires(final String expr) throws Exception {
+        assertEquals(expr, Rules.CRITICAL, check(expr));
+    }
+
+    protected void assertQuiet(final String expr) throws Exception {
+        assertEquals(expr, Rules.OK, check(expr));
+    }
+
+    protected void assertUnknown(final String expr, final String detail)
+    throws Exception {
+        assertEquals(expr, Rules.UNKNOWN, check(expr));
+        assertTrue(this.output, this.output.indexOf(detail) > 0);
+    }
+
+    protected void assertError(final String expr, final String message)
+    throws Exception {
+        try {
+            Rules.parseRule("crit " + BEAN + " " + expr);
+            fail(expr);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message + " in " + expr, e.getMessage());
+        }
+    }
+
+    public void testPrecedence() throws Exception {
+        assertFires("1 + 2 * 3 == 7");
+        assertFires("(1 + 2) * 3 == 9");
+        assertFires("10 - 4 - 3 == 3");
+        assertFires("12 / 2 / 3 == 2");
+        assertFires("2 * 7 % 4 == 2");
+        assertFires("-2 + 3 == 1");
+        assertFires("-2 * -3 == 6");
+        assertFires("1 + 1 > 1 && 2 - 1 < 2");
+        assertFires("true || false && false");
+        assertQuiet("(true || false) && false");
+        assertFires("!false && true");
+        assertQuiet("!(1 < 2)");
+        assertFires("!!true");
+        assertFires("1 != 2 && 2 == 2 || false");
+    }
+
+    public void testValues() throws Exception {
+        assertFires("1e3 == 1000 && 1.5E-1 * 10 == 1.5 && .5 == 0.5");
+        assertFires("\"a b\" == \"a b\" && \"a\" != \"b\"");
+        assertFires("Used / Max > 0.9");
+        assertFires("Name == \"gauge\" && Up");
+        assertQuiet("Used/Max<=0.9");
+    }
+
+    public void testShortCircuit() throws Exception {
+        assertQuiet("false && Missing > 1");
+        assertFires("true || Missing > 1");
+        assertQuiet("false && \"x\" > 1");
+        assertFires("true || \"x\" > 1");
+        assertUnknown("Missing > 1 && false", "No attribute Missing");
+        assertUnknown("false || \"x\" > 1", "Not a number: x");
+    }
+
+    public void testTypeErrors() throws Exception {
+        assertUnknown("Used + 1", "Not true or false: 96.0");
+        assertUnknown("!Used", "Not true or false: 95.0");
+        assertUnknown("-Name > 0", "Not a number: gauge");
+        assertUnknown("Used.value > 0", "Can't apply Used.value");
+    }
+
+    public void testErrorPositions() throws Exception {
+        assertError("Used >", "Unexpected end at 7");
+        assertError("(Used > 1", "Expected ')' at 10");
+        assertError("Used > 1 )", "Unexpected ')' at 10");
+        assertError("Used > 1x", "Bad number '1x' at 10");
+        assertError("Name == \"abc", "No closing '\"' at 9");
+        assertError("Used > Max[0", "No closing ']' at 11");
+        assertError("1 < 2 < 3", "Unexpected '< 3' at 7");
+        assertError("Used > # 1", "Unexpected '#' at 8");
+        assertError("Used > *2", "Unexpected '*' at 8");
+    }
+
+    public void testBadLines() throws Exception {
+        try {
+            Rules.parseRule("info " + BEAN + " true");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Level is 'warn' or 'crit': info", e.getMessage());
+        }
+        try {
+            Rules.parseRule("warn " + BEAN);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Need LEVEL BEAN EXPRESSION", e.getMessage());
+        }
+    }
+
+    public void testWorstStatus() throws Exception {
+        // One rule over a pattern checks each bean it matches.
+        assertEquals(Rules.WARNING, check(new String [] {
+            "warn test:type=Gauge,* Used > 50",
+            "crit test:type=Gauge,* Used > 99"}));
+        assertTrue(this.output, this.output.startsWith(
+            "JMX WARNING - 0 critical, 1 warning, 0 unknown of 4 checks\n"));
+        assertTrue(this.output, this.output.indexOf(
+            "WARNING " + BEAN + ": Used > 50 (Used=95)") > 0);
+        // A rule matching no bean is unknown but does not hide a warning.
+        assertEquals(Rules.WARNING, check(new String [] {
+            "warn test:type=Gauge,* Used > 50",
+            "crit none:type=None Used > 0"}));
+        assertEquals(Rules.UNKNOWN, check(new String [] {
+            "warn test:type=Gauge,* Used > 100",
+            "crit none:type=None Used > 0"}));
+        assertTrue(this.output, this.output.indexOf("No bean matches") > 0);
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Sampler
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Sample attributes at a fixed rate over one open connection.
+ * <p>Sample times are computed from when sampling started -- not from when
+ * the last sample finished -- so a slow fetch does not push out all
+ * subsequent samples.  If a fetch takes longer than the interval, the
+ * missed ticks are skipped.  Numeric attributes, and numeric fields of
+ * CompositeData attributes, are reported with the change since the last
+ * sample and the per-second rate of change.  A drop is reported as a
+ * negative change -- most values, heap used or thread count, are gauges
+ * that go down as well as up -- unless the value is a counter: an
+ * attribute or path we were told is one, or one of the
+ * {@link #MONOTONIC} attributes the platform beans count up in.  If an
+ * integral counter drops, we check if it wrapped past its type's maximum
+ * and if not, we take it the counter was reset and count from zero.
+ * <p>If given a {@link ResultFormat}, each bean's sample is written as a
+ * 'time' result followed by a result per value and, once there is a
+ * previous sample, 'PATH.delta' and 'PATH.rate' results (And 'PATH.reset'
+ * if a counter was reset).
+ * <p>If given a {@link Recorder}, numeric and boolean values are written to
+ * it rather than reported.
+ * 
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+class Sampler {
+    private static final Logger logger =
+        Logger.getLogger(Sampler.class.getName());
+    
+    private final MBeanServerConnection mbsc;
+    private final ObjectName objName;
+    private final String [] attributes;
+    private final long interval;
+    private final int count;
+    private final Recorder recorder;
+    private final CallStats stats;
+    private final ResultSink sink;
+    private final ResultFormat format;
+    private final Set counters;
+    
+    /**
+     * Names of attributes, or composite fields, that only count up
+     * wherever they are found.
+     */
+    static final Set MONOTONIC = new HashSet(Arrays.asList(new String [] {
+        "CollectionCount", "CollectionTime", "TotalStartedThreadCount",
+        "TotalLoadedClassCount", "UnloadedClassCount",
+        "TotalCompilationTime"}));
+    
+    /**
+     * Last value seen keyed by bean name plus attribute path.
+     */
+    private final Map previous = new HashMap();
+    
+    /**
+     * Time of last sample keyed by bean name (Nanoseconds).
+     */
+    private final Map previousTime = new HashMap();
+    
+    /**
+     * @param mbsc Server connection.
+     * @param objName Bean name or pattern.
+     * @param attributes Names of attributes to sample.
+     * @param interval Milliseconds between samples.
+     * @param count Count of samples to take.  If <= 0, run until killed.
+     * @param recorder Where to record samples (May be null).
+     * @param stats Remote call stats to report and reset after each sample
+     * (May be null).
+     * @param sink Where to write samples.  If null, they are logged.
+     * @param format Format to write samples in (May be null).
+     * @param counters Attribute names or paths, such as 'Requests' or
+     * 'Usage.total', to treat as counters besides the {@link #MONOTONIC}
+     * ones (May be null).
+     */
+    Sampler(final MBeanServerConnection mbsc, final ObjectName objName,
+            final String [] attributes, final long interval,
+            final int count, final Recorder recorder,
+            final CallStats stats, final ResultSink sink,
+            final ResultFormat format, final Set counters) {
+        super();
+        this.mbsc = mbsc;
+        this.objName = objName;
+        this.attributes = attributes;
+        this.interval = interval;
+        this.count = count;
+        this.recorder = recorder;
+        this.stats = stats;
+        this.sink = sink;
+        this.format = format;
+        this.counters = (counters == null)? Collections.EMPTY_SET: counters;
+    }
+    
+    void run() throws IOException, InterruptedException {
+        Set names = new TreeSet(this.mbsc.queryNames(this.objName, null));
+        if (names.size() == 0) {
+            throw new RuntimeException(Client.getNoBeanMessage(this.objName,
+                null));
+        }
+        long period = TimeUnit.MILLISECONDS.toNanos(this.interval);
+        long start = System.nanoTime();
+        long tick = 0;
+        for (int sample = 0; this.count <= 0 || sample < this.count;
+                sample++) {
+            // Sleep until the next tick measured from start.
+            long wait = start + (tick * period) - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            for (Iterator i = names.iterator(); i.hasNext();) {
+                sample((ObjectName)i.next());
+            }
+            if (this.stats != null) {
+                this.stats.report("sample " + (sample + 1));
+            }
+            tick = ((System.nanoTime() - start) / period) + 1;
+        }
+    }
+    
+    /**
+     * Fetch and report one sample of the attributes of bean
+     * <code>name</code>.
+     * @param name Bean to sample.
+     */
+    protected void sample(final ObjectName name) throws IOException {
+        String bean = name.getCanonicalName();
+        long timestamp = System.currentTimeMillis();
+        long before = System.nanoTime();
+        AttributeList list = null;
+        try {
+            list = this.mbsc.getAttributes(name, this.attributes);
+        } catch (Exception e) {
+            logger.severe(bean + ": " + e);
+            return;
+        }
+        if (this.recorder != null) {
+            this.recorder.tick(timestamp);
+            int id = this.recorder.getId(bean);
+            for (Iterator i = list.iterator(); i.hasNext();) {
+                Attribute a = (Attribute)i.next();
+                record(id, a.getName(), a.getValue());
+            }
+            return;
+        }
+        long now = System.nanoTime();
+        Long last = (Long)this.previousTime.put(bean, Long.valueOf(now));
+        double seconds = (last == null)? 0:
+            (now - last.longValue()) / 1000000000.0d;
+        if (this.format != null) {
+            write(bean, "time", Long.valueOf(timestamp));
+        } else {
+            ResultSink.print(this.sink, logger, bean + " time=" + timestamp +
+                " fetch=" + Client.formatMillis(now - before));
+        }
+        for (Iterator i = list.iterator(); i.hasNext();) {
+            Attribute a = (Attribute)i.next();
+            report(bean, a.getName(), a.getValue(), seconds);
+        }
+    }
+    
+    protected void record(final int bean, final String path,
+            final Object value)
+    throws IOException {
+        if (value instanceof CompositeData) {
+            CompositeData data = (CompositeData)value;
+            for (Iterator i = data.getCompositeType().keySet().iterator();
+                    i.hasNext();) {
+                String key = (String)i.next();
+                record(bean, path + "." + key, data.get(key));
+            }
+        } else if (value instanceof Number) {
+            if (isIntegral((Number)value)) {
+                this.recorder.write(bean, this.recorder.getId(path),
+                    ((Number)value).longValue());
+            } else {
+                this.recorder.write(bean, this.recorder.getId(path),
+                    ((Number)value).doubleValue());
+            }
+        } else if (value instanceof Boolean) {
+            this.recorder.write(bean, this.recorder.getId(path),
+                ((Boolean)value).booleanValue()? 1L: 0L);
+        }
+    }
+    
+    protected void report(final String bean, final String path,
+            final Object value, final double seconds)
+    throws IOException {
+        if (value instanceof CompositeData) {
+            CompositeData data = (CompositeData)value;
+            for (Iterator i = data.getCompositeType().keySet().iterator();
+                    i.hasNext();) {
+                String key = (String)i.next();
+                report(bean, path + "." + key, data.get(key), seconds);
+            }
+            return;
+        }
+        if (!(value instanceof Number)) {
+            print(bean, path, value, null, 0, false);
+            return;
+        }
+        Number current = (Number)value;
+        Number last = (Number)this.previous.put(bean + " " + path, current);
+        if (last == null || seconds <= 0) {
+            print(bean, path, current, null, 0, false);
+            return;
+        }
+        Number delta;
+        boolean reset = false;
+        if (isIntegral(current) && isIntegral(last)) {
+            long c = current.longValue();
+            long p = last.longValue();
+            long d = c - p;
+            if (c < p && isCounter(path)) {
+                if (p > 0 && c < 0) {
+                    // Wrapped past type's maximum.  For longs the
+                    // subtraction above already wrapped to the right count.
+                    int bits = getBits(current);
+                    if (bits < 64) {
+                        d += (1L << bits);
+                    }
+                } else {
+                    // Counter was reset.  Count from zero.
+                    d = c;
+                    reset = true;
+                }
+            }
+            delta = Long.valueOf(d);
+        } else {
+            double d = current.doubleValue() - last.doubleValue();
+            if (d < 0 && isCounter(path)) {
+                d = current.doubleValue();
+                reset = true;
+            }
+            delta = Double.valueOf(d);
+        }
+        print(bean, path, current, delta, delta.doubleValue() / seconds,
+            reset);
+    }
+    
+    /**
+     * Report a value as a line of text or, if we have a format, as results.
+     * @param delta Change since last sample or null if none known.
+     * @param rate Per-second rate of change if <code>delta</code>.
+     * @param reset True if the counter was reset.
+     * @throws IOException
+     */
+    protected void print(final String bean, final String path,
+            final Object value, final Number delta, final double rate,
+            final boolean reset)
+    throws IOException {
+        if (this.format != null) {
+            write(bean, path, value);
+            if (delta != null) {
+                write(bean, path + ".delta", delta);
+                write(bean, path + ".rate", Double.valueOf(rate));
+                if (reset) {
+                    write(bean, path + ".reset", Boolean.TRUE);
+                }
+            }
+            return;
+        }
+        if (delta == null) {
+            ResultSink.print(this.sink, logger,
+                bean + " " + path + ": " + value);
+            return;
+        }
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(bean).append(' ').append(path).append(": ");
+        buffer.append(value);
+        buffer.append(" delta=").append(delta);
+        buffer.append(" rate=").append(formatRate(rate));
+        if (reset) {
+            buffer.append(" reset");
+        }
+        ResultSink.print(this.sink, logger, buffer.toString());
+    }
+    
+    protected void write(final String bean, final String path,
+            final Object value)
+    throws IOException {
+        try {
+            this.format.write(null, bean, path, value);
+        } finally {
+            this.format.flush();
+        }
+    }
+    
+    /**
+     * @param path Attribute name plus any composite fields.
+     * @return True if values at <code>path</code> only count up.
+     */
+    protected boolean isCounter(final String path) {
+        if (this.counters.contains(path)) {
+            return true;
+        }
+        int index = path.indexOf('.');
+        if (index > 0 && this.counters.contains(path.substring(0, index))) {
+            return true;
+        }
+        return MONOTONIC.contains(path.substring(path.lastIndexOf('.') + 1));
+    }
+    
+    protected static boolean isIntegral(final Number n) {
+        return n instanceof Long || n instanceof Integer ||
+            n instanceof Short || n instanceof Byte;
+    }
+    
+    protected static int getBits(final Number n) {
+        if (n instanceof Integer) {
+            return 32;
+        } else if (n instanceof Short) {
+            return 16;
+        } else if (n instanceof Byte) {
+            return 8;
+        }
+        return 64;
+    }
+    
+    protected static String formatRate(final double rate) {
+        return String.format("%.3f/s", new Object [] {Double.valueOf(rate)});
+    }
+}
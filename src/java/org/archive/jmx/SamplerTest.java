@@ -0,0 +1,225 @@
+/*
+ * SamplerTest
+ *
+ * $Id$
+ *
+ * Created on Oct 16, 2026
+ *
+ * Copyright (C) 2026 Internet Archive.
+ *
+ * This file is part of the Heritrix web crawler (crawler.archive.org).
+ *
+ * Heritrix is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * any later version.
+ *
+ * Heritrix is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser Public License
+ * along with Heritrix; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package org.archive.jmx;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of {@link Sampler} scheduling and of how it takes the change in
+ * counters and gauges.
+ *
+ * @author agent
+ * @version $Revision$, $Date$
+ */
+public class SamplerTest extends TestCase {
+    private static final String BEAN = "test:type=Counter";
+
+    private MBeanServer mbs;
+    private Counter counter;
+    private StringWriter out;
+    private ResultSink sink;
+
+    public interface CounterMBean {
+        int getRequests();
+        short getSmall();
+        long getUsed();
+        long getCollectionCount();
+    }
+
+    public static class Counter implements CounterMBean {
+        private int requests;
+        private short small;
+        private long used;
+        private long collectionCount;
+
+        /**
+         * Nanosecond times of fetches.
+         */
+        private final List fetches = new ArrayList();
+
+        /**
+         * Milliseconds each fetch takes.
+         */
+        private long delay = 0;
+
+        public synchronized int getRequests() {
+            this.fetches.add(Long.valueOf(System.nanoTime()));
+            try {
+                Thread.sleep(this.delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return this.requests;
+        }
+
+        public synchronized short getSmall() {
+            return this.small;
+        }
+
+        public synchronized long getUsed() {
+            return this.used;
+        }
+
+        public synchronized long getCollectionCount() {
+            return this.collectionCount;
+        }
+
+        protected synchronized void set(final int requests, final short small,
+                final long used, final long collectionCount) {
+            this.requests = requests;
+            this.small = small;
+            this.used = used;
+            this.collectionCount = collectionCount;
+        }
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.mbs = MBeanServerFactory.newMBeanServer();
+        this.counter = new Counter();
+        this.mbs.registerMBean(this.counter, new ObjectName(BEAN));
+        this.out = new StringWriter();
+        this.sink = new ResultSink(this.out, false,
+            ResultSink.DEFAULT_FLUSH_SIZE, ResultSink.DEFAULT_FLUSH_INTERVAL);
+    }
+
+    protected void tearDown() throws Exception {
+        this.sink.close();
+        super.tearDown();
+    }
+
+    protected Sampler newSampler(final long interval, final int count,
+            final String [] counters) throws Exception {
+        return new Sampler(this.mbs, new ObjectName(BEAN),
+            new String [] {"Requests", "Small", "Used", "CollectionCount"},
+            interval, count, null, null, this.sink, null,
+            (counters == null)? null:
+                new HashSet(Arrays.asList(counters)));
+    }
+
+    /**
+     * Take two samples, setting values before each.
+     * @return The second sample's lines.
+     */
+    protected String sampleTwice(final Sampler sampler, final int [] first,
+            final int [] second)
+    throws Exception {
+        this.counter.set(first[0], (short)first[1], first[2], first[3]);
+        sampler.sample(new ObjectName(BEAN));
+        this.sink.sync();
+        int offset = this.out.getBuffer().length();
+        Thread.sleep(5);
+        this.counter.set(second[0], (short)second[1], second[2], second[3]);
+        sampler.sample(new ObjectName(BEAN));
+        this.sink.sync();
+        return this.out.getBuffer().substring(offset);
+    }
+
+    /**
+     * @return The line for <code>path</code> in <code>lines</code>.
+     */
+    protected String line(final String lines, final String path) {
+        int start = lines.indexOf(BEAN + " " + path + ": ");
+        assertTrue(lines, start >= 0);
+        return lines.substring(start, lines.indexOf('\n', start)).trim();
+    }
+
+    protected void assertLine(final String lines, final String expected) {
+        int index = expected.indexOf(':');
+        String line = line(lines, expected.substring(0, index));
+        assertTrue(line, line.startsWith(BEAN + " " + expected));
+    }
+
+    public void testGaugesGoDown() throws Exception {
+        String lines = sampleTwice(newSampler(1000, 1, null),
+            new int [] {10, 10, 100, 5}, new int [] {7, 4, 40, 5});
+        assertLine(lines, "Requests: 7 delta=-3 ");
+        assertLine(lines, "Small: 4 delta=-6 ");
+        assertLine(lines, "Used: 40 delta=-60 ");
+        assertLine(lines, "CollectionCount: 5 delta=0 ");
+        assertTrue(lines, lines.indexOf("reset") < 0);
+    }
+
+    public void testCountersWrap() throws Exception {
+        String lines = sampleTwice(newSampler(1000, 1,
+                new String [] {"Requests", "Small"}),
+            new int [] {Integer.MAX_VALUE - 1, Short.MAX_VALUE - 1, 0, 0},
+            new int [] {Integer.MIN_VALUE + 1, Short.MIN_VALUE + 1, 0, 0});
+        assertLine(lines, "Requests: " + (Integer.MIN_VALUE + 1) +
+            " delta=3 ");
+        assertLine(lines, "Small: " + (Short.MIN_VALUE + 1) + " delta=3 ");
+        assertTrue(lines, lines.indexOf("reset") < 0);
+    }
+
+    public void testCountersReset() throws Exception {
+        // CollectionCount is a counter without being named one.
+        String lines = sampleTwice(newSampler(1000, 1,
+                new String [] {"Requests"}),
+            new int [] {500, 0, 100, 10}, new int [] {2, 0, 90, 3});
+        assertLine(lines, "Requests: 2 delta=2 ");
+        assertTrue(line(lines, "Requests").endsWith("/s reset"));
+        assertLine(lines, "CollectionCount: 3 delta=3 ");
+        assertTrue(line(lines, "CollectionCount").endsWith("/s reset"));
+        // Used is a gauge.
+        assertLine(lines, "Used: 90 delta=-10 rate=-");
+        assertTrue(line(lines, "Used").endsWith("/s"));
+    }
+
+    public void testTicksDoNotDrift() throws Exception {
+        // Fetches take half the interval.  Were the next sample scheduled
+        // from the end of the last, the fourth would be 240ms after the
+        // first rather than 160ms.
+        this.counter.delay = 20;
+        newSampler(40, 5, null).run();
+        assertEquals(5, this.counter.fetches.size());
+        long first = ((Long)this.counter.fetches.get(0)).longValue();
+        long last = ((Long)this.counter.fetches.get(4)).longValue();
+        long elapsed = (last - first) / 1000000;
+        assertTrue("" + elapsed, elapsed >= 155 && elapsed < 220);
+    }
+
+    public void testSlowFetchSkipsTicks() throws Exception {
+        // A fetch longer than the interval skips the missed ticks rather
+        // than sampling back to back to catch up.
+        this.counter.delay = 50;
+        newSampler(40, 3, null).run();
+        long first = ((Long)this.counter.fetches.get(0)).longValue();
+        long second = ((Long)this.counter.fetches.get(1)).longValue();
+        long third = ((Long)this.counter.fetches.get(2)).longValue();
+        assertTrue("" + (second - first), (second - first) / 1000000 >= 75);
+        assertTrue("" + (third - second), (third - second) / 1000000 >= 35);
+    }
+}